@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.item.impl;
+
+import java.util.Arrays;
+
+import net.minecraft.inventory.SimpleInventory;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+
+import alexiil.mc.lib.attributes.VanillaSetupBaseTester;
+import alexiil.mc.lib.attributes.item.FixedItemInv;
+import alexiil.mc.lib.attributes.item.GroupedItemInv;
+import alexiil.mc.lib.attributes.item.compat.FixedInventoryVanillaWrapper;
+import alexiil.mc.lib.attributes.item.filter.ExactItemFilter;
+import alexiil.mc.lib.attributes.item.filter.ItemFilter;
+
+/** Shared setup for the item inventory benchmarks. */
+final class BenchmarkInventories {
+    private BenchmarkInventories() {}
+
+    /** The amount that every filled slot (or stored item type) starts with. This is half of a normal stack, so single
+     * items can always be both inserted and extracted. */
+    static final int FILL_COUNT = 32;
+
+    enum FixedInvType {
+        DIRECT {
+            @Override
+            FixedItemInv create(int size) {
+                return new DirectFixedItemInv(size);
+            }
+        },
+        FULL {
+            @Override
+            FixedItemInv create(int size) {
+                return new FullFixedItemInv(size);
+            }
+        },
+        LIMITED {
+            @Override
+            FixedItemInv create(int size) {
+                SimpleLimitedFixedItemInv inv = SimpleLimitedFixedItemInv.createLimited(new FullFixedItemInv(size));
+                inv.getAllRule().limitInsertionCount(48);
+                return inv.markFinal();
+            }
+        },
+        COMBINED {
+            @Override
+            FixedItemInv create(int size) {
+                int half = size / 2;
+                return CombinedFixedItemInv.create(
+                    Arrays.asList(new FullFixedItemInv(half), new FullFixedItemInv(size - half))
+                );
+            }
+        },
+        VANILLA {
+            @Override
+            FixedItemInv create(int size) {
+                return new FixedInventoryVanillaWrapper(new SimpleInventory(size));
+            }
+        };
+
+        abstract FixedItemInv create(int size);
+    }
+
+    enum GroupedInvType {
+        SIMPLE {
+            @Override
+            GroupedItemInv create(int types) {
+                return new SimpleGroupedItemInv(types, types * 64);
+            }
+        },
+        LARGE {
+            @Override
+            GroupedItemInv create(int types) {
+                return new LargeGroupedItemInv(types, types * 64);
+            }
+        },
+        CONCURRENT {
+            @Override
+            GroupedItemInv create(int types) {
+                return new ConcurrentGroupedItemInv(types, types * 64);
+            }
+        },
+        FIXED_WRAPPER {
+            @Override
+            GroupedItemInv create(int types) {
+                return new GroupedItemInvFixedWrapper(new FullFixedItemInv(types));
+            }
+        };
+
+        abstract GroupedItemInv create(int types);
+    }
+
+    /** @return The first "variety" distinct items. */
+    static Item[] items(int variety) {
+        VanillaSetupBaseTester.init();
+        Item[] all = ItemInvTester.ITEMS;
+        if (variety < 1 || variety > all.length) {
+            throw new IllegalArgumentException("Unsupported item variety " + variety);
+        }
+        return Arrays.copyOf(all, variety);
+    }
+
+    /** @return A single-count stack of every item. Benchmarks must not modify these. */
+    static ItemStack[] singleStacks(Item[] items) {
+        ItemStack[] stacks = new ItemStack[items.length];
+        for (int i = 0; i < items.length; i++) {
+            stacks[i] = new ItemStack(items[i]);
+        }
+        return stacks;
+    }
+
+    static ItemFilter[] filters(Item[] items) {
+        ItemFilter[] filters = new ItemFilter[items.length];
+        for (int i = 0; i < items.length; i++) {
+            filters[i] = new ExactItemFilter(items[i]);
+        }
+        return filters;
+    }
+
+    /** Fills every other slot with {@link #FILL_COUNT} of each item in turn. */
+    static void fill(FixedItemInv inv, Item[] items) {
+        for (int slot = 0; slot < inv.getSlotCount(); slot += 2) {
+            inv.forceSetInvStack(slot, new ItemStack(items[(slot / 2) % items.length], FILL_COUNT));
+        }
+    }
+
+    /** Inserts {@link #FILL_COUNT} of every item. */
+    static void fill(GroupedItemInv inv, Item[] items) {
+        for (Item item : items) {
+            ItemStack excess = inv.insert(new ItemStack(item, FILL_COUNT));
+            if (!excess.isEmpty()) {
+                throw new IllegalStateException("Couldn't fill " + inv + " with " + item);
+            }
+        }
+    }
+}
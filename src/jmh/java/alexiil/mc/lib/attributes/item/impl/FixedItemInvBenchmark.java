@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.item.impl;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+
+import alexiil.mc.lib.attributes.Simulation;
+import alexiil.mc.lib.attributes.item.FixedItemInv;
+import alexiil.mc.lib.attributes.item.GroupedItemInv;
+import alexiil.mc.lib.attributes.item.filter.ItemFilter;
+import alexiil.mc.lib.attributes.item.impl.BenchmarkInventories.FixedInvType;
+
+/** Measures the common operations on every kind of {@link FixedItemInv}, both directly (per-slot) and through
+ * {@link FixedItemInv#getGroupedInv()} (which is a {@link GroupedItemInvFixedWrapper} for most of them).
+ * <p>
+ * Every benchmark leaves the inventory in the same state that it started in, so they can be run for any length of
+ * time. Run with the "gc" profiler (the default in build.gradle) to see allocation rates. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FixedItemInvBenchmark {
+
+    @Param
+    public FixedInvType type;
+
+    @Param({ "9", "27", "54" })
+    public int size;
+
+    @Param({ "1", "8", "32" })
+    public int variety;
+
+    private FixedItemInv inv;
+    private GroupedItemInv grouped;
+    private ItemStack[] stacks;
+    private ItemFilter[] filters;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Item[] items = BenchmarkInventories.items(variety);
+        inv = type.create(size);
+        BenchmarkInventories.fill(inv, items);
+        grouped = inv.getGroupedInv();
+        stacks = BenchmarkInventories.singleStacks(items);
+        filters = BenchmarkInventories.filters(items);
+    }
+
+    private int nextIndex() {
+        int index = next;
+        next = index + 1 == stacks.length ? 0 : index + 1;
+        return index;
+    }
+
+    /** Inserts a single item through the grouped inventory, and then extracts it again. */
+    @Benchmark
+    public void groupedInsertExtract(Blackhole bh) {
+        int index = nextIndex();
+        bh.consume(grouped.attemptInsertion(stacks[index], Simulation.ACTION));
+        bh.consume(grouped.attemptExtraction(filters[index], 1, Simulation.ACTION));
+    }
+
+    @Benchmark
+    public ItemStack groupedSimulateInsert() {
+        return grouped.attemptInsertion(stacks[nextIndex()], Simulation.SIMULATE);
+    }
+
+    @Benchmark
+    public ItemStack groupedSimulateExtract() {
+        return grouped.attemptExtraction(filters[nextIndex()], 64, Simulation.SIMULATE);
+    }
+
+    @Benchmark
+    public Object groupedStatistics() {
+        return grouped.getStatistics(filters[nextIndex()]);
+    }
+
+    /** Inserts a single item into the first slot (which always holds the first item), and then extracts it again. */
+    @Benchmark
+    public void slotInsertExtract(Blackhole bh) {
+        bh.consume(inv.insertStack(0, stacks[0], Simulation.ACTION));
+        bh.consume(inv.extractStack(0, null, ItemStack.EMPTY, 1, Simulation.ACTION));
+    }
+
+    @Benchmark
+    public int getInvStackScan() {
+        int total = 0;
+        for (int slot = 0; slot < inv.getSlotCount(); slot++) {
+            total += inv.getInvStack(slot).getCount();
+        }
+        return total;
+    }
+
+    @Benchmark
+    public int forEachStackScan() {
+        int[] total = { 0 };
+        inv.forEachStack((slot, stack) -> total[0] += stack.getCount());
+        return total[0];
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.item.impl;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+
+import alexiil.mc.lib.attributes.Simulation;
+import alexiil.mc.lib.attributes.item.GroupedItemInv;
+import alexiil.mc.lib.attributes.item.filter.ConstantItemFilter;
+import alexiil.mc.lib.attributes.item.filter.ItemFilter;
+import alexiil.mc.lib.attributes.item.impl.BenchmarkInventories.GroupedInvType;
+
+/** Measures the common operations on every kind of {@link GroupedItemInv}. Every benchmark leaves the inventory in the
+ * same state that it started in. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GroupedItemInvBenchmark {
+
+    @Param
+    public GroupedInvType type;
+
+    @Param({ "1", "8", "32" })
+    public int variety;
+
+    private GroupedItemInv inv;
+    private ItemStack[] stacks;
+    private ItemFilter[] filters;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Item[] items = BenchmarkInventories.items(variety);
+        // Leave space for twice as many types as are stored
+        inv = type.create(variety * 2);
+        BenchmarkInventories.fill(inv, items);
+        stacks = BenchmarkInventories.singleStacks(items);
+        filters = BenchmarkInventories.filters(items);
+    }
+
+    private int nextIndex() {
+        int index = next;
+        next = index + 1 == stacks.length ? 0 : index + 1;
+        return index;
+    }
+
+    @Benchmark
+    public void insertExtract(Blackhole bh) {
+        int index = nextIndex();
+        bh.consume(inv.attemptInsertion(stacks[index], Simulation.ACTION));
+        bh.consume(inv.attemptExtraction(filters[index], 1, Simulation.ACTION));
+    }
+
+    @Benchmark
+    public ItemStack simulateInsert() {
+        return inv.attemptInsertion(stacks[nextIndex()], Simulation.SIMULATE);
+    }
+
+    @Benchmark
+    public ItemStack simulateExtract() {
+        return inv.attemptExtraction(filters[nextIndex()], 64, Simulation.SIMULATE);
+    }
+
+    @Benchmark
+    public int amountOfStack() {
+        return inv.getAmount(stacks[nextIndex()]);
+    }
+
+    @Benchmark
+    public Object statistics() {
+        return inv.getStatistics(filters[nextIndex()]);
+    }
+
+    @Benchmark
+    public Object statisticsOfEverything() {
+        return inv.getStatistics(ConstantItemFilter.ANYTHING);
+    }
+
+    @Benchmark
+    public int forEachAmountScan() {
+        int[] total = { 0 };
+        inv.forEachAmount((stack, amount) -> total[0] += amount);
+        return total[0];
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.item.impl;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+
+import alexiil.mc.lib.attributes.Simulation;
+import alexiil.mc.lib.attributes.item.FixedItemInv;
+import alexiil.mc.lib.attributes.item.GroupedItemInv;
+import alexiil.mc.lib.attributes.item.filter.ItemFilter;
+
+/** Measures how the cost of accessing an inventory changes as sub, mapped and combined views are nested inside of each
+ * other. Since views are flattened when they are created this should be (almost) independent of the depth. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NestedFixedItemInvBenchmark {
+
+    private static final int SIZE = 54;
+
+    @Param({ "0", "1", "2", "4", "8" })
+    public int depth;
+
+    private FixedItemInv view;
+    private GroupedItemInv grouped;
+    private ItemStack stack;
+    private ItemFilter filter;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Item[] items = BenchmarkInventories.items(8);
+        FullFixedItemInv base = new FullFixedItemInv(SIZE);
+        BenchmarkInventories.fill(base, items);
+
+        FixedItemInv inv = base;
+        for (int level = 0; level < depth; level++) {
+            inv = wrap(inv, level);
+        }
+        view = inv;
+        grouped = view.getGroupedInv();
+        stack = new ItemStack(items[0]);
+        filter = BenchmarkInventories.filters(items)[0];
+    }
+
+    /** @return A view with the same slots as the given inventory, but with a different wrapper depending on the
+     *         level. */
+    private static FixedItemInv wrap(FixedItemInv inv, int level) {
+        int size = inv.getSlotCount();
+        switch (level % 3) {
+            case 0: {
+                int half = size / 2;
+                return CombinedFixedItemInv.create(Arrays.asList(inv.getSubInv(0, half), inv.getSubInv(half, size)));
+            }
+            case 1: {
+                int[] slots = new int[size];
+                for (int i = 0; i < size; i++) {
+                    slots[i] = size - 1 - i;
+                }
+                return inv.getMappedInv(slots);
+            }
+            default: {
+                // A sub view of every slot would just return the same inventory, so add an empty combined view too
+                return CombinedFixedItemInv.create(Arrays.asList(inv.getSubInv(0, size), EmptyFixedItemInv.INSTANCE));
+            }
+        }
+    }
+
+    @Benchmark
+    public int getInvStackScan() {
+        int total = 0;
+        for (int slot = 0; slot < view.getSlotCount(); slot++) {
+            total += view.getInvStack(slot).getCount();
+        }
+        return total;
+    }
+
+    @Benchmark
+    public void groupedInsertExtract(Blackhole bh) {
+        bh.consume(grouped.attemptInsertion(stack, Simulation.ACTION));
+        bh.consume(grouped.attemptExtraction(filter, 1, Simulation.ACTION));
+    }
+
+    @Benchmark
+    public Object groupedStatistics() {
+        return grouped.getStatistics(filter);
+    }
+}
@@ -9,6 +9,8 @@ package alexiil.mc.lib.attributes.fluid;
 
 import javax.annotation.Nullable;
 
+import alexiil.mc.lib.attributes.ListenerRemovalToken;
+import alexiil.mc.lib.attributes.ListenerToken;
 import alexiil.mc.lib.attributes.Simulation;
 import alexiil.mc.lib.attributes.fluid.amount.FluidAmount;
 import alexiil.mc.lib.attributes.fluid.filter.ConstantFluidFilter;
@@ -98,6 +100,20 @@ public interface FluidInsertable extends LimitedConsumer<FluidVolume> {
         return ConstantFluidFilter.ANYTHING;
     }
 
+    /** Adds a listener that will be called whenever the {@link #getInsertionFilter()} of this insertable might have
+     * changed. This is optional: insertables that can't detect changes to their filter should return null, in which
+     * case callers should assume that the filter could change at any time.
+     * 
+     * @param removalToken A token that will be called whenever the given listener is removed from this insertable (or
+     *            if this insertable is unloaded or otherwise no longer available).
+     * @return A token that represents the listener, or null if this insertable doesn't support filter change
+     *         listeners. */
+    default ListenerToken addInsertionFilterListener(
+        FluidInsertionFilterListener listener, ListenerRemovalToken removalToken
+    ) {
+        return null;
+    }
+
     /** @return A new {@link FluidInsertable} that has an additional filter applied to the fluid inserted into it. */
     default FluidInsertable filtered(FluidFilter filter) {
         return new FilteredFluidInsertable(this, filter);
@@ -118,6 +134,16 @@ public interface FluidInsertable extends LimitedConsumer<FluidVolume> {
             public FluidFilter getInsertionFilter() {
                 return delegate.getInsertionFilter();
             }
+
+            @Override
+            public ListenerToken addInsertionFilterListener(
+                FluidInsertionFilterListener listener, ListenerRemovalToken removalToken
+            ) {
+                FluidInsertable wrapper = this;
+                return delegate.addInsertionFilterListener(
+                    i -> listener.onInsertionFilterChange(wrapper), removalToken
+                );
+            }
         };
     }
 }
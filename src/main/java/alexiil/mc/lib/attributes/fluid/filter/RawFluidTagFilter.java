@@ -7,19 +7,33 @@
  */
 package alexiil.mc.lib.attributes.fluid.filter;
 
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.Map;
+
+import com.google.common.collect.MapMaker;
 
 import net.minecraft.fluid.Fluid;
 import net.minecraft.tag.Tag;
+import net.minecraft.util.registry.Registry;
 
 import alexiil.mc.lib.attributes.fluid.volume.FluidKey;
 import alexiil.mc.lib.attributes.fluid.volume.FluidKeys;
 
-/** A {@link FluidFilter} that operates on a {@link Tag} of vanilla minecraft's {@link Fluid}'s. */
+/** A {@link FluidFilter} that operates on a {@link Tag} of vanilla minecraft's {@link Fluid}'s.
+ * <p>
+ * The resolved filter (and a bitset over fluid ids that {@link #matches(FluidKey)} uses) is cached per {@link Tag}
+ * instance, and is rebuilt whenever the tag's value list is replaced. Reloading tags always does this, as every
+ * reload creates new tag objects (which the tags held in static fields delegate to). */
 public final class RawFluidTagFilter implements ResolvableFluidFilter {
 
+    /** Shared between every {@link RawFluidTagFilter} for the same tag instance. */
+    private static final Map<Tag<Fluid>, ResolvedFluidTag> RESOLVED_TAGS = new MapMaker().weakKeys().makeMap();
+
     public final Tag<Fluid> tag;
 
+    private volatile ResolvedFluidTag resolved;
+
     public RawFluidTagFilter(Tag<Fluid> tag) {
         this.tag = tag;
     }
@@ -30,15 +44,66 @@ public final class RawFluidTagFilter implements ResolvableFluidFilter {
         if (raw == null) {
             return false;
         }
-        return raw.isIn(tag);
+        return getResolved().matches(raw);
     }
 
     @Override
     public ReadableFluidFilter resolve() {
-        HashSet<FluidKey> set = new HashSet<>();
-        for (Fluid fluid : tag.values()) {
-            set.add(FluidKeys.get(fluid));
+        return getResolved().filter;
+    }
+
+    private ResolvedFluidTag getResolved() {
+        Collection<Fluid> values = tag.values();
+        ResolvedFluidTag current = resolved;
+        if (current != null && current.isValid(values)) {
+            return current;
+        }
+        current = RESOLVED_TAGS.get(tag);
+        if (current == null || !current.isValid(values)) {
+            current = new ResolvedFluidTag(values);
+            RESOLVED_TAGS.put(tag, current);
+        }
+        resolved = current;
+        return current;
+    }
+
+    static final class ResolvedFluidTag {
+        /** The exact {@link Tag#values()} object that this was resolved from. */
+        final Collection<Fluid> source;
+        final ReadableFluidFilter filter;
+
+        /** A bit is set for the raw id of every fluid in the tag. */
+        final long[] bits;
+
+        ResolvedFluidTag(Collection<Fluid> source) {
+            this.source = source;
+            HashSet<FluidKey> set = new HashSet<>();
+            int maxId = -1;
+            for (Fluid fluid : source) {
+                set.add(FluidKeys.get(fluid));
+                maxId = Math.max(maxId, Registry.FLUID.getRawId(fluid));
+            }
+            this.filter = new FluidSetFilter(set);
+            bits = new long[(maxId + 64) >>> 6];
+            for (Fluid fluid : source) {
+                int id = Registry.FLUID.getRawId(fluid);
+                if (id >= 0) {
+                    bits[id >>> 6] |= 1L << id;
+                }
+            }
+        }
+
+        boolean isValid(Collection<Fluid> values) {
+            return source == values;
+        }
+
+        boolean matches(Fluid fluid) {
+            int id = Registry.FLUID.getRawId(fluid);
+            if (id < 0) {
+                return false;
+            }
+            int word = id >>> 6;
+            return word < bits.length && (bits[word] & (1L << id)) != 0;
         }
-        return new FluidSetFilter(set);
     }
 }
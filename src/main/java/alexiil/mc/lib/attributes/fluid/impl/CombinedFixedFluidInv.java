@@ -12,6 +12,7 @@ import java.util.List;
 import alexiil.mc.lib.attributes.Simulation;
 import alexiil.mc.lib.attributes.fluid.FixedFluidInv;
 import alexiil.mc.lib.attributes.fluid.volume.FluidVolume;
+import alexiil.mc.lib.attributes.misc.SlotArrays;
 
 /** An {@link FixedFluidInv} that delegates to a list of them instead of storing items directly. */
 public class CombinedFixedFluidInv<InvType extends FixedFluidInv> extends CombinedFixedFluidInvView<InvType>
@@ -23,6 +24,28 @@ public class CombinedFixedFluidInv<InvType extends FixedFluidInv> extends Combin
 
     @Override
     public boolean setInvFluid(int tank, FluidVolume to, Simulation simulation) {
-        return getInv(tank).setInvFluid(getSubTank(tank), to, simulation);
+        return ((FixedFluidInv) getLeafInv(tank)).setInvFluid(getLeafTank(tank), to, simulation);
+    }
+
+    @Override
+    public FixedFluidInv getSubInv(int fromIndex, int toIndex) {
+        if (fromIndex == toIndex) {
+            return EmptyFixedFluidInv.INSTANCE;
+        }
+        if (fromIndex == 0 && toIndex == getTankCount()) {
+            return this;
+        }
+        return FlatFixedFluidInv.create(this, SlotArrays.range(fromIndex, toIndex));
+    }
+
+    @Override
+    public FixedFluidInv getMappedInv(int... tanks) {
+        if (tanks.length == 0) {
+            return EmptyFixedFluidInv.INSTANCE;
+        }
+        if (SlotArrays.isIdentity(tanks, getTankCount())) {
+            return this;
+        }
+        return FlatFixedFluidInv.create(this, tanks);
     }
 }
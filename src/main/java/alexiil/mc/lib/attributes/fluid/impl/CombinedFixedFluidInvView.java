@@ -7,6 +7,8 @@
  */
 package alexiil.mc.lib.attributes.fluid.impl;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import alexiil.mc.lib.attributes.ListenerRemovalToken;
@@ -17,25 +19,65 @@ import alexiil.mc.lib.attributes.fluid.amount.FluidAmount;
 import alexiil.mc.lib.attributes.fluid.filter.FluidFilter;
 import alexiil.mc.lib.attributes.fluid.volume.FluidKey;
 import alexiil.mc.lib.attributes.fluid.volume.FluidVolume;
-
-/** An {@link FixedFluidInvView} that delegates to a list of them instead of storing items directly. */
+import alexiil.mc.lib.attributes.misc.CombinedSlotIndex;
+import alexiil.mc.lib.attributes.misc.SlotArrays;
+
+/** An {@link FixedFluidInvView} that delegates to a list of them instead of storing items directly.
+ * <p>
+ * Tank accesses are routed through a precomputed {@link CombinedSlotIndex}. If any of the {@link #views} are themselves
+ * (unextended) combined inventories then tank accesses skip them entirely, and go straight to the inventories that
+ * they contain. */
 public class CombinedFixedFluidInvView<InvType extends FixedFluidInvView> implements FixedFluidInvView {
 
     public final List<? extends InvType> views;
     private final int[] subTankStartIndex;
     private final int invSize;
 
+    /** Maps tanks to an index in {@link #views}. */
+    private final CombinedSlotIndex viewIndex;
+
+    /** The innermost (non-combined) inventories that tank accesses are routed to. */
+    private final FixedFluidInvView[] leaves;
+
+    /** Maps tanks to an index in {@link #leaves}. This is the same object as {@link #viewIndex} if none of the views
+     * are flattened. */
+    private final CombinedSlotIndex leafIndex;
+
     public CombinedFixedFluidInvView(List<? extends InvType> views) {
         this.views = views;
-        subTankStartIndex = new int[views.size()];
-        int size = 0;
+        int[] counts = new int[views.size()];
+        List<FixedFluidInvView> leafList = new ArrayList<>();
+        boolean flattened = false;
         for (int i = 0; i < views.size(); i++) {
-            subTankStartIndex[i] = size;
             FixedFluidInvView view = views.get(i);
-            int s = view.getTankCount();
-            size += s;
+            counts[i] = view.getTankCount();
+            if (isFlattenable(view)) {
+                Collections.addAll(leafList, ((CombinedFixedFluidInvView<?>) view).leaves);
+                flattened = true;
+            } else {
+                leafList.add(view);
+            }
+        }
+        viewIndex = new CombinedSlotIndex("Tank", counts);
+        subTankStartIndex = viewIndex.getStartIndices();
+        invSize = viewIndex.size();
+
+        leaves = leafList.toArray(new FixedFluidInvView[0]);
+        if (flattened) {
+            int[] leafCounts = new int[leaves.length];
+            for (int i = 0; i < leaves.length; i++) {
+                leafCounts[i] = leaves[i].getTankCount();
+            }
+            leafIndex = new CombinedSlotIndex("Tank", leafCounts);
+        } else {
+            leafIndex = viewIndex;
         }
-        invSize = size;
+    }
+
+    /** Only our own classes are flattened, as subclasses might override the tank access methods. */
+    static boolean isFlattenable(FixedFluidInvView view) {
+        Class<?> cls = view.getClass();
+        return cls == CombinedFixedFluidInvView.class || cls == CombinedFixedFluidInv.class;
     }
 
     @Override
@@ -44,72 +86,48 @@ public class CombinedFixedFluidInvView<InvType extends FixedFluidInvView> implem
     }
 
     protected InvType getInv(int tank) {
-        if (tank < 0) {
-            throw new IllegalArgumentException("Tank must be non-negative! (was " + tank + ")");
-        }
-
-        for (int i = 0; i < subTankStartIndex.length; i++) {
-            int startIndex = subTankStartIndex[i];
-            if (tank < startIndex) {
-                return views.get(i);
-            }
-        }
-        if (tank < invSize) {
-            return views.get(views.size() - 1);
-        }
-
-        throw new IllegalArgumentException(
-            "Tank must be less than getInvSize() (was " + tank + ", maximum tank is " + (invSize - 1) + ")"
-        );
+        return views.get(viewIndex.getInvIndex(tank));
     }
 
     protected int getSubTank(int tank) {
-        if (tank < 0) {
-            throw new IllegalArgumentException("Tank must be non-negative! (was " + tank + ")");
-        }
+        return viewIndex.getSubSlot(tank);
+    }
 
-        for (int i = 0; i < subTankStartIndex.length; i++) {
-            int startIndex = subTankStartIndex[i];
-            if (tank < startIndex) {
-                if (i == 0) {
-                    return tank;
-                }
-                return tank - subTankStartIndex[i - 1];
-            }
-        }
-        if (tank < invSize) {
-            return tank - subTankStartIndex[subTankStartIndex.length - 1];
-        }
+    /** @return The innermost inventory that contains the given tank. Unlike {@link #getInv(int)} this never returns a
+     *         (flattened) combined inventory. */
+    protected FixedFluidInvView getLeafInv(int tank) {
+        return leaves[leafIndex.getInvIndex(tank)];
+    }
 
-        throw new IllegalArgumentException(
-            "Tank must be less than getInvSize() (was " + tank + ", maximum tank is " + (invSize - 1) + ")"
-        );
+    /** @return The tank in {@link #getLeafInv(int)} that the given tank maps to. */
+    protected int getLeafTank(int tank) {
+        return leafIndex.getSubSlot(tank);
     }
 
     @Override
     public FluidVolume getInvFluid(int tank) {
-        return getInv(tank).getInvFluid(getSubTank(tank));
+        return getLeafInv(tank).getInvFluid(getLeafTank(tank));
     }
 
     @Override
     public boolean isFluidValidForTank(int tank, FluidKey fluid) {
-        return getInv(tank).isFluidValidForTank(getSubTank(tank), fluid);
+        return getLeafInv(tank).isFluidValidForTank(getLeafTank(tank), fluid);
     }
 
     @Override
     public FluidFilter getFilterForTank(int tank) {
-        return getInv(tank).getFilterForTank(getSubTank(tank));
+        return getLeafInv(tank).getFilterForTank(getLeafTank(tank));
     }
 
     @Override
     @Deprecated
     public int getMaxAmount(int tank) {
-        return getInv(tank).getMaxAmount(getSubTank(tank));
+        return getLeafInv(tank).getMaxAmount(getLeafTank(tank));
     }
 
     @Override
     public FluidAmount getMaxAmount_F(int tank) {
-        return getInv(tank).getMaxAmount_F(getSubTank(tank));
+        return getLeafInv(tank).getMaxAmount_F(getLeafTank(tank));
     }
 
     @Override
@@ -153,4 +171,26 @@ public class CombinedFixedFluidInvView<InvType extends FixedFluidInvView> implem
             }
         };
     }
+
+    @Override
+    public FixedFluidInvView getSubInv(int fromIndex, int toIndex) {
+        if (fromIndex == toIndex) {
+            return EmptyFixedFluidInv.INSTANCE;
+        }
+        if (fromIndex == 0 && toIndex == getTankCount()) {
+            return this;
+        }
+        return FlatFixedFluidInvView.createView(this, SlotArrays.range(fromIndex, toIndex));
+    }
+
+    @Override
+    public FixedFluidInvView getMappedInv(int... tanks) {
+        if (tanks.length == 0) {
+            return EmptyFixedFluidInv.INSTANCE;
+        }
+        if (SlotArrays.isIdentity(tanks, getTankCount())) {
+            return this;
+        }
+        return FlatFixedFluidInvView.createView(this, tanks);
+    }
 }
@@ -7,21 +7,37 @@
  */
 package alexiil.mc.lib.attributes.fluid.impl;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+import alexiil.mc.lib.attributes.ListenerRemovalToken;
+import alexiil.mc.lib.attributes.ListenerToken;
 import alexiil.mc.lib.attributes.Simulation;
 import alexiil.mc.lib.attributes.fluid.FluidInsertable;
+import alexiil.mc.lib.attributes.fluid.FluidInsertionFilterListener;
 import alexiil.mc.lib.attributes.fluid.FluidVolumeUtil;
 import alexiil.mc.lib.attributes.fluid.amount.FluidAmount;
 import alexiil.mc.lib.attributes.fluid.filter.AggregateFluidFilter;
 import alexiil.mc.lib.attributes.fluid.filter.FluidFilter;
 import alexiil.mc.lib.attributes.fluid.volume.FluidVolume;
 
+/** An {@link FluidInsertable} that tries to insert into every one of a list of insertables, in order.
+ * <p>
+ * The combined {@link #getInsertionFilter()} is cached: it's rebuilt only if one of the children returns a different
+ * filter object (or notifies a registered {@link FluidInsertionFilterListener}). */
 public final class CombinedFluidInsertable implements FluidInsertable {
 
     private final List<? extends FluidInsertable> insertables;
 
+    /** The child filters that {@link #cachedFilter} was built from, or null if it hasn't been built yet (or has been
+     * invalidated by a filter change listener). */
+    private FluidFilter[] cachedChildFilters;
+    private FluidFilter cachedFilter;
+
+    /** The number of {@link FluidInsertionFilterListener}s registered with this. While this is positive every child
+     * insertable will tell us about filter changes, so {@link #cachedFilter} can be returned without checking them. */
+    private int filterListenerCount;
+
     public CombinedFluidInsertable(List<? extends FluidInsertable> list) {
         this.insertables = list;
     }
@@ -39,11 +55,79 @@ public final class CombinedFluidInsertable implements FluidInsertable {
 
     @Override
     public FluidFilter getInsertionFilter() {
-        List<FluidFilter> filters = new ArrayList<>(insertables.size());
-        for (int i = 0; i < insertables.size(); i++) {
-            filters.add(insertables.get(i).getInsertionFilter());
+        FluidFilter[] filters = cachedChildFilters;
+        if (filters != null) {
+            if (filterListenerCount > 0) {
+                return cachedFilter;
+            }
+            // Most insertables return the same filter object every time, so this is usually enough to revalidate
+            boolean unchanged = true;
+            for (int i = 0; i < filters.length; i++) {
+                if (insertables.get(i).getInsertionFilter() != filters[i]) {
+                    unchanged = false;
+                    break;
+                }
+            }
+            if (unchanged) {
+                return cachedFilter;
+            }
+        }
+        filters = new FluidFilter[insertables.size()];
+        for (int i = 0; i < filters.length; i++) {
+            filters[i] = insertables.get(i).getInsertionFilter();
+        }
+        cachedFilter = AggregateFluidFilter.anyOf(Arrays.asList(filters));
+        cachedChildFilters = filters;
+        return cachedFilter;
+    }
+
+    @Override
+    public ListenerToken addInsertionFilterListener(
+        FluidInsertionFilterListener listener, ListenerRemovalToken removalToken
+    ) {
+        final ListenerToken[] tokens = new ListenerToken[insertables.size()];
+        final ListenerRemovalToken ourRemToken = new ListenerRemovalToken() {
+
+            boolean hasAlreadyRemoved = false;
+
+            @Override
+            public void onListenerRemoved() {
+                for (ListenerToken token : tokens) {
+                    if (token == null) {
+                        // This means we have only half-initialised
+                        // (and all of the next tokens must also be null)
+                        return;
+                    }
+                    token.removeListener();
+                }
+                if (!hasAlreadyRemoved) {
+                    hasAlreadyRemoved = true;
+                    filterListenerCount--;
+                    removalToken.onListenerRemoved();
+                }
+            }
+        };
+        final FluidInsertable wrapper = this;
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = insertables.get(i).addInsertionFilterListener(insertable -> {
+                cachedChildFilters = null;
+                listener.onInsertionFilterChange(wrapper);
+            }, ourRemToken);
+            if (tokens[i] == null) {
+                for (int j = 0; j < i; j++) {
+                    tokens[j].removeListener();
+                }
+                return null;
+            }
         }
-        return AggregateFluidFilter.anyOf(filters);
+        // A child might have changed before we started listening to it
+        cachedChildFilters = null;
+        filterListenerCount++;
+        return () -> {
+            for (ListenerToken token : tokens) {
+                token.removeListener();
+            }
+        };
     }
 
     @Override
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.fluid.impl;
+
+import alexiil.mc.lib.attributes.Simulation;
+import alexiil.mc.lib.attributes.fluid.FixedFluidInv;
+import alexiil.mc.lib.attributes.fluid.volume.FluidVolume;
+import alexiil.mc.lib.attributes.misc.SlotArrays;
+
+/** The modifiable version of {@link FlatFixedFluidInvView}. */
+public class FlatFixedFluidInv extends FlatFixedFluidInvView implements FixedFluidInv {
+
+    protected FlatFixedFluidInv(FixedFluidInv[] invs, int[] tankInv, int[] tankIndex) {
+        super(invs, tankInv, tankIndex);
+    }
+
+    /** @return An inventory of the given tanks of the given inventory, resolved down to the base inventories. This
+     *         returns a sub or mapped inventory of the base inventory if every tank resolves to the same one, or a flat
+     *         inventory otherwise. */
+    public static FixedFluidInv create(FixedFluidInv inv, int[] tanks) {
+        ResolvedTanks resolved = new ResolvedTanks(inv, tanks);
+        if (resolved.bases.size() == 1) {
+            FixedFluidInv base = (FixedFluidInv) resolved.bases.get(0);
+            int[] baseTanks = resolved.tankIndex;
+            if (base == inv) {
+                // A subclass that we can't look inside, so calling base.getSubInv could just call us again
+                return new MappedFixedFluidInv(inv, baseTanks);
+            }
+            if (SlotArrays.isContiguous(baseTanks)) {
+                return base.getSubInv(baseTanks[0], baseTanks[baseTanks.length - 1] + 1);
+            }
+            return base.getMappedInv(baseTanks);
+        }
+        return new FlatFixedFluidInv(
+            resolved.bases.toArray(new FixedFluidInv[0]), resolved.tankInv, resolved.tankIndex
+        );
+    }
+
+    @Override
+    public boolean setInvFluid(int tank, FluidVolume to, Simulation simulation) {
+        return ((FixedFluidInv) invs[tankInv[tank]]).setInvFluid(tankIndex[tank], to, simulation);
+    }
+
+    @Override
+    public FixedFluidInv getSubInv(int fromIndex, int toIndex) {
+        return (FixedFluidInv) super.getSubInv(fromIndex, toIndex);
+    }
+
+    @Override
+    public FixedFluidInv getMappedInv(int... tanks) {
+        return (FixedFluidInv) super.getMappedInv(tanks);
+    }
+}
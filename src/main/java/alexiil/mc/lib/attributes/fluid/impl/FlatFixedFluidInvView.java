@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.fluid.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import alexiil.mc.lib.attributes.ListenerRemovalToken;
+import alexiil.mc.lib.attributes.ListenerToken;
+import alexiil.mc.lib.attributes.fluid.FixedFluidInv;
+import alexiil.mc.lib.attributes.fluid.FixedFluidInvView;
+import alexiil.mc.lib.attributes.fluid.FluidInvTankChangeListener;
+import alexiil.mc.lib.attributes.fluid.amount.FluidAmount;
+import alexiil.mc.lib.attributes.fluid.filter.FluidFilter;
+import alexiil.mc.lib.attributes.fluid.volume.FluidKey;
+import alexiil.mc.lib.attributes.fluid.volume.FluidVolume;
+import alexiil.mc.lib.attributes.misc.SlotArrays;
+
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+
+/** A {@link FixedFluidInvView} where every tank maps directly to a tank in one of several base inventories.
+ * <p>
+ * This is what sub, mapped, and combined views normalise to when they are nested in each other: every tank is resolved
+ * through all of the (unextended) {@link SubFixedFluidInvView}, {@link MappedFixedFluidInvView},
+ * {@link CombinedFixedFluidInvView}, and {@link FlatFixedFluidInvView} layers when this is created, so accessing a tank
+ * costs the same no matter how deeply the views were nested. */
+public class FlatFixedFluidInvView implements FixedFluidInvView {
+
+    /** Every distinct base inventory, in the order that they were first seen. */
+    protected final FixedFluidInvView[] invs;
+
+    /** The index in {@link #invs} for each exposed tank. */
+    protected final int[] tankInv;
+
+    /** The tank in the base inventory for each exposed tank. */
+    protected final int[] tankIndex;
+
+    /** For each base inventory: the base tank to the exposed tank. */
+    protected final Int2IntMap[] inverseTankMaps;
+
+    protected FlatFixedFluidInvView(FixedFluidInvView[] invs, int[] tankInv, int[] tankIndex) {
+        this.invs = invs;
+        this.tankInv = tankInv;
+        this.tankIndex = tankIndex;
+        inverseTankMaps = new Int2IntMap[invs.length];
+        for (int i = 0; i < invs.length; i++) {
+            inverseTankMaps[i] = new Int2IntOpenHashMap();
+            inverseTankMaps[i].defaultReturnValue(-1);
+        }
+        for (int i = 0; i < tankInv.length; i++) {
+            int prev = inverseTankMaps[tankInv[i]].put(tankIndex[i], i);
+            if (prev != -1) {
+                throw new IllegalStateException(
+                    "Duplicated tank! (Tank " + tankIndex[i] + " of " + invs[tankInv[i]] + " appears at both index "
+                        + prev + " and " + i + ")"
+                );
+            }
+        }
+    }
+
+    /** @return A view of the given tanks of the given inventory, resolved down to the base inventories. This returns a
+     *         sub or mapped view of the base inventory if every tank resolves to the same one, or a flat view
+     *         otherwise. If the given inventory is a {@link FixedFluidInv} then this returns the result of
+     *         {@link FlatFixedFluidInv#create(FixedFluidInv, int[])}. */
+    public static FixedFluidInvView createView(FixedFluidInvView inv, int[] tanks) {
+        if (inv instanceof FixedFluidInv) {
+            return FlatFixedFluidInv.create((FixedFluidInv) inv, tanks);
+        }
+        ResolvedTanks resolved = new ResolvedTanks(inv, tanks);
+        if (resolved.bases.size() == 1) {
+            FixedFluidInvView base = resolved.bases.get(0);
+            int[] baseTanks = resolved.tankIndex;
+            if (base == inv) {
+                // A subclass that we can't look inside, so calling base.getSubInv could just call us again
+                return new MappedFixedFluidInvView(inv, baseTanks);
+            }
+            if (SlotArrays.isContiguous(baseTanks)) {
+                return base.getSubInv(baseTanks[0], baseTanks[baseTanks.length - 1] + 1);
+            }
+            return base.getMappedInv(baseTanks);
+        }
+        return new FlatFixedFluidInvView(
+            resolved.bases.toArray(new FixedFluidInvView[0]), resolved.tankInv, resolved.tankIndex
+        );
+    }
+
+    /** @return True if the given inventory is one of the view types that
+     *         {@link #createView(FixedFluidInvView, int[])} resolves tanks through. */
+    public static boolean isNormalisable(FixedFluidInvView inv) {
+        return isPartial(inv) || CombinedFixedFluidInvView.isFlattenable(inv) || isFlat(inv);
+    }
+
+    /** Only our own classes are resolved through, as subclasses might override the tank access methods. */
+    private static boolean isPartial(FixedFluidInvView inv) {
+        Class<?> cls = inv.getClass();
+        return cls == SubFixedFluidInvView.class || cls == SubFixedFluidInv.class
+            || cls == MappedFixedFluidInvView.class || cls == MappedFixedFluidInv.class;
+    }
+
+    private static boolean isFlat(FixedFluidInvView inv) {
+        Class<?> cls = inv.getClass();
+        return cls == FlatFixedFluidInvView.class || cls == FlatFixedFluidInv.class;
+    }
+
+    /** The result of resolving a list of tanks down to their base inventories. */
+    static final class ResolvedTanks {
+        final List<FixedFluidInvView> bases = new ArrayList<>();
+        final int[] tankInv;
+        final int[] tankIndex;
+
+        ResolvedTanks(FixedFluidInvView inv, int[] tanks) {
+            Reference2IntMap<FixedFluidInvView> baseIndices = new Reference2IntOpenHashMap<>();
+            baseIndices.defaultReturnValue(-1);
+            tankInv = new int[tanks.length];
+            tankIndex = new int[tanks.length];
+            int tankCount = inv.getTankCount();
+            for (int i = 0; i < tanks.length; i++) {
+                int tank = tanks[i];
+                if (tank < 0 || tank >= tankCount) {
+                    throw new IllegalArgumentException(
+                        "Invalid tank index: " + tank + ", as it must be between 0 and the tank count of " + tankCount
+                    );
+                }
+                FixedFluidInvView current = inv;
+                while (true) {
+                    if (isPartial(current)) {
+                        AbstractPartialFixedFluidInvView partial = (AbstractPartialFixedFluidInvView) current;
+                        tank = partial.getInternalTank(tank);
+                        current = partial.inv;
+                    } else if (CombinedFixedFluidInvView.isFlattenable(current)) {
+                        CombinedFixedFluidInvView<?> combined = (CombinedFixedFluidInvView<?>) current;
+                        int leafTank = combined.getLeafTank(tank);
+                        current = combined.getLeafInv(tank);
+                        tank = leafTank;
+                    } else if (isFlat(current)) {
+                        FlatFixedFluidInvView flat = (FlatFixedFluidInvView) current;
+                        current = flat.invs[flat.tankInv[tank]];
+                        tank = flat.tankIndex[tank];
+                    } else {
+                        break;
+                    }
+                }
+                int index = baseIndices.getInt(current);
+                if (index < 0) {
+                    index = bases.size();
+                    bases.add(current);
+                    baseIndices.put(current, index);
+                }
+                tankInv[i] = index;
+                tankIndex[i] = tank;
+            }
+        }
+    }
+
+    @Override
+    public int getTankCount() {
+        return tankInv.length;
+    }
+
+    @Override
+    public FluidVolume getInvFluid(int tank) {
+        return invs[tankInv[tank]].getInvFluid(tankIndex[tank]);
+    }
+
+    @Override
+    public boolean isFluidValidForTank(int tank, FluidKey fluid) {
+        return invs[tankInv[tank]].isFluidValidForTank(tankIndex[tank], fluid);
+    }
+
+    @Override
+    public FluidFilter getFilterForTank(int tank) {
+        return invs[tankInv[tank]].getFilterForTank(tankIndex[tank]);
+    }
+
+    @Override
+    @Deprecated
+    public int getMaxAmount(int tank) {
+        return invs[tankInv[tank]].getMaxAmount(tankIndex[tank]);
+    }
+
+    @Override
+    public FluidAmount getMaxAmount_F(int tank) {
+        return invs[tankInv[tank]].getMaxAmount_F(tankIndex[tank]);
+    }
+
+    @Override
+    public FixedFluidInvView getSubInv(int fromIndex, int toIndex) {
+        if (fromIndex == toIndex) {
+            return EmptyFixedFluidInv.INSTANCE;
+        }
+        if (fromIndex == 0 && toIndex == getTankCount()) {
+            return this;
+        }
+        return createView(this, SlotArrays.range(fromIndex, toIndex));
+    }
+
+    @Override
+    public FixedFluidInvView getMappedInv(int... tanks) {
+        if (tanks.length == 0) {
+            return EmptyFixedFluidInv.INSTANCE;
+        }
+        if (SlotArrays.isIdentity(tanks, getTankCount())) {
+            return this;
+        }
+        return createView(this, tanks);
+    }
+
+    @Override
+    public ListenerToken addListener(FluidInvTankChangeListener listener, ListenerRemovalToken removalToken) {
+        final ListenerToken[] tokens = new ListenerToken[invs.length];
+        final ListenerRemovalToken ourRemToken = new ListenerRemovalToken() {
+
+            boolean hasAlreadyRemoved = false;
+
+            @Override
+            public void onListenerRemoved() {
+                for (ListenerToken token : tokens) {
+                    if (token == null) {
+                        // This means we have only half-initialised
+                        // (and all of the next tokens must also be null)
+                        return;
+                    }
+                    token.removeListener();
+                }
+                if (!hasAlreadyRemoved) {
+                    hasAlreadyRemoved = true;
+                    removalToken.onListenerRemoved();
+                }
+            }
+        };
+        final FixedFluidInvView wrapper = this;
+        for (int i = 0; i < tokens.length; i++) {
+            final int index = i;
+            tokens[i] = invs[i].addListener((inv, baseTank, previous, current) -> {
+                int exposedTank = inverseTankMaps[index].get(baseTank);
+                if (exposedTank >= 0) {
+                    listener.onChange(wrapper, exposedTank, previous, current);
+                }
+            }, ourRemToken);
+            if (tokens[i] == null) {
+                for (int j = 0; j < i; j++) {
+                    tokens[j].removeListener();
+                }
+                return null;
+            }
+        }
+        return () -> {
+            for (ListenerToken token : tokens) {
+                token.removeListener();
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{invs = " + Arrays.toString(invs) + "}";
+    }
+}
@@ -8,8 +8,7 @@
 package alexiil.mc.lib.attributes.fluid.impl;
 
 import java.math.RoundingMode;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 import alexiil.mc.lib.attributes.Simulation;
 import alexiil.mc.lib.attributes.fluid.FixedFluidInv;
@@ -28,6 +27,10 @@ import alexiil.mc.lib.attributes.fluid.volume.FluidVolume;
  * (unless the target inventory has a very small {@link FixedFluidInvView#getTankCount() size}. */
 public class GroupedFluidInvFixedWrapper extends GroupedFluidInvViewFixedWrapper implements GroupedFluidInv {
 
+    /** The tank filters that {@link #cachedFilter} was built from. */
+    private FluidFilter[] cachedFilters;
+    private FluidFilter cachedFilter;
+
     public GroupedFluidInvFixedWrapper(FixedFluidInv inv) {
         super(inv);
     }
@@ -48,15 +51,32 @@ public class GroupedFluidInvFixedWrapper extends GroupedFluidInvViewFixedWrapper
             case 1: {
                 return inv().getFilterForTank(0);
             }
-            case 2: {
-                return inv().getFilterForTank(0).or(inv().getFilterForTank(1));
-            }
             default: {
-                List<FluidFilter> filters = new ArrayList<>(tankCount);
+                FluidFilter[] filters = cachedFilters;
+                if (filters != null && filters.length == tankCount) {
+                    // Tank filters can't notify us of changes, but they're almost always the same object each time
+                    boolean unchanged = true;
+                    for (int i = 0; i < tankCount; i++) {
+                        if (inv().getFilterForTank(i) != filters[i]) {
+                            unchanged = false;
+                            break;
+                        }
+                    }
+                    if (unchanged) {
+                        return cachedFilter;
+                    }
+                }
+                filters = new FluidFilter[tankCount];
                 for (int i = 0; i < tankCount; i++) {
-                    filters.add(inv().getFilterForTank(i));
+                    filters[i] = inv().getFilterForTank(i);
+                }
+                if (tankCount == 2) {
+                    cachedFilter = filters[0].or(filters[1]);
+                } else {
+                    cachedFilter = AggregateFluidFilter.anyOf(Arrays.asList(filters));
                 }
-                return AggregateFluidFilter.anyOf(filters);
+                cachedFilters = filters;
+                return cachedFilter;
             }
         }
     }
@@ -13,6 +13,7 @@ import alexiil.mc.lib.attributes.ListenerRemovalToken;
 import alexiil.mc.lib.attributes.ListenerToken;
 import alexiil.mc.lib.attributes.fluid.FixedFluidInvView;
 import alexiil.mc.lib.attributes.fluid.FluidInvTankChangeListener;
+import alexiil.mc.lib.attributes.misc.SlotArrays;
 
 import it.unimi.dsi.fastutil.ints.Int2IntMap;
 import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
@@ -62,4 +63,26 @@ public class MappedFixedFluidInvView extends AbstractPartialFixedFluidInvView {
             }
         }, removalToken);
     }
+
+    @Override
+    public FixedFluidInvView getSubInv(int fromIndex, int toIndex) {
+        if (fromIndex == toIndex) {
+            return EmptyFixedFluidInv.INSTANCE;
+        }
+        if (fromIndex == 0 && toIndex == getTankCount()) {
+            return this;
+        }
+        return FlatFixedFluidInvView.createView(this, SlotArrays.range(fromIndex, toIndex));
+    }
+
+    @Override
+    public FixedFluidInvView getMappedInv(int... tanks) {
+        if (tanks.length == 0) {
+            return EmptyFixedFluidInv.INSTANCE;
+        }
+        if (SlotArrays.isIdentity(tanks, getTankCount())) {
+            return this;
+        }
+        return FlatFixedFluidInvView.createView(this, tanks);
+    }
 }
@@ -10,6 +10,7 @@ package alexiil.mc.lib.attributes.fluid.impl;
 import alexiil.mc.lib.attributes.Simulation;
 import alexiil.mc.lib.attributes.fluid.FixedFluidInv;
 import alexiil.mc.lib.attributes.fluid.volume.FluidVolume;
+import alexiil.mc.lib.attributes.misc.SlotArrays;
 
 public class SubFixedFluidInv extends SubFixedFluidInvView implements FixedFluidInv {
 
@@ -21,4 +22,26 @@ public class SubFixedFluidInv extends SubFixedFluidInvView implements FixedFluid
     public boolean setInvFluid(int tank, FluidVolume to, Simulation simulation) {
         return ((FixedFluidInv) inv).setInvFluid(getInternalTank(tank), to, simulation);
     }
+
+    @Override
+    public FixedFluidInv getSubInv(int fromIndex, int toIndex) {
+        if (fromIndex == toIndex) {
+            return EmptyFixedFluidInv.INSTANCE;
+        }
+        if (fromIndex == 0 && toIndex == getTankCount()) {
+            return this;
+        }
+        return FlatFixedFluidInv.create(this, SlotArrays.range(fromIndex, toIndex));
+    }
+
+    @Override
+    public FixedFluidInv getMappedInv(int... tanks) {
+        if (tanks.length == 0) {
+            return EmptyFixedFluidInv.INSTANCE;
+        }
+        if (SlotArrays.isIdentity(tanks, getTankCount())) {
+            return this;
+        }
+        return FlatFixedFluidInv.create(this, tanks);
+    }
 }
@@ -11,6 +11,7 @@ import alexiil.mc.lib.attributes.ListenerRemovalToken;
 import alexiil.mc.lib.attributes.ListenerToken;
 import alexiil.mc.lib.attributes.fluid.FixedFluidInvView;
 import alexiil.mc.lib.attributes.fluid.FluidInvTankChangeListener;
+import alexiil.mc.lib.attributes.misc.SlotArrays;
 
 /** A sub-view of an existing {@link FixedFluidInvView}. */
 public class SubFixedFluidInvView extends AbstractPartialFixedFluidInvView {
@@ -63,4 +64,26 @@ public class SubFixedFluidInvView extends AbstractPartialFixedFluidInvView {
             }
         }, removalToken);
     }
+
+    @Override
+    public FixedFluidInvView getSubInv(int fromIndex, int toIndex) {
+        if (fromIndex == toIndex) {
+            return EmptyFixedFluidInv.INSTANCE;
+        }
+        if (fromIndex == 0 && toIndex == getTankCount()) {
+            return this;
+        }
+        return FlatFixedFluidInvView.createView(this, SlotArrays.range(fromIndex, toIndex));
+    }
+
+    @Override
+    public FixedFluidInvView getMappedInv(int... tanks) {
+        if (tanks.length == 0) {
+            return EmptyFixedFluidInv.INSTANCE;
+        }
+        if (SlotArrays.isIdentity(tanks, getTankCount())) {
+            return this;
+        }
+        return FlatFixedFluidInvView.createView(this, tanks);
+    }
 }
@@ -21,6 +21,7 @@ import alexiil.mc.lib.attributes.Simulation;
 import alexiil.mc.lib.attributes.item.filter.ItemFilter;
 import alexiil.mc.lib.attributes.item.impl.CombinedFixedItemInv;
 import alexiil.mc.lib.attributes.item.impl.EmptyFixedItemInv;
+import alexiil.mc.lib.attributes.item.impl.FullFixedItemInv;
 import alexiil.mc.lib.attributes.item.impl.GroupedItemInvFixedWrapper;
 import alexiil.mc.lib.attributes.item.impl.ItemInvModificationTracker;
 import alexiil.mc.lib.attributes.item.impl.MappedFixedItemInv;
@@ -306,6 +307,30 @@ public interface FixedItemInv extends FixedItemInvView {
          *         any way will (most likely - depending on the implementation) throw an exception (at some point). */
         ItemStack getUnmodifiableInvStack(int slot);
 
+        /** {@inheritDoc}
+         * <p>
+         * The default implementation copies {@link #getUnmodifiableInvStack(int)} (once). Implementations that never
+         * modify their stored stacks in-place (and only ever replace them) can override this to wrap them directly
+         * with {@link ItemStackHandle#ofUnmodifiable(ItemStack)} instead, like {@link FullFixedItemInv} does. */
+        @Override
+        default ItemStackHandle getInvStackHandle(int slot) {
+            return ItemStackHandle.copyOf(getUnmodifiableInvStack(slot));
+        }
+
+        /** {@inheritDoc}
+         * <p>
+         * The default implementation visits {@link #getUnmodifiableInvStack(int)}, rather than copying every stack. */
+        @Override
+        default void forEachStack(ItemInvSlotVisitor visitor) {
+            int slotCount = getSlotCount();
+            for (int slot = 0; slot < slotCount; slot++) {
+                ItemStack stack = getUnmodifiableInvStack(slot);
+                if (!stack.isEmpty()) {
+                    visitor.visit(slot, stack);
+                }
+            }
+        }
+
         @Override
         default SingleCopyingItemSlot getSlot(int slot) {
             return new SingleCopyingItemSlot(this, slot);
@@ -24,10 +24,12 @@ import alexiil.mc.lib.attributes.Simulation;
 import alexiil.mc.lib.attributes.item.filter.ItemFilter;
 import alexiil.mc.lib.attributes.item.impl.CombinedFixedItemInvView;
 import alexiil.mc.lib.attributes.item.impl.EmptyFixedItemInv;
+import alexiil.mc.lib.attributes.item.impl.GroupedItemInvFixedWrapper;
 import alexiil.mc.lib.attributes.item.impl.GroupedItemInvViewFixedWrapper;
 import alexiil.mc.lib.attributes.item.impl.MappedFixedItemInvView;
 import alexiil.mc.lib.attributes.item.impl.SubFixedItemInv;
 import alexiil.mc.lib.attributes.item.impl.SubFixedItemInvView;
+import alexiil.mc.lib.attributes.misc.SlotArrays;
 
 /** A view of a fixed inventory for items, where the size of the inventory never changes, and every slot is "simple":
  * <ul>
@@ -96,7 +98,10 @@ public interface FixedItemInvView extends Convertible, AbstractItemInvView {
      * @return An {@link ItemFilter} for what may be present in this slot. If this slot is filtered by an
      *         {@link ItemFilter} internally then it is highly recommended that this be overridden to return
      *         <em>that</em> filter rather than the default opaque wrapper around
-     *         {@link #isItemValidForSlot(int, ItemStack)}.
+     *         {@link #isItemValidForSlot(int, ItemStack)}. Implementations should also return the same object each
+     *         time (while the filter doesn't change), as {@link GroupedItemInvFixedWrapper} only rebuilds its combined
+     *         insertion filter when a slot filter isn't identical to the last one. (The default implementation
+     *         allocates a new filter on every call).
      * @throws RuntimeException if the given slot wasn't a valid index. */
     default ItemFilter getFilterForSlot(int slot) {
         return stack -> isItemValidForSlot(slot, stack);
@@ -139,6 +144,31 @@ public interface FixedItemInvView extends Convertible, AbstractItemInvView {
         };
     }
 
+    /** @return A read-only {@link ItemStackHandle} for the stack in the given slot, which the caller may keep for as
+     *         long as it wants. The default implementation copies {@link #getInvStack(int)}, however inventories
+     *         that never modify their stacks in-place may wrap them without copying.
+     * @throws RuntimeException if the given slot wasn't a valid index. */
+    default ItemStackHandle getInvStackHandle(int slot) {
+        return ItemStackHandle.copyOf(getInvStack(slot));
+    }
+
+    /** Calls the given visitor once for every slot in this inventory that isn't {@link ItemStack#isEmpty() empty}, in
+     * slot order. Unlike {@link #stackIterable()} and {@link #getInvStack(int)} implementations may pass their own
+     * internal stacks to the visitor rather than copies, so bulk scans don't need to allocate anything.
+     * <p>
+     * The default implementation just delegates to {@link #getInvStack(int)}.
+     *
+     * @param visitor The visitor, which must not modify or retain any of the stacks it is given. */
+    default void forEachStack(ItemInvSlotVisitor visitor) {
+        int slotCount = getSlotCount();
+        for (int slot = 0; slot < slotCount; slot++) {
+            ItemStack stack = getInvStack(slot);
+            if (!stack.isEmpty()) {
+                visitor.visit(slot, stack);
+            }
+        }
+    }
+
     /** @return A {@link GroupedItemInvView} of this inventory. */
     default GroupedItemInvView getGroupedInv() {
         return new GroupedItemInvViewFixedWrapper(this);
@@ -182,16 +212,7 @@ public interface FixedItemInvView extends Convertible, AbstractItemInvView {
 
     /** @return True if the given array is equal to [0, 1, 2 ... count-2, count-1]. */
     public static boolean isFlatSlotArray(int[] slots, int count) {
-        if (slots.length == count) {
-            for (int i = 0; i < slots.length; i++) {
-                if (slots[i] != i) {
-                    return false;
-                }
-            }
-            return true;
-        } else {
-            return false;
-        }
+        return SlotArrays.isIdentity(slots, count);
     }
 
     /** Offers this object and {@link #getGroupedInv()} to the attribute list. (Which, in turn, adds
@@ -30,6 +30,17 @@ public interface GroupedItemInvView extends AbstractItemInvView {
      *         won't work correctly! */
     Set<ItemStack> getStoredStacks();
 
+    /** @return A set containing the {@link ItemKey} of every {@link ItemStack} that is stored in this inventory. The
+     *         default implementation converts every stack in {@link #getStoredStacks()}, so implementations that store
+     *         {@link ItemKey}s directly should override this. */
+    default Set<ItemKey> getStoredKeys() {
+        Set<ItemKey> keys = ItemStackCollections.keySet();
+        for (ItemStack stack : getStoredStacks()) {
+            keys.add(ItemKey.of(stack));
+        }
+        return keys;
+    }
+
     /** @param stack The stack to check for. Cannot be {@link ItemStack#isEmpty() empty}.
      * @return The total amount of the given stack that is stored in this inventory. */
     default int getAmount(ItemStack stack) {
@@ -81,6 +92,23 @@ public interface GroupedItemInvView extends AbstractItemInvView {
         return getAmount(ConstantItemFilter.ANYTHING) > 0;
     }
 
+    /** Calls the given visitor once for every item type stored in this inventory, alongside the amount stored. Unlike
+     * {@link #getStoredStacks()} followed by {@link #getAmount(ItemStack)} implementations may visit their internal
+     * entries directly, so bulk scans don't need to look anything up or allocate anything.
+     * <p>
+     * (This isn't named "forEachStack" as inventories that are both fixed and grouped would make lambdas passed to
+     * {@link FixedItemInvView#forEachStack(ItemInvSlotVisitor)} ambiguous).
+     *
+     * @param visitor The visitor, which must not modify or retain any of the stacks it is given. */
+    default void forEachAmount(ItemInvAmountVisitor visitor) {
+        for (ItemStack stack : getStoredStacks()) {
+            int amount = getAmount(stack);
+            if (amount > 0) {
+                visitor.visit(stack, amount);
+            }
+        }
+    }
+
     @Override
     default ListenerToken addListener(InvMarkDirtyListener listener, ListenerRemovalToken removalToken) {
         return addListener(new ItemInvAmountChangeListener.MarkDirtyWrapper(listener), removalToken);
@@ -142,6 +170,16 @@ public interface GroupedItemInvView extends AbstractItemInvView {
                 return Collections.unmodifiableSet(real.getStoredStacks());
             }
 
+            @Override
+            public Set<ItemKey> getStoredKeys() {
+                return Collections.unmodifiableSet(real.getStoredKeys());
+            }
+
+            @Override
+            public void forEachAmount(ItemInvAmountVisitor visitor) {
+                real.forEachAmount(visitor);
+            }
+
             @Override
             public ItemInvStatistic getStatistics(ItemFilter filter) {
                 return real.getStatistics(filter);
@@ -242,6 +242,12 @@ public final class ItemAttributes {
             return getInvStack(slot);
         }
 
+        @Override
+        public ItemStackHandle getInvStackHandle(int slot) {
+            // Same as above: nothing else has a reference to the stack, so it doesn't need to be copied
+            return ItemStackHandle.ofUnmodifiable(getInvStack(slot));
+        }
+
         @Override
         public boolean isItemValidForSlot(int slot, ItemStack stack) {
             // Check for grouped item inv because everything else boils down to this
@@ -0,0 +1,297 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.item;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import net.minecraft.item.ItemStack;
+
+import alexiil.mc.lib.attributes.Simulation;
+import alexiil.mc.lib.attributes.item.filter.ExactItemStackFilter;
+import alexiil.mc.lib.attributes.item.filter.ItemFilter;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+/** A list of (filter, amount) requirements that are extracted from an inventory together: either every requirement is
+ * fully met, or nothing is extracted at all. This is intended for auto-crafters, which would otherwise have to
+ * simulate an extraction for every ingredient, and then extract them one by one afterwards.
+ * <p>
+ * The inventory is only scanned once, and every stored stack (or slot) is assigned to the first requirement (in the
+ * order they were {@link #add(ItemFilter, int) added}) that matches it and still needs more items. As such if one
+ * filter is a subset of another then the more specific requirement should be added first: for example "2 oak planks"
+ * before "4 of any plank".
+ * <p>
+ * Requests can be reused: they don't hold any state between calls to {@link #extract(GroupedItemInv, Simulation)}
+ * or {@link #extractFromSlots(FixedItemInv, Simulation)}. */
+public final class ItemExtractionRequest {
+
+    private final List<ItemFilter> filters = new ArrayList<>();
+    private final IntArrayList amounts = new IntArrayList();
+
+    public ItemExtractionRequest() {}
+
+    /** Adds a requirement for the given number of items that match the given filter.
+     *
+     * @return this. */
+    public ItemExtractionRequest add(ItemFilter filter, int amount) {
+        if (filter == null) {
+            throw new NullPointerException("filter");
+        }
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Amount must be positive, but was " + amount);
+        }
+        filters.add(filter);
+        amounts.add(amount);
+        return this;
+    }
+
+    public int getRequirementCount() {
+        return filters.size();
+    }
+
+    public ItemFilter getFilter(int requirement) {
+        return filters.get(requirement);
+    }
+
+    public int getAmount(int requirement) {
+        return amounts.getInt(requirement);
+    }
+
+    // #######################
+    // Grouped inventories
+    // #######################
+
+    /** @return True if {@link #extract(GroupedItemInv, Simulation)} would succeed. */
+    public boolean canExtract(GroupedItemInv inv) {
+        return plan(inv) != null;
+    }
+
+    /** Extracts every requirement from the given inventory, or nothing if any of them can't be fully met.
+     *
+     * @return Every stack that was extracted (or would be, if simulating) in requirement order, or null if nothing was
+     *         extracted. Each requirement may produce several stacks: one for every distinct item that matched it, and
+     *         more if the amount is bigger than {@link ItemStack#getMaxCount()}. Simulations can only check the first
+     *         {@link ItemStack#getMaxCount()} items of each planned stack, so if the inventory stops giving out items
+     *         partway through then everything that was already extracted is inserted back into it, and this returns
+     *         null.
+     * @throws IllegalStateException if the inventory refused to take back the items that were already extracted
+     *             after it stopped giving out items. Like
+     *             {@link ItemInvUtil#move(ItemExtractable, ItemInsertable, ItemFilter, int)} this means that the
+     *             inventory is broken, and has lost the items listed in the exception message. */
+    @Nullable
+    public List<ItemStack> extract(GroupedItemInv inv, Simulation simulation) {
+        GroupedPlan plan = plan(inv);
+        if (plan == null) {
+            return null;
+        }
+        List<ItemStack> extracted = new ArrayList<>();
+        for (int requirement = 0; requirement < filters.size(); requirement++) {
+            for (int i = 0; i < plan.stacks.size(); i++) {
+                if (plan.requirements.getInt(i) != requirement) {
+                    continue;
+                }
+                ItemStack planned = plan.stacks.get(i);
+                if (simulation.isSimulate()) {
+                    addSplit(extracted, planned);
+                    continue;
+                }
+                ItemFilter exact = new ExactItemStackFilter(planned);
+                int left = planned.getCount();
+                while (left > 0) {
+                    ItemStack stack = inv.attemptExtraction(exact, left, Simulation.ACTION);
+                    if (stack.isEmpty()) {
+                        reinsert(inv, extracted);
+                        return null;
+                    }
+                    left -= stack.getCount();
+                    extracted.add(stack);
+                }
+            }
+        }
+        return extracted;
+    }
+
+    /** Inserts every stack that was extracted back into the inventory, after it stopped giving out items partway
+     * through {@link #extract(GroupedItemInv, Simulation)}. */
+    private static void reinsert(GroupedItemInv inv, List<ItemStack> extracted) {
+        List<ItemStack> lost = new ArrayList<>();
+        for (ItemStack stack : extracted) {
+            ItemStack excess = inv.insert(stack);
+            if (!excess.isEmpty()) {
+                lost.add(excess);
+            }
+        }
+        if (!lost.isEmpty()) {
+            throw new IllegalStateException(
+                "Tried to insert " + extracted + " back into " + inv + " after it stopped giving out items, but it"
+                    + " refused to take back " + lost + "!\nThe inventory is now in an invalid state!"
+            );
+        }
+    }
+
+    @Nullable
+    private GroupedPlan plan(GroupedItemInv inv) {
+        int[] remaining = amounts.toIntArray();
+        GroupedPlan plan = new GroupedPlan();
+        inv.forEachAmount((stack, amount) -> {
+            for (int requirement = 0; requirement < remaining.length && amount > 0; requirement++) {
+                if (remaining[requirement] > 0 && filters.get(requirement).matches(stack)) {
+                    int taken = Math.min(remaining[requirement], amount);
+                    remaining[requirement] -= taken;
+                    amount -= taken;
+                    ItemStack copy = stack.copy();
+                    copy.setCount(taken);
+                    plan.stacks.add(copy);
+                    plan.requirements.add(requirement);
+                }
+            }
+        });
+        for (int left : remaining) {
+            if (left > 0) {
+                return null;
+            }
+        }
+        // forEachAmount reports what is stored, not what can be extracted, so check that every
+        // planned stack is actually available. Simulations can't see past the first full stack, so
+        // extract() still has to put everything back if the inventory runs out after that.
+        for (ItemStack planned : plan.stacks) {
+            int expected = Math.min(planned.getCount(), planned.getMaxCount());
+            ItemStack simulated
+                = inv.attemptExtraction(new ExactItemStackFilter(planned), expected, Simulation.SIMULATE);
+            if (simulated.getCount() < expected) {
+                return null;
+            }
+        }
+        return plan;
+    }
+
+    private static final class GroupedPlan {
+        final List<ItemStack> stacks = new ArrayList<>();
+        final IntArrayList requirements = new IntArrayList();
+    }
+
+    // #######################
+    // Fixed inventories
+    // #######################
+
+    /** @return True if {@link #extractFromSlots(FixedItemInv, Simulation)} would succeed. */
+    public boolean canExtractFromSlots(FixedItemInv inv) {
+        return plan(inv) != null;
+    }
+
+    /** Extracts every requirement from the given inventory, or nothing if any of them can't be fully met. Unlike
+     * {@link #extract(GroupedItemInv, Simulation)} this extracts directly from individual slots, using
+     * {@link FixedItemInv#extractStack(int, ItemFilter, ItemStack, int, Simulation)}.
+     * <p>
+     * (This isn't an overload of "extract", as inventories that are both fixed and grouped would make calls to it
+     * ambiguous).
+     *
+     * @return Every stack that was extracted (or would be, if simulating) in requirement order, or null if nothing was
+     *         extracted. Stacks taken from different slots for the same requirement are merged where possible.
+     * @throws IllegalStateException if a slot didn't allow extracting as many items as a simulation said it would. */
+    @Nullable
+    public List<ItemStack> extractFromSlots(FixedItemInv inv, Simulation simulation) {
+        IntArrayList plan = plan(inv);
+        if (plan == null) {
+            return null;
+        }
+        List<ItemStack> extracted = new ArrayList<>();
+        for (int requirement = 0; requirement < filters.size(); requirement++) {
+            int firstOfRequirement = extracted.size();
+            for (int i = 0; i < plan.size(); i += 3) {
+                if (plan.getInt(i) != requirement) {
+                    continue;
+                }
+                int slot = plan.getInt(i + 1);
+                int count = plan.getInt(i + 2);
+                ItemStack stack = inv.extractStack(slot, null, ItemStack.EMPTY, count, simulation);
+                if (stack.getCount() != count) {
+                    throw new IllegalStateException(
+                        "Tried to extract " + count + " from slot " + slot + " of " + inv + ", but it returned "
+                            + stack + " after we already extracted " + extracted
+                            + "!\nThe inventory is now in an invalid state!"
+                    );
+                }
+                merge(extracted, firstOfRequirement, stack);
+            }
+        }
+        return extracted;
+    }
+
+    /** @return A flat list of (requirement, slot, count) triples, or null if the requirements can't be met. */
+    @Nullable
+    private IntArrayList plan(FixedItemInv inv) {
+        int[] remaining = amounts.toIntArray();
+        IntArrayList plan = new IntArrayList();
+        inv.forEachStack((slot, stack) -> {
+            int available = -1;
+            for (int requirement = 0; requirement < remaining.length && available != 0; requirement++) {
+                if (remaining[requirement] > 0 && filters.get(requirement).matches(stack)) {
+                    if (available < 0) {
+                        // Only ask the slot how much can be extracted once something actually wants it
+                        available = inv.extractStack(slot, null, ItemStack.EMPTY, stack.getCount(), Simulation.SIMULATE)
+                            .getCount();
+                        if (available == 0) {
+                            break;
+                        }
+                    }
+                    int taken = Math.min(remaining[requirement], available);
+                    remaining[requirement] -= taken;
+                    available -= taken;
+                    plan.add(requirement);
+                    plan.add(slot);
+                    plan.add(taken);
+                }
+            }
+        });
+        for (int left : remaining) {
+            if (left > 0) {
+                return null;
+            }
+        }
+        return plan;
+    }
+
+    // #######################
+    // Private Util
+    // #######################
+
+    /** Adds the given planned stack to the list, split into stacks no bigger than {@link ItemStack#getMaxCount()}. */
+    private static void addSplit(List<ItemStack> to, ItemStack planned) {
+        int left = planned.getCount();
+        int max = planned.getMaxCount();
+        while (left > 0) {
+            ItemStack stack = planned.copy();
+            stack.setCount(Math.min(left, max));
+            left -= stack.getCount();
+            to.add(stack);
+        }
+    }
+
+    /** Merges the given stack into the first existing stack (from the given index onwards) that it fits into, or adds
+     * it to the end of the list. */
+    private static void merge(List<ItemStack> to, int from, ItemStack stack) {
+        for (int i = from; i < to.size() && !stack.isEmpty(); i++) {
+            ItemStack existing = to.get(i);
+            if (!ItemStackUtil.areEqualIgnoreAmounts(existing, stack)) {
+                continue;
+            }
+            int moved = Math.min(stack.getCount(), existing.getMaxCount() - existing.getCount());
+            if (moved > 0) {
+                existing.increment(moved);
+                stack.decrement(moved);
+            }
+        }
+        if (!stack.isEmpty()) {
+            to.add(stack);
+        }
+    }
+}
@@ -9,6 +9,8 @@ package alexiil.mc.lib.attributes.item;
 
 import net.minecraft.item.ItemStack;
 
+import alexiil.mc.lib.attributes.ListenerRemovalToken;
+import alexiil.mc.lib.attributes.ListenerToken;
 import alexiil.mc.lib.attributes.Simulation;
 import alexiil.mc.lib.attributes.item.filter.ItemFilter;
 import alexiil.mc.lib.attributes.item.filter.ItemInsertableFilter;
@@ -82,6 +84,20 @@ public interface ItemInsertable extends LimitedConsumer<ItemStack> {
         return new ItemInsertableFilter(this);
     }
 
+    /** Adds a listener that will be called whenever the {@link #getInsertionFilter()} of this insertable might have
+     * changed. This is optional: insertables that can't detect changes to their filter should return null, in which
+     * case callers should assume that the filter could change at any time.
+     * 
+     * @param removalToken A token that will be called whenever the given listener is removed from this insertable (or
+     *            if this insertable is unloaded or otherwise no longer available).
+     * @return A token that represents the listener, or null if this insertable doesn't support filter change
+     *         listeners. */
+    default ListenerToken addInsertionFilterListener(
+        ItemInsertionFilterListener listener, ListenerRemovalToken removalToken
+    ) {
+        return null;
+    }
+
     default ItemInsertable filtered(ItemFilter filter) {
         return new FilteredItemInsertable(this, filter);
     }
@@ -100,6 +116,16 @@ public interface ItemInsertable extends LimitedConsumer<ItemStack> {
             public ItemFilter getInsertionFilter() {
                 return delegate.getInsertionFilter();
             }
+
+            @Override
+            public ListenerToken addInsertionFilterListener(
+                ItemInsertionFilterListener listener, ListenerRemovalToken removalToken
+            ) {
+                ItemInsertable wrapper = this;
+                return delegate.addInsertionFilterListener(
+                    i -> listener.onInsertionFilterChange(wrapper), removalToken
+                );
+            }
         };
     }
 }
@@ -0,0 +1,18 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.item;
+
+/** Listener {@link FunctionalInterface} for
+ * {@link ItemInsertable#addInsertionFilterListener(ItemInsertionFilterListener, alexiil.mc.lib.attributes.ListenerRemovalToken)}. */
+@FunctionalInterface
+public interface ItemInsertionFilterListener {
+
+    /** @param insertable The insertable whose {@link ItemInsertable#getInsertionFilter()} might have changed - this is
+     *            always the object that you registered the listener with, and never any delegate insertables! */
+    void onInsertionFilterChange(ItemInsertable insertable);
+}
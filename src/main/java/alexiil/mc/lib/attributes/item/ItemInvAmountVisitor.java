@@ -0,0 +1,21 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.item;
+
+import net.minecraft.item.ItemStack;
+
+/** Read-only visitor {@link FunctionalInterface} for {@link GroupedItemInvView#forEachAmount(ItemInvAmountVisitor)}. */
+@FunctionalInterface
+public interface ItemInvAmountVisitor {
+
+    /** @param stack A stack of the item type. Like {@link GroupedItemInvView#getStoredStacks()} the count of this stack
+     *            is meaningless, and it may be the exact object held by the inventory: so it must <em>not</em> be
+     *            modified, and it must not be retained after this method returns.
+     * @param amount The number of items of the given type stored in the inventory. This is always greater than 0. */
+    void visit(ItemStack stack, int amount);
+}
@@ -0,0 +1,21 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.item;
+
+import net.minecraft.item.ItemStack;
+
+/** Read-only visitor {@link FunctionalInterface} for {@link FixedItemInvView#forEachStack(ItemInvSlotVisitor)}. */
+@FunctionalInterface
+public interface ItemInvSlotVisitor {
+
+    /** @param slot The slot index that the stack is stored in.
+     * @param stack The {@link ItemStack} held in the slot. This will never be {@link ItemStack#isEmpty() empty}, but it
+     *            may be the exact object held by the inventory: so it must <em>not</em> be modified, and it must not
+     *            be retained after this method returns. ({@link ItemStack#copy() Copy} it if you need to keep it). */
+    void visit(int slot, ItemStack stack);
+}
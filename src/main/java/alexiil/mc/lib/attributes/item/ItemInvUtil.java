@@ -19,7 +19,6 @@ import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.util.Hand;
 
 import alexiil.mc.lib.attributes.Simulation;
-import alexiil.mc.lib.attributes.item.FixedItemInv.CopyingFixedItemInv;
 import alexiil.mc.lib.attributes.item.filter.AggregateItemFilter;
 import alexiil.mc.lib.attributes.item.filter.ConstantItemFilter;
 import alexiil.mc.lib.attributes.item.filter.ItemFilter;
@@ -190,15 +189,7 @@ public final class ItemInvUtil {
 
     /** Copies every {@link ItemStack} held in the given inventory to the given {@link List}. */
     public static void copyAll(FixedItemInvView inv, List<ItemStack> dest) {
-        for (int slot = 0; slot < inv.getSlotCount(); slot++) {
-            ItemStack stack = inv.getInvStack(slot);
-            if (!(inv instanceof CopyingFixedItemInv)) {
-                stack = stack.copy();
-            }
-            if (!stack.isEmpty()) {
-                dest.add(stack);
-            }
-        }
+        inv.forEachStack((slot, stack) -> dest.add(stack.copy()));
     }
 
     // #######################
@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.item;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nullable;
+
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.CompoundTag;
+
+/** An immutable, interned combination of an {@link Item} and an (optional) {@link CompoundTag}, which identifies an
+ * {@link ItemStack} in the same way as {@link ItemStackUtil#areEqualIgnoreAmounts(ItemStack, ItemStack)}.
+ * <p>
+ * Every {@link ItemKey} is interned, so two keys are {@link #equals(Object) equal} if, and only if, they are the same
+ * object. The hash code is computed once, when the key is created, which makes these much cheaper to use as map keys
+ * than {@link ItemStack}s with {@link ItemStackCollections#STRATEGY_IGNORE_AMOUNT}, as the tag doesn't need to be
+ * re-hashed on every lookup. */
+public final class ItemKey {
+
+    /** The key for {@link ItemStack#EMPTY} (and every other {@link ItemStack#isEmpty() empty} stack). */
+    public static final ItemKey EMPTY = new ItemKey(null, null);
+
+    private static final Map<Item, ItemKey> UNTAGGED_KEYS = new ConcurrentHashMap<>();
+
+    /** Every tagged key, as a weak reference that is both the key and the value. This is queried with a
+     * {@link TaggedLookup} that borrows the stack's tag, so (unlike an {@link com.google.common.collect.Interner}) the
+     * tag only needs to be copied when a new key is actually stored, and lookups never take a global lock. */
+    private static final ConcurrentHashMap<Object, KeyRef> TAGGED_KEYS = new ConcurrentHashMap<>();
+
+    /** Every {@link KeyRef} whose key has been garbage collected, and so needs removing from {@link #TAGGED_KEYS}. */
+    private static final ReferenceQueue<ItemKey> CLEARED_KEYS = new ReferenceQueue<>();
+
+    @Nullable
+    private final Item item;
+
+    /** The tag of this key. This is never exposed directly, as callers could modify it. */
+    @Nullable
+    private final CompoundTag tag;
+
+    private final int hash;
+
+    private ItemKey(Item item, CompoundTag tag) {
+        this(item, tag, item == null ? 0 : System.identityHashCode(item) * 31 + Objects.hashCode(tag));
+    }
+
+    private ItemKey(Item item, CompoundTag tag, int hash) {
+        this.item = item;
+        this.tag = tag;
+        this.hash = hash;
+    }
+
+    /** @return The interned {@link ItemKey} for the given stack, ignoring its {@link ItemStack#getCount() count}. */
+    public static ItemKey of(ItemStack stack) {
+        if (stack == null || stack.isEmpty()) {
+            return EMPTY;
+        }
+        CompoundTag tag = stack.getTag();
+        if (tag == null) {
+            return of(stack.getItem());
+        }
+        // Only used for the lookup, so it never escapes with the stack's (mutable) tag
+        TaggedLookup lookup = new TaggedLookup(stack.getItem(), tag);
+        KeyRef ref = TAGGED_KEYS.get(lookup);
+        ItemKey existing = ref == null ? null : ref.get();
+        if (existing != null) {
+            return existing;
+        }
+        return intern(new ItemKey(lookup.item, tag.copy(), lookup.hash));
+    }
+
+    /** @return The key in {@link #TAGGED_KEYS} that equals the given (new) key, adding it if there isn't one. */
+    private static ItemKey intern(ItemKey key) {
+        removeClearedKeys();
+        KeyRef ref = new KeyRef(key);
+        while (true) {
+            KeyRef previous = TAGGED_KEYS.putIfAbsent(ref, ref);
+            if (previous == null) {
+                return key;
+            }
+            ItemKey existing = previous.get();
+            if (existing != null) {
+                return existing;
+            }
+            // The previous key was collected after it was compared, so remove it and try again
+            TAGGED_KEYS.remove(previous, previous);
+        }
+    }
+
+    private static void removeClearedKeys() {
+        Reference<? extends ItemKey> cleared;
+        while ((cleared = CLEARED_KEYS.poll()) != null) {
+            TAGGED_KEYS.remove(cleared, cleared);
+        }
+    }
+
+    /** @return The interned {@link ItemKey} for the given item, without any tag. */
+    public static ItemKey of(Item item) {
+        if (item == null) {
+            return EMPTY;
+        }
+        return UNTAGGED_KEYS.computeIfAbsent(item, i -> new ItemKey(i, null));
+    }
+
+    public boolean isEmpty() {
+        return item == null;
+    }
+
+    /** @return The {@link Item} of this key, or null if this is {@link #EMPTY}. */
+    @Nullable
+    public Item getItem() {
+        return item;
+    }
+
+    public boolean hasTag() {
+        return tag != null;
+    }
+
+    /** @return A copy of the tag of this key, or null if this key doesn't have a tag. */
+    @Nullable
+    public CompoundTag getTag() {
+        return tag == null ? null : tag.copy();
+    }
+
+    /** @return True if the given stack has the same {@link Item} and {@link CompoundTag} as this key. */
+    public boolean matches(ItemStack stack) {
+        if (stack.isEmpty()) {
+            return item == null;
+        }
+        return stack.getItem() == item && Objects.equals(stack.getTag(), tag);
+    }
+
+    /** @return A new (single-count) {@link ItemStack} for this key. */
+    public ItemStack toStack() {
+        return toStack(1);
+    }
+
+    /** @return A new {@link ItemStack} for this key, with the given count. */
+    public ItemStack toStack(int count) {
+        if (item == null || count <= 0) {
+            return ItemStack.EMPTY;
+        }
+        ItemStack stack = new ItemStack(item, count);
+        if (tag != null) {
+            stack.setTag(tag.copy());
+        }
+        return stack;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        // Only the canonical maps need the full comparison, as every key that escapes this class is interned.
+        if (!(obj instanceof ItemKey)) {
+            return false;
+        }
+        ItemKey other = (ItemKey) obj;
+        return hash == other.hash && item == other.item && Objects.equals(tag, other.tag);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        if (item == null) {
+            return "ItemKey{Empty}";
+        }
+        return "ItemKey{" + item.getTranslationKey() + (tag == null ? "" : " tag = " + tag) + "}";
+    }
+
+    /** A weak reference to a tagged key in {@link #TAGGED_KEYS}. This keeps the key's hash, so that it can still be
+     * found (and removed) after the key has been collected. A collected reference is only equal to itself. */
+    private static final class KeyRef extends WeakReference<ItemKey> {
+        private final int hash;
+
+        KeyRef(ItemKey key) {
+            super(key, CLEARED_KEYS);
+            this.hash = key.hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof KeyRef)) {
+                return false;
+            }
+            ItemKey key = get();
+            return key != null && key.equals(((KeyRef) obj).get());
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /** A temporary key for querying {@link #TAGGED_KEYS}, which borrows the tag of the stack being looked up. (The map
+     * always calls equals on the query, so this only needs to compare itself to a {@link KeyRef}). */
+    private static final class TaggedLookup {
+        final Item item;
+        final CompoundTag tag;
+        final int hash;
+
+        TaggedLookup(Item item, CompoundTag tag) {
+            this.item = item;
+            this.tag = tag;
+            this.hash = System.identityHashCode(item) * 31 + tag.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof KeyRef)) {
+                return false;
+            }
+            ItemKey key = ((KeyRef) obj).get();
+            return key != null && key.hash == hash && key.item == item && tag.equals(key.tag);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -22,24 +22,33 @@ import net.minecraft.util.registry.Registry;
 import it.unimi.dsi.fastutil.Hash.Strategy;
 import it.unimi.dsi.fastutil.objects.Object2IntAVLTreeMap;
 import it.unimi.dsi.fastutil.objects.Object2IntLinkedOpenCustomHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntLinkedOpenHashMap;
 import it.unimi.dsi.fastutil.objects.Object2IntMap;
 import it.unimi.dsi.fastutil.objects.Object2IntOpenCustomHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import it.unimi.dsi.fastutil.objects.Object2IntRBTreeMap;
 import it.unimi.dsi.fastutil.objects.Object2IntSortedMap;
 import it.unimi.dsi.fastutil.objects.Object2ObjectAVLTreeMap;
 import it.unimi.dsi.fastutil.objects.Object2ObjectLinkedOpenCustomHashMap;
+import it.unimi.dsi.fastutil.objects.Object2ObjectLinkedOpenHashMap;
 import it.unimi.dsi.fastutil.objects.Object2ObjectOpenCustomHashMap;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.objects.Object2ObjectRBTreeMap;
 import it.unimi.dsi.fastutil.objects.ObjectAVLTreeSet;
 import it.unimi.dsi.fastutil.objects.ObjectLinkedOpenCustomHashSet;
+import it.unimi.dsi.fastutil.objects.ObjectLinkedOpenHashSet;
 import it.unimi.dsi.fastutil.objects.ObjectOpenCustomHashSet;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
 import it.unimi.dsi.fastutil.objects.ObjectRBTreeSet;
 import it.unimi.dsi.fastutil.objects.ObjectSortedSet;
 
 /** Utility methods for creating {@link Map}'s and {@link Set}'s based on {@link ItemStack}'s.
  * <p>
  * Every set or map factory method will produce a set of map using {@link #STRATEGY_IGNORE_AMOUNT} or
- * {@link #COMPARATOR_IGNORE_AMOUNT}, rather than their exact versions. */
+ * {@link #COMPARATOR_IGNORE_AMOUNT}, rather than their exact versions.
+ * <p>
+ * The "key" factory methods produce sets and maps of {@link ItemKey}s instead, which don't need a custom hash strategy
+ * as every {@link ItemKey} is interned and caches its own hash. */
 public enum ItemStackCollections {
     ;
 
@@ -245,4 +254,55 @@ public enum ItemStackCollections {
     public static Object2IntAVLTreeMap<ItemStack> intAvlTreeMap() {
         return new Object2IntAVLTreeMap<>(COMPARATOR_IGNORE_AMOUNT);
     }
+
+    // ########
+    //
+    // Item Keys
+    //
+    // ########
+
+    /** Creates a set that can store {@link ItemKey}s.
+     * <p>
+     * The current implementation delegates to {@link #keyOpenHashSet()}. */
+    public static Set<ItemKey> keySet() {
+        return keyOpenHashSet();
+    }
+
+    public static ObjectOpenHashSet<ItemKey> keyOpenHashSet() {
+        return new ObjectOpenHashSet<>();
+    }
+
+    public static ObjectLinkedOpenHashSet<ItemKey> keyOpenLinkedHashSet() {
+        return new ObjectLinkedOpenHashSet<>();
+    }
+
+    /** Creates a {@link Map} that can map {@link ItemKey}s to objects.
+     * <p>
+     * The current implementation delegates to {@link #keyHashMap()}. */
+    public static <V> Map<ItemKey, V> keyMap() {
+        return keyHashMap();
+    }
+
+    public static <V> Object2ObjectOpenHashMap<ItemKey, V> keyHashMap() {
+        return new Object2ObjectOpenHashMap<>();
+    }
+
+    public static <V> Object2ObjectLinkedOpenHashMap<ItemKey, V> keyLinkedHashMap() {
+        return new Object2ObjectLinkedOpenHashMap<>();
+    }
+
+    /** Creates a {@link Map} that can map {@link ItemKey}s to ints.
+     * <p>
+     * The current implementation delegates to {@link #keyIntHashMap()}. */
+    public static Object2IntMap<ItemKey> keyIntMap() {
+        return keyIntHashMap();
+    }
+
+    public static Object2IntOpenHashMap<ItemKey> keyIntHashMap() {
+        return new Object2IntOpenHashMap<>();
+    }
+
+    public static Object2IntLinkedOpenHashMap<ItemKey> keyIntLinkedHashMap() {
+        return new Object2IntLinkedOpenHashMap<>();
+    }
 }
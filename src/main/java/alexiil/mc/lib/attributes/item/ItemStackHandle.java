@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.item;
+
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+
+import alexiil.mc.lib.attributes.item.FixedItemInv.CopyingFixedItemInv;
+import alexiil.mc.lib.attributes.item.filter.ItemFilter;
+
+/** A read-only handle to an {@link ItemStack}, which (unlike {@link ItemStack} itself) is safe to hand out and retain
+ * without copying. A real, mutable {@link ItemStack} is only created when {@link #toMutableStack()} is called.
+ * <p>
+ * Handles are immutable snapshots: the wrapped stack is never modified, so a handle returned by
+ * {@link FixedItemInvView#getInvStackHandle(int)} keeps describing the stack that was in the slot at the time, even if
+ * the inventory changes afterwards. */
+public final class ItemStackHandle {
+
+    public static final ItemStackHandle EMPTY = new ItemStackHandle(ItemStack.EMPTY);
+
+    /** The wrapped stack. This must never be modified, or exposed to anything that could modify it. */
+    private final ItemStack stack;
+
+    private ItemKey key;
+
+    private ItemStackHandle(ItemStack stack) {
+        this.stack = stack;
+    }
+
+    /** @return A handle to a copy of the given stack. */
+    public static ItemStackHandle copyOf(ItemStack stack) {
+        if (stack.isEmpty()) {
+            return EMPTY;
+        }
+        return new ItemStackHandle(stack.copy());
+    }
+
+    /** @param stack A stack that will never be modified again, by anything. (For example a stack returned by
+     *            {@link CopyingFixedItemInv#getUnmodifiableInvStack(int)} from an inventory that always replaces
+     *            stacks rather than modifying them).
+     * @return A handle that wraps the given stack directly, without copying it. */
+    public static ItemStackHandle ofUnmodifiable(ItemStack stack) {
+        if (stack.isEmpty()) {
+            return EMPTY;
+        }
+        return new ItemStackHandle(stack);
+    }
+
+    /** @return True if this handle wraps exactly the given stack object. This is intended for inventories that cache
+     *         handles, to check if they are still up-to-date. */
+    public boolean isBackedBy(ItemStack other) {
+        return stack == other;
+    }
+
+    public boolean isEmpty() {
+        return stack.isEmpty();
+    }
+
+    public Item getItem() {
+        return stack.getItem();
+    }
+
+    public int getCount() {
+        return stack.isEmpty() ? 0 : stack.getCount();
+    }
+
+    public int getMaxCount() {
+        return stack.getMaxCount();
+    }
+
+    public boolean hasTag() {
+        return !stack.isEmpty() && stack.getTag() != null;
+    }
+
+    /** @return The {@link ItemKey} for the stack. This is computed once, and then cached. */
+    public ItemKey getKey() {
+        ItemKey k = key;
+        if (k == null) {
+            key = k = ItemKey.of(stack);
+        }
+        return k;
+    }
+
+    /** @return True if the given filter matches the stack. The filter is given the wrapped stack directly, so (as with
+     *         every other use of {@link ItemFilter#matches(ItemStack)}) it must not modify it. */
+    public boolean matches(ItemFilter filter) {
+        return filter.matches(stack);
+    }
+
+    /** @return The result of {@link ItemStackUtil#areEqualIgnoreAmounts(ItemStack, ItemStack)} with the given stack. */
+    public boolean isEqualIgnoreAmounts(ItemStack other) {
+        return ItemStackUtil.areEqualIgnoreAmounts(stack, other);
+    }
+
+    /** @return A new {@link ItemStack} that the caller is free to modify. */
+    public ItemStack toMutableStack() {
+        return stack.copy();
+    }
+
+    /** @return A new {@link ItemStack} that the caller is free to modify, with the given count. */
+    public ItemStack toMutableStack(int count) {
+        if (count <= 0 || stack.isEmpty()) {
+            return ItemStack.EMPTY;
+        }
+        ItemStack copy = stack.copy();
+        copy.setCount(count);
+        return copy;
+    }
+
+    @Override
+    public String toString() {
+        return "ItemStackHandle{" + stack + "}";
+    }
+}
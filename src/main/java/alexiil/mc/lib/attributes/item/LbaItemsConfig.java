@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.item;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+import net.fabricmc.loader.api.FabricLoader;
+
+import alexiil.mc.lib.attributes.misc.LibBlockAttributes;
+
+/** Stores various options for LBA-items. As LBA doesn't ship with a config library these are all stored in
+ * config/libblockattributes_items.txt, in {@link Properties} format. */
+public final class LbaItemsConfig {
+    private static final String FILE_NAME = LibBlockAttributes.MODID_ITEMS + ".txt";
+
+    /** The maximum number of items that a hopper moves in a single operation when it's inserting into (or extracting
+     * from) an LBA inventory. The hopper's cooldown is multiplied by the number of items actually moved, so the average
+     * throughput is the same as vanilla, but the attribute lookup and transfer are only paid once per batch.
+     * <p>
+     * This is 1 (the vanilla behaviour) by default, or {@link Integer#MAX_VALUE} if hoppers should move a full stack. */
+    public static final int HOPPER_TRANSFER_COUNT;
+
+    static {
+        FabricLoader fabric = FabricLoader.getInstance();
+        final Path cfgDir;
+        if (fabric.getGameDirectory() == null) {
+            // Can happen during a JUnit test
+            cfgDir = Paths.get("config");
+        } else {
+            cfgDir = fabric.getGameDirectory().toPath();
+        }
+        if (!Files.isDirectory(cfgDir)) {
+            try {
+                Files.createDirectories(cfgDir);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to create the config directory! (" + cfgDir + ")", e);
+            }
+        }
+        Path cfgFile = cfgDir.resolve(FILE_NAME);
+        Properties props = new Properties();
+        if (Files.exists(cfgFile)) {
+            try (Reader reader = Files.newBufferedReader(cfgFile, StandardCharsets.UTF_8)) {
+                props.load(reader);
+            } catch (IOException e) {
+                LibBlockAttributes.LOGGER.error("Failed to read the config file!", e);
+            }
+        }
+        boolean hasAll = true;
+
+        hasAll &= props.containsKey("hopper_transfer_count");
+        HOPPER_TRANSFER_COUNT = parseTransferCount(props.getProperty("hopper_transfer_count", "1"));
+
+        if (!hasAll) {
+            try (Writer fw = Files.newBufferedWriter(cfgFile, StandardCharsets.UTF_8)) {
+                fw.append("# LibBlockAttributes options file (items module)\n");
+                fw.append("# Removing an option will reset it back to the default value\n");
+                fw.append("# Removing or altering comments doesn't replace them.\n\n");
+
+                if (!props.containsKey("hopper_transfer_count")) {
+                    fw.append("# The maximum number of items that hoppers move at once into or out of LBA inventories,\n");
+                    fw.append("# or 'stack' to move a full stack. The hopper's cooldown is multiplied by the number of\n");
+                    fw.append("# items moved, so hoppers don't move items any faster on average. For example:\n");
+                    fw.append("#  1:     Move one item every 8 ticks (the same as vanilla)\n");
+                    fw.append("#  8:     Move up to 8 items, and then wait for 8 ticks per item moved\n");
+                    fw.append("hopper_transfer_count=1\n\n");
+                }
+
+            } catch (IOException e) {
+                LibBlockAttributes.LOGGER.warn("[config] Failed to write the config file!", e);
+            }
+        }
+    }
+
+    private LbaItemsConfig() {}
+
+    private static int parseTransferCount(String value) {
+        value = value.trim();
+        if ("stack".equalsIgnoreCase(value)) {
+            return Integer.MAX_VALUE;
+        }
+        try {
+            int count = Integer.parseInt(value);
+            if (count >= 1) {
+                return count;
+            }
+        } catch (NumberFormatException e) {
+            // Handled below
+        }
+        LibBlockAttributes.LOGGER.warn(
+            "[config] Invalid hopper_transfer_count '" + value + "', expected a positive number or 'stack'"
+        );
+        return 1;
+    }
+}
@@ -34,6 +34,11 @@ public class SingleItemSlotView {
         return backingView.getInvStack(slot);
     }
 
+    /** @return A read-only handle to the stack in this slot. See {@link FixedItemInvView#getInvStackHandle(int)}. */
+    public final ItemStackHandle getHandle() {
+        return backingView.getInvStackHandle(slot);
+    }
+
     public final int getMaxAmount(ItemStack stack) {
         return backingView.getMaxAmount(slot, stack);
     }
@@ -7,6 +7,8 @@
  */
 package alexiil.mc.lib.attributes.item.compat;
 
+import javax.annotation.Nullable;
+
 import net.minecraft.inventory.Inventory;
 import net.minecraft.item.ItemStack;
 
@@ -17,6 +19,7 @@ import alexiil.mc.lib.attributes.item.FixedItemInv;
 import alexiil.mc.lib.attributes.item.FixedItemInv.ModifiableFixedItemInv;
 import alexiil.mc.lib.attributes.item.InvMarkDirtyListener;
 import alexiil.mc.lib.attributes.item.ItemStackUtil;
+import alexiil.mc.lib.attributes.item.filter.ItemFilter;
 
 /** An {@link FixedItemInv} that wraps a vanilla {@link Inventory}. */
 public class FixedInventoryVanillaWrapper extends FixedInventoryViewVanillaWrapper implements ModifiableFixedItemInv {
@@ -53,23 +56,61 @@ public class FixedInventoryVanillaWrapper extends FixedInventoryViewVanillaWrapp
         return false;
     }
 
-    // TODO (After LBA for 1.16.2 release) implement this!
-    // @formatter:off
-    /*
+    /** Inserts directly into the stack held by the inventory (like vanilla hoppers do), rather than copying it and
+     * going through {@link #setInvStack(int, ItemStack, Simulation)}. */
+    @Override
+    public ItemStack insertStack(int slot, ItemStack stack, Simulation simulation) {
+        if (stack.isEmpty()) {
+            return ItemStack.EMPTY;
+        }
+        ItemStack inSlot = inv.getStack(slot);
+        int current = inSlot.isEmpty() ? 0 : inSlot.getCount();
+        int addable = Math.min(current + stack.getCount(), getMaxAmount(slot, stack)) - current;
+        if (addable <= 0) {
+            return stack;
+        }
+        if (current > 0 && !ItemStackUtil.areEqualIgnoreAmounts(stack, inSlot)) {
+            return stack;
+        }
+        if (!canInsert(slot, stack)) {
+            return stack;
+        }
+        if (simulation == Simulation.ACTION) {
+            if (current == 0) {
+                ItemStack to = stack.copy();
+                to.setCount(addable);
+                inv.setStack(slot, to);
+            } else {
+                inSlot.increment(addable);
+                inv.markDirty();
+            }
+        }
+        if (addable == stack.getCount()) {
+            return ItemStack.EMPTY;
+        }
+        ItemStack excess = stack.copy();
+        excess.decrement(addable);
+        return excess;
+    }
+
+    /** Extracts with {@link Inventory#removeStack(int, int)}, rather than copying the stack and going through
+     * {@link #setInvStack(int, ItemStack, Simulation)}. */
     @Override
     public ItemStack extractStack(
-        int slot, ItemFilter filter, ItemStack mergeWith, int maxCount, Simulation simulation
+        int slot, @Nullable ItemFilter filter, ItemStack mergeWith, int maxCount, Simulation simulation
     ) {
-        ItemStack inSlot = getInvStack(slot);
-        maxCount = Math.min(inSlot.getCount(), maxCount);
-        if (maxCount < 0 || inSlot.isEmpty()) {
+        ItemStack inSlot = inv.getStack(slot);
+        if (inSlot.isEmpty() || maxCount <= 0) {
             return mergeWith;
         }
         if (!mergeWith.isEmpty()) {
             if (!ItemStackUtil.areEqualIgnoreAmounts(mergeWith, inSlot)) {
                 return mergeWith;
             }
-            maxCount = Math.min(maxCount, inSlot.getMaxCount() - mergeWith.getCount());
+            maxCount = Math.min(maxCount, mergeWith.getMaxCount() - mergeWith.getCount());
+            if (maxCount <= 0) {
+                return mergeWith;
+            }
         }
         if (filter != null && !filter.matches(inSlot)) {
             return mergeWith;
@@ -77,20 +118,28 @@ public class FixedInventoryVanillaWrapper extends FixedInventoryViewVanillaWrapp
         if (!canExtract(slot, inSlot)) {
             return mergeWith;
         }
-    
-        ItemStack removed = inv.removeStack(slot, maxCount);
-    
-        assert ItemStackUtil.areEqualIgnoreAmounts(removed, inSlot);
-        assert removed.getCount() == maxCount;
-    
+        maxCount = Math.min(maxCount, inSlot.getCount());
+
+        ItemStack removed;
+        if (simulation == Simulation.ACTION) {
+            removed = inv.removeStack(slot, maxCount);
+            if (removed.isEmpty()) {
+                return mergeWith;
+            }
+            // removeStack shrinks inSlot in place (so it's empty if the whole slot was taken), but
+            // mergeWith was already checked against it above
+            assert mergeWith.isEmpty() || ItemStackUtil.areEqualIgnoreAmounts(removed, mergeWith);
+        } else {
+            removed = inSlot.copy();
+            removed.setCount(maxCount);
+        }
+
         if (mergeWith.isEmpty()) {
             return removed;
         }
         mergeWith.increment(removed.getCount());
         return mergeWith;
-    //    }
-    */
-    // @formatter:on
+    }
 
     protected boolean canExtract(int slot, ItemStack extractedStack) {
         return true;
@@ -12,11 +12,17 @@ import net.minecraft.item.ItemStack;
 
 import alexiil.mc.lib.attributes.item.FixedItemInv;
 import alexiil.mc.lib.attributes.item.FixedItemInvView;
+import alexiil.mc.lib.attributes.item.ItemInvSlotVisitor;
+import alexiil.mc.lib.attributes.item.filter.ItemFilter;
 
 /** An {@link FixedItemInv} that wraps a vanilla {@link Inventory}. */
 public class FixedInventoryViewVanillaWrapper implements FixedItemInvView {
     protected final Inventory inv;
 
+    /** Returned by {@link #getFilterForSlot(int)}, so that callers that cache filters by identity can reuse them.
+     * Created lazily, as most wrappers are only used for a single operation. */
+    private ItemFilter[] slotFilters;
+
     public FixedInventoryViewVanillaWrapper(Inventory inv) {
         this.inv = inv;
     }
@@ -35,11 +41,35 @@ public class FixedInventoryViewVanillaWrapper implements FixedItemInvView {
         return inv.getStack(slot);
     }
 
+    @Override
+    public void forEachStack(ItemInvSlotVisitor visitor) {
+        int size = inv.size();
+        for (int slot = 0; slot < size; slot++) {
+            ItemStack stack = inv.getStack(slot);
+            if (!stack.isEmpty()) {
+                visitor.visit(slot, stack);
+            }
+        }
+    }
+
     @Override
     public boolean isItemValidForSlot(int slot, ItemStack item) {
         return inv.isValid(slot, item);
     }
 
+    @Override
+    public ItemFilter getFilterForSlot(int slot) {
+        ItemFilter[] filters = slotFilters;
+        if (filters == null || filters.length != inv.size()) {
+            slotFilters = filters = new ItemFilter[inv.size()];
+        }
+        ItemFilter filter = filters[slot];
+        if (filter == null) {
+            filters[slot] = filter = stack -> isItemValidForSlot(slot, stack);
+        }
+        return filter;
+    }
+
     @Override
     public int getMaxAmount(int slot, ItemStack stack) {
         return Math.min(inv.getMaxCountPerStack(), stack.getMaxCount());
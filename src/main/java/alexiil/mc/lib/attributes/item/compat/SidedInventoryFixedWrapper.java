@@ -27,6 +27,11 @@ public abstract class SidedInventoryFixedWrapper extends InventoryFixedWrapper i
     /** Unlike the int[][] passed into constructors this is always a length 7 array. */
     private int[][] availableSlots;
 
+    /** For every direction (in the same order as {@link #availableSlots}): true for every slot that's available. This
+     * lets {@link #canInsert(int, ItemStack, Direction)} and {@link #canExtract(int, ItemStack, Direction)} check a
+     * slot without searching the slot array. */
+    private boolean[][] slotAvailable;
+
     /** Creates a {@link SidedInventoryFixedWrapper} with all of it's slots exposed in every direction. */
     public SidedInventoryFixedWrapper(FixedItemInv inv) {
         super(inv);
@@ -65,6 +70,7 @@ public abstract class SidedInventoryFixedWrapper extends InventoryFixedWrapper i
      * direction. */
     protected void resetSlotsToAll() {
         availableSlots = createFullArray(inv);
+        rebuildSlotLookup();
     }
 
     /** Discards the current {@link #availableSlots} array and replaces it with the given slot map.
@@ -92,10 +98,9 @@ public abstract class SidedInventoryFixedWrapper extends InventoryFixedWrapper i
                     }
                 }
                 if (slotMap.length == 6) {
-                    availableSlots = new int[][] { slotMap[0], slotMap[1], slotMap[2], slotMap[3], slotMap[4],
-                        slotMap[5], createSingleArray(inv) };
+                    availableSlots = copySlotMap(slotMap, createSingleArray(inv));
                 } else {
-                    availableSlots = slotMap;
+                    availableSlots = copySlotMap(slotMap, null);
                 }
             } else {
                 throw new IllegalArgumentException(
@@ -106,40 +111,78 @@ public abstract class SidedInventoryFixedWrapper extends InventoryFixedWrapper i
         } else {
             availableSlots = createFullArray(inv);
         }
+        rebuildSlotLookup();
     }
 
-    @Override
-    public int[] getAvailableSlots(Direction dir) {
-        return copy(getSlotsInternal(dir));
+    /** Copies every array in the given slot map, so that later changes to them can't make
+     * {@link #getAvailableSlots(Direction)} disagree with {@link #slotAvailable}. Arrays that were shared between
+     * directions stay shared.
+     *
+     * @param nullSide If non-null then this is appended as the 7th (null direction) array. */
+    private static int[][] copySlotMap(int[][] slotMap, int[] nullSide) {
+        int[][] copy = new int[nullSide == null ? slotMap.length : slotMap.length + 1][];
+        for (int i = 0; i < slotMap.length; i++) {
+            int[] existing = null;
+            for (int j = 0; j < i; j++) {
+                if (slotMap[j] == slotMap[i]) {
+                    existing = copy[j];
+                    break;
+                }
+            }
+            copy[i] = existing != null ? existing : slotMap[i].clone();
+        }
+        if (nullSide != null) {
+            copy[slotMap.length] = nullSide;
+        }
+        return copy;
     }
 
-    private int[] getSlotsInternal(Direction dir) {
-        return availableSlots[dir == null ? 6 : dir.ordinal()];
+    private void rebuildSlotLookup() {
+        int slotCount = inv.getSlotCount();
+        slotAvailable = new boolean[availableSlots.length][];
+        for (int i = 0; i < availableSlots.length; i++) {
+            if (i > 0 && availableSlots[i] == availableSlots[i - 1]) {
+                slotAvailable[i] = slotAvailable[i - 1];
+                continue;
+            }
+            boolean[] available = new boolean[slotCount];
+            for (int slot : availableSlots[i]) {
+                available[slot] = true;
+            }
+            slotAvailable[i] = available;
+        }
     }
 
-    private static int[] copy(int[] array) {
-        return Arrays.copyOf(array, array.length);
+    private boolean isSlotAvailable(int slot, Direction dir) {
+        boolean[] available = slotAvailable[dir == null ? 6 : dir.ordinal()];
+        return slot >= 0 && slot < available.length && available[slot];
+    }
+
+    /** {@inheritDoc}
+     * <p>
+     * Like vanilla's own sided inventories this returns the same (precomputed) array every time, rather than a copy,
+     * as this is called for every item that a hopper moves. Callers must not modify it: the slot lookup used by
+     * {@link #canInsert(int, ItemStack, Direction)} and {@link #canExtract(int, ItemStack, Direction)} is built from
+     * a separate copy, so a modified array would no longer match what those allow. (Slot maps passed in to the
+     * constructor or {@link #resetSlotsTo(int[][])} are copied, so changing those afterwards is safe). */
+    @Override
+    public int[] getAvailableSlots(Direction dir) {
+        return availableSlots[dir == null ? 6 : dir.ordinal()];
     }
 
     @Override
     public boolean canInsert(int slot, ItemStack stack, Direction dir) {
-        int[] slots = getSlotsInternal(dir);
-        for (int s : slots) {
-            if (s == slot) {
-                return inv.insertStack(s, stack, Simulation.SIMULATE).isEmpty();
-            }
+        if (!isSlotAvailable(slot, dir)) {
+            return false;
         }
-        return false;
+        return inv.insertStack(slot, stack, Simulation.SIMULATE).isEmpty();
     }
 
     @Override
     public boolean canExtract(int slot, ItemStack stack, Direction dir) {
-        int[] slots = getSlotsInternal(dir);
-        for (int s : slots) {
-            if (s == slot) {
-                return !inv.extractStack(slot, null, ItemStack.EMPTY, 1, Simulation.SIMULATE).isEmpty();
-            }
+        if (!isSlotAvailable(slot, dir)) {
+            return false;
         }
-        return false;
+        return !inv.extractStack(slot, null, ItemStack.EMPTY, 1, Simulation.SIMULATE).isEmpty();
     }
 }
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.item.entity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import net.minecraft.entity.ItemEntity;
+import net.minecraft.item.ItemStack;
+import net.minecraft.util.math.Box;
+import net.minecraft.world.World;
+
+import alexiil.mc.lib.attributes.Simulation;
+import alexiil.mc.lib.attributes.item.ItemInsertable;
+import alexiil.mc.lib.attributes.item.ItemStackUtil;
+
+/** An {@link ItemInsertable} that drops items into the world as {@link ItemEntity}s, like
+ * {@link ItemEntityAttributeUtil#createItemEntityDropper(World, double, double, double)}, but which tops up existing
+ * {@link ItemEntity}s of the same kind within {@link #mergeRadius} of the drop position before spawning new ones.
+ * <p>
+ * Every inserted item is in the world by the time {@link #attemptInsertion(ItemStack, Simulation)} returns, so
+ * nothing is lost if this is discarded (or its chunk unloads) at any point. The nearby entities are only queried once
+ * per tick, and entities spawned by this are added to that list, so every insertion in the same tick merges into the
+ * same entities rather than spawning a new one each time. */
+public class CoalescingItemEntityDropper implements ItemInsertable {
+
+    public final ItemEntitySource source;
+    public final double x, y, z;
+
+    /** The maximum distance (on each axis) that existing item entities can be from the drop position to be topped up
+     * rather than spawning a new entity. 0 disables topping up entirely. */
+    public final double mergeRadius;
+
+    /** The item entities near the drop position, as of {@link #nearbyTick}, or null if they haven't been queried. */
+    private List<ItemEntity> nearby;
+    private long nearbyTick;
+
+    public CoalescingItemEntityDropper(World world, double x, double y, double z, double mergeRadius) {
+        this(ItemEntitySource.of(world), x, y, z, mergeRadius);
+    }
+
+    public CoalescingItemEntityDropper(ItemEntitySource source, double x, double y, double z, double mergeRadius) {
+        this.source = source;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.mergeRadius = mergeRadius;
+    }
+
+    @Override
+    public ItemStack attemptInsertion(ItemStack stack, Simulation simulation) {
+        if (stack.isEmpty() || !simulation.isAction()) {
+            return ItemStack.EMPTY;
+        }
+        List<ItemEntity> entities = getNearbyEntities();
+        int amount = topUp(entities, stack, stack.getCount());
+        int maxCount = stack.getMaxCount();
+        while (amount > 0) {
+            int count = Math.min(amount, maxCount);
+            ItemStack spawned = stack.copy();
+            spawned.setCount(count);
+            ItemEntity entity = source.spawnItemEntity(x, y, z, spawned);
+            if (mergeRadius > 0) {
+                entities.add(entity);
+            }
+            amount -= count;
+        }
+        return ItemStack.EMPTY;
+    }
+
+    private List<ItemEntity> getNearbyEntities() {
+        if (mergeRadius <= 0) {
+            return Collections.emptyList();
+        }
+        long now = source.getTime();
+        if (nearby == null || now != nearbyTick) {
+            double r = mergeRadius;
+            Box box = new Box(x - r, y - r, z - r, x + r, y + r, z + r);
+            nearby = new ArrayList<>(source.getItemEntities(box));
+            nearbyTick = now;
+        }
+        return nearby;
+    }
+
+    /** @return The amount left over after adding as much as possible to the given existing entities. */
+    private static int topUp(List<ItemEntity> entities, ItemStack inserted, int amount) {
+        for (ItemEntity entity : entities) {
+            if (amount <= 0) {
+                break;
+            }
+            if (!entity.isAlive()) {
+                continue;
+            }
+            ItemStack current = entity.getStack();
+            if (current.isEmpty() || !ItemStackUtil.areEqualIgnoreAmounts(current, inserted)) {
+                continue;
+            }
+            int added = Math.min(amount, current.getMaxCount() - current.getCount());
+            if (added <= 0) {
+                continue;
+            }
+            ItemStack stack = current.copy();
+            stack.increment(added);
+            entity.setStack(stack);
+            amount -= added;
+        }
+        return amount;
+    }
+}
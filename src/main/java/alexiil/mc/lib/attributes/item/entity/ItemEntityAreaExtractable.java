@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.item.entity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.minecraft.entity.ItemEntity;
+import net.minecraft.item.ItemStack;
+import net.minecraft.util.math.Box;
+import net.minecraft.world.World;
+
+import alexiil.mc.lib.attributes.Simulation;
+import alexiil.mc.lib.attributes.item.ItemExtractable;
+import alexiil.mc.lib.attributes.item.ItemInsertable;
+import alexiil.mc.lib.attributes.item.ItemInvUtil;
+import alexiil.mc.lib.attributes.item.ItemKey;
+import alexiil.mc.lib.attributes.item.filter.ItemFilter;
+
+import it.unimi.dsi.fastutil.objects.Object2ObjectLinkedOpenHashMap;
+
+/** An {@link ItemExtractable} over every {@link ItemEntity} inside of a {@link Box}, intended for vacuum-style
+ * machines.
+ * <p>
+ * Querying the world for entities is expensive, so the list of entities is only refreshed once every
+ * {@link #refreshInterval} ticks (or when {@link #markStale()} is called). In-between refreshes the cached entities are
+ * grouped by {@link ItemKey}, so each filter is only tested once per item type rather than once per entity. Entities
+ * that have died (or had their stack changed to a different item) since the last refresh are skipped, however new
+ * entities won't be seen until the next refresh. */
+public class ItemEntityAreaExtractable implements ItemExtractable {
+
+    public final ItemEntitySource source;
+    public final Box box;
+
+    /** The minimum number of ticks between entity queries. 0 will query the world every time this is used. */
+    public final int refreshInterval;
+
+    private final Object2ObjectLinkedOpenHashMap<ItemKey, EntityGroup> groups = new Object2ObjectLinkedOpenHashMap<>();
+    private long lastRefresh;
+    private boolean stale = true;
+
+    public ItemEntityAreaExtractable(World world, Box box, int refreshInterval) {
+        this(ItemEntitySource.of(world), box, refreshInterval);
+    }
+
+    public ItemEntityAreaExtractable(ItemEntitySource source, Box box, int refreshInterval) {
+        if (refreshInterval < 0) {
+            throw new IllegalArgumentException("refreshInterval (" + refreshInterval + ") must not be negative!");
+        }
+        this.source = source;
+        this.box = box;
+        this.refreshInterval = refreshInterval;
+    }
+
+    /** Every cached {@link ItemEntity} that had the same {@link ItemKey} when the cache was last refreshed. */
+    static final class EntityGroup {
+        final ItemKey key;
+
+        /** A single-count stack for {@link #key}, which is never modified, and only passed to filters. */
+        final ItemStack stack;
+
+        final List<ItemEntity> entities = new ArrayList<>(1);
+
+        EntityGroup(ItemKey key) {
+            this.key = key;
+            this.stack = key.toStack();
+        }
+    }
+
+    /** Forces the next call to query the world again, rather than using the cached entities. */
+    public void markStale() {
+        stale = true;
+    }
+
+    private void refreshIfNeeded() {
+        long now = source.getTime();
+        if (!stale && now - lastRefresh < refreshInterval) {
+            return;
+        }
+        stale = false;
+        lastRefresh = now;
+        groups.clear();
+        for (ItemEntity entity : source.getItemEntities(box)) {
+            ItemStack stack = entity.getStack();
+            if (stack.isEmpty()) {
+                continue;
+            }
+            ItemKey key = ItemKey.of(stack);
+            EntityGroup group = groups.get(key);
+            if (group == null) {
+                group = new EntityGroup(key);
+                groups.put(key, group);
+            }
+            group.entities.add(entity);
+        }
+    }
+
+    /** @return The stack held by the given entity, or {@link ItemStack#EMPTY} if it is no longer part of the given
+     *         group. */
+    private static ItemStack getStack(EntityGroup group, ItemEntity entity) {
+        if (!entity.isAlive()) {
+            return ItemStack.EMPTY;
+        }
+        ItemStack stack = entity.getStack();
+        if (stack.isEmpty() || !group.key.matches(stack)) {
+            return ItemStack.EMPTY;
+        }
+        return stack;
+    }
+
+    /** Removes the given number of items from the entity, killing it if its stack becomes empty. */
+    private static void decrement(ItemEntity entity, ItemStack current, int count) {
+        ItemStack stack = current.copy();
+        stack.decrement(count);
+        entity.setStack(stack);
+        if (stack.isEmpty()) {
+            entity.remove();
+        }
+    }
+
+    /** @return The total number of items held by every cached {@link ItemEntity} that matches the given filter. */
+    public int getAmount(ItemFilter filter) {
+        refreshIfNeeded();
+        int amount = 0;
+        for (EntityGroup group : groups.values()) {
+            if (!filter.matches(group.stack)) {
+                continue;
+            }
+            for (ItemEntity entity : group.entities) {
+                amount += getStack(group, entity).getCount();
+            }
+        }
+        return amount;
+    }
+
+    @Override
+    public ItemStack attemptExtraction(ItemFilter filter, int maxAmount, Simulation simulation) {
+        if (maxAmount < 1) {
+            return ItemStack.EMPTY;
+        }
+        refreshIfNeeded();
+        for (EntityGroup group : groups.values()) {
+            if (!filter.matches(group.stack)) {
+                continue;
+            }
+            int max = Math.min(maxAmount, group.stack.getMaxCount());
+            int extracted = 0;
+            for (ItemEntity entity : group.entities) {
+                ItemStack current = getStack(group, entity);
+                if (current.isEmpty()) {
+                    continue;
+                }
+                int count = Math.min(current.getCount(), max - extracted);
+                if (simulation == Simulation.ACTION) {
+                    decrement(entity, current, count);
+                }
+                extracted += count;
+                if (extracted >= max) {
+                    break;
+                }
+            }
+            if (extracted > 0) {
+                return group.key.toStack(extracted);
+            }
+        }
+        return ItemStack.EMPTY;
+    }
+
+    /** Moves items from every cached {@link ItemEntity} that matches the given filter into the given insertable. Unlike
+     * calling {@link #attemptExtraction(ItemFilter, int, Simulation)} in a loop (for example with
+     * {@link ItemInvUtil#moveMultiple(ItemExtractable, ItemInsertable, ItemFilter, int, int)}) this visits each entity
+     * only once, and stops trying an item type as soon as the insertable refuses any of it. (So an item type is never
+     * offered again after a partial insertion).
+     *
+     * @param maxTotal The maximum number of items to move.
+     * @return The number of items moved. */
+    public int moveAll(ItemInsertable to, ItemFilter filter, int maxTotal) {
+        refreshIfNeeded();
+        int moved = 0;
+        for (EntityGroup group : groups.values()) {
+            if (moved >= maxTotal) {
+                break;
+            }
+            if (!filter.matches(group.stack)) {
+                continue;
+            }
+            for (ItemEntity entity : group.entities) {
+                ItemStack current = getStack(group, entity);
+                if (current.isEmpty()) {
+                    continue;
+                }
+                ItemStack offered = current.copy();
+                offered.setCount(Math.min(current.getCount(), maxTotal - moved));
+                int inserted = offered.getCount() - to.attemptInsertion(offered, Simulation.ACTION).getCount();
+                if (inserted > 0) {
+                    decrement(entity, current, inserted);
+                    moved += inserted;
+                }
+                if (inserted < offered.getCount() || moved >= maxTotal) {
+                    // Either the insertable won't accept any more of this item type, or we're done
+                    break;
+                }
+            }
+        }
+        return moved;
+    }
+}
@@ -13,6 +13,7 @@ import net.minecraft.entity.projectile.ProjectileEntity;
 import net.minecraft.item.ItemStack;
 import net.minecraft.util.ItemScatterer;
 import concern.BlockPos;
+import net.minecraft.util.math.Box;
 import net.minecraft.util.math.Vec3d;
 import net.minecraft.world.World;
 
@@ -35,6 +36,12 @@ public final class ItemEntityAttributeUtil {
         return EmptyItemExtractable.NULL;
     }
 
+    /** @param refreshInterval The minimum number of ticks between each query for the entities in the box.
+     * @return An {@link ItemEntityAreaExtractable} for every {@link ItemEntity} in the given box. */
+    public static ItemEntityAreaExtractable getAreaExtractable(World world, Box box, int refreshInterval) {
+        return new ItemEntityAreaExtractable(world, box, refreshInterval);
+    }
+
     /** @return An {@link ItemInsertable} that spawns {@link ItemEntity}s at the given position. */
     public static ItemInsertable createItemEntityDropper(World world, BlockPos pos) {
         return createItemEntityDropper(world, pos.getX() + 0.5, pos.getY() + 0.5, pos.getZ() + 0.5);
@@ -55,6 +62,20 @@ public final class ItemEntityAttributeUtil {
         };
     }
 
+    /** @return A {@link CoalescingItemEntityDropper} that drops items at the given position, topping up existing item
+     *         entities within 1 block rather than always spawning new ones. */
+    public static CoalescingItemEntityDropper createCoalescingItemEntityDropper(World world, BlockPos pos) {
+        return createCoalescingItemEntityDropper(world, pos.getX() + 0.5, pos.getY() + 0.5, pos.getZ() + 0.5);
+    }
+
+    /** @return A {@link CoalescingItemEntityDropper} that drops items at the given position, topping up existing item
+     *         entities within 1 block rather than always spawning new ones. */
+    public static CoalescingItemEntityDropper createCoalescingItemEntityDropper(
+        World world, double x, double y, double z
+    ) {
+        return new CoalescingItemEntityDropper(world, x, y, z, 1);
+    }
+
     /** @return An {@link ItemInsertable} that scatters {@link ItemEntity}s at the given position using
      *         {@link ItemScatterer#spawn(World, double, double, double, net.minecraft.item.ItemStack)} */
     public static ItemInsertable createItemEntityScatterer(World world, BlockPos pos) {
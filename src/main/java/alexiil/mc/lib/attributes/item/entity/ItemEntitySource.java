@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.item.entity;
+
+import java.util.List;
+
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.ItemEntity;
+import net.minecraft.item.ItemStack;
+import net.minecraft.util.math.Box;
+import net.minecraft.world.World;
+
+/** The parts of a {@link World} that the area-based item entity attributes ({@link ItemEntityAreaExtractable} and
+ * {@link CoalescingItemEntityDropper}) use. Normally this is just {@link #of(World)}, but it can be replaced to use
+ * these attributes without a real world (for example in tests). */
+public interface ItemEntitySource {
+
+    /** @return The current time, in ticks. Only differences between these values are used. */
+    long getTime();
+
+    /** @return Every {@link ItemEntity#isAlive() living} {@link ItemEntity} inside of the given box. */
+    List<ItemEntity> getItemEntities(Box box);
+
+    /** Spawns a new {@link ItemEntity} at the given position.
+     *
+     * @return The spawned entity. */
+    ItemEntity spawnItemEntity(double x, double y, double z, ItemStack stack);
+
+    static ItemEntitySource of(World world) {
+        return new ItemEntitySource() {
+            @Override
+            public long getTime() {
+                return world.getTime();
+            }
+
+            @Override
+            public List<ItemEntity> getItemEntities(Box box) {
+                return world.getEntitiesByClass(ItemEntity.class, box, Entity::isAlive);
+            }
+
+            @Override
+            public ItemEntity spawnItemEntity(double x, double y, double z, ItemStack stack) {
+                ItemEntity entity = new ItemEntity(world, x, y, z, stack);
+                world.spawnEntity(entity);
+                return entity;
+            }
+        };
+    }
+}
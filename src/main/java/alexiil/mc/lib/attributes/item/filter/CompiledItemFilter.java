@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.item.filter;
+
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.util.registry.Registry;
+
+import alexiil.mc.lib.attributes.AggregateFilterType;
+
+/** An {@link ItemFilter} that has been flattened into a dense bitset over every item's raw registry id, so that
+ * {@link #matches(ItemStack)} is usually a single bit test rather than a walk over a tree of filters.
+ * <p>
+ * Only the parts of the filter that depend purely on the {@link Item} ({@link ExactItemFilter},
+ * {@link ExactItemSetFilter}, {@link ItemClassFilter}, {@link ConstantItemFilter}, {@link ResolvableItemFilter}s such as
+ * {@link ItemTagFilter}, and any {@link AggregateItemFilter} or {@link InvertedItemFilter} of them) can be compiled.
+ * Items whose result depends on anything else (for example {@link ExactItemStackFilter}s, which also compare tags, or
+ * any non-readable filter) are marked as "residual", and fall back to calling {@link #original}.
+ * <p>
+ * Note that a compiled filter is a snapshot: if it contains an {@link ItemTagFilter} (or any other
+ * {@link ResolvableItemFilter}) then it won't notice if the tag is reloaded, so it should be recompiled whenever that
+ * happens. */
+public final class CompiledItemFilter implements ItemFilter {
+
+    /** The filter that was compiled, which is used for residual checks. */
+    public final ItemFilter original;
+
+    /** A bit is set for every item id that definitely matches {@link #original}. */
+    private final long[] matching;
+
+    /** A bit is set for every item id that must be checked with {@link #original}. */
+    private final long[] residual;
+
+    /** The number of item ids that {@link #matching} and {@link #residual} cover. */
+    private final int idCount;
+
+    private CompiledItemFilter(ItemFilter original, long[] matching, long[] residual, int idCount) {
+        this.original = original;
+        this.matching = matching;
+        this.residual = residual;
+        this.idCount = idCount;
+    }
+
+    /** Compiles the given filter into a {@link CompiledItemFilter}, or returns the filter itself if it's already as cheap
+     * as a bitset check (for example {@link ConstantItemFilter} or {@link ExactItemFilter}). */
+    public static ItemFilter compile(ItemFilter filter) {
+        if (
+            filter instanceof CompiledItemFilter || filter instanceof ConstantItemFilter
+                || filter instanceof ExactItemFilter
+        ) {
+            return filter;
+        }
+        Compiler compiler = new Compiler();
+        Node node = compiler.compile(filter);
+        if (node.isOpaque(compiler.words)) {
+            // Nothing could be compiled, so a bitset would just add an extra check
+            return filter;
+        }
+        return new CompiledItemFilter(filter, node.yes, node.maybe, compiler.itemsById.length);
+    }
+
+    @Override
+    public boolean matches(ItemStack stack) {
+        if (stack.isEmpty()) {
+            return original.matches(stack);
+        }
+        int id = Registry.ITEM.getRawId(stack.getItem());
+        if (id < 0 || id >= idCount) {
+            // Registered after this filter was compiled
+            return original.matches(stack);
+        }
+        int word = id >>> 6;
+        long bit = 1L << id;
+        if ((residual[word] & bit) != 0) {
+            return original.matches(stack);
+        }
+        return (matching[word] & bit) != 0;
+    }
+
+    /** The compiled form of a single filter: for every item id either the result is known ({@link #yes} is set if it
+     * matches) or it depends on the full stack ({@link #maybe} is set). The two sets never overlap. */
+    static final class Node {
+        final long[] yes;
+        final long[] maybe;
+
+        Node(long[] yes, long[] maybe) {
+            this.yes = yes;
+            this.maybe = maybe;
+        }
+
+        boolean isOpaque(int words) {
+            for (int i = 0; i < words; i++) {
+                if (maybe[i] != -1L) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    static final class Compiler {
+        final Item[] itemsById;
+        final int words;
+
+        /** A bit is set for every id that actually has an {@link Item}. */
+        final long[] valid;
+
+        Compiler() {
+            int maxId = -1;
+            for (Item item : Registry.ITEM) {
+                maxId = Math.max(maxId, Registry.ITEM.getRawId(item));
+            }
+            itemsById = new Item[maxId + 1];
+            words = (itemsById.length + 63) >>> 6;
+            valid = new long[words];
+            for (Item item : Registry.ITEM) {
+                int id = Registry.ITEM.getRawId(item);
+                itemsById[id] = item;
+                valid[id >>> 6] |= 1L << id;
+            }
+        }
+
+        Node compile(ItemFilter filter) {
+            if (filter instanceof CompiledItemFilter) {
+                return compile(((CompiledItemFilter) filter).original);
+            } else if (filter instanceof ExactItemFilter) {
+                long[] yes = new long[words];
+                set(yes, ((ExactItemFilter) filter).item);
+                return new Node(yes, new long[words]);
+            } else if (filter instanceof ExactItemSetFilter) {
+                long[] yes = new long[words];
+                for (Item item : ((ExactItemSetFilter) filter).getItems()) {
+                    set(yes, item);
+                }
+                return new Node(yes, new long[words]);
+            } else if (filter instanceof ExactItemStackFilter) {
+                // Tags have to be checked as well, so only the item itself can be narrowed down
+                ItemStack stack = ((ExactItemStackFilter) filter).stack;
+                long[] maybe = new long[words];
+                if (!stack.isEmpty()) {
+                    set(maybe, stack.getItem());
+                }
+                return new Node(new long[words], maybe);
+            } else if (filter instanceof ConstantItemFilter || filter instanceof ItemClassFilter) {
+                return compileItemOnly(filter);
+            } else if (filter instanceof ResolvableItemFilter) {
+                return compile(((ResolvableItemFilter) filter).resolve());
+            } else if (filter instanceof InvertedItemFilter) {
+                Node inner = compile(((InvertedItemFilter) filter).delegate);
+                long[] yes = new long[words];
+                for (int i = 0; i < words; i++) {
+                    yes[i] = ~inner.yes[i] & ~inner.maybe[i] & valid[i];
+                }
+                return new Node(yes, inner.maybe);
+            } else if (filter instanceof AggregateItemFilter) {
+                AggregateItemFilter aggregate = (AggregateItemFilter) filter;
+                Node result = compile(aggregate.getFilter(0));
+                for (int i = 1; i < aggregate.getFilterCount(); i++) {
+                    Node next = compile(aggregate.getFilter(i));
+                    result = aggregate.type == AggregateFilterType.ALL ? and(result, next) : or(result, next);
+                }
+                return result;
+            } else {
+                long[] maybe = new long[words];
+                for (int i = 0; i < words; i++) {
+                    maybe[i] = -1L;
+                }
+                return new Node(new long[words], maybe);
+            }
+        }
+
+        /** Compiles a filter that only depends on the {@link Item} of a stack by testing it against every item. */
+        private Node compileItemOnly(ItemFilter filter) {
+            long[] yes = new long[words];
+            for (int id = 0; id < itemsById.length; id++) {
+                Item item = itemsById[id];
+                if (item != null && filter.matches(new ItemStack(item))) {
+                    yes[id >>> 6] |= 1L << id;
+                }
+            }
+            return new Node(yes, new long[words]);
+        }
+
+        private Node and(Node a, Node b) {
+            long[] yes = new long[words];
+            long[] maybe = new long[words];
+            for (int i = 0; i < words; i++) {
+                long noA = ~a.yes[i] & ~a.maybe[i];
+                long noB = ~b.yes[i] & ~b.maybe[i];
+                // Known if either side definitely fails, or both definitely pass
+                maybe[i] = (a.maybe[i] | b.maybe[i]) & ~noA & ~noB;
+                yes[i] = a.yes[i] & b.yes[i];
+            }
+            return new Node(yes, maybe);
+        }
+
+        private Node or(Node a, Node b) {
+            long[] yes = new long[words];
+            long[] maybe = new long[words];
+            for (int i = 0; i < words; i++) {
+                // Known if either side definitely passes, or both definitely fail
+                yes[i] = a.yes[i] | b.yes[i];
+                maybe[i] = (a.maybe[i] | b.maybe[i]) & ~yes[i];
+            }
+            return new Node(yes, maybe);
+        }
+
+        private void set(long[] bits, Item item) {
+            int id = Registry.ITEM.getRawId(item);
+            if (id >= 0 && id < itemsById.length) {
+                bits[id >>> 6] |= 1L << id;
+            }
+        }
+    }
+}
@@ -7,20 +7,97 @@
  */
 package alexiil.mc.lib.attributes.item.filter;
 
+import java.util.Collection;
+import java.util.Map;
+
+import com.google.common.collect.MapMaker;
+
 import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
 import net.minecraft.tag.Tag;
+import net.minecraft.util.registry.Registry;
 
-/** A {@link ResolvableItemFilter} that matches any {@link Item}s in a {@link Tag}. */
+/** A {@link ResolvableItemFilter} that matches any {@link Item}s in a {@link Tag}.
+ * <p>
+ * The resolved filter (and a bitset over item ids that {@link #matches(ItemStack)} uses) is cached per {@link Tag}
+ * instance, and is rebuilt whenever the tag's value list is replaced. Reloading tags always does this, as every
+ * reload creates new tag objects (which the tags held in static fields delegate to). */
 public final class ItemTagFilter implements ResolvableItemFilter {
 
+    /** Shared between every {@link ItemTagFilter} for the same tag instance. */
+    private static final Map<Tag<Item>, ResolvedItemTag> RESOLVED_TAGS = new MapMaker().weakKeys().makeMap();
+
     public final Tag<Item> tag;
 
+    private volatile ResolvedItemTag resolved;
+
     public ItemTagFilter(Tag<Item> tag) {
         this.tag = tag;
     }
 
     @Override
     public ReadableItemFilter resolve() {
-        return ExactItemFilter.anyOf(tag.values());
+        return getResolved().filter;
+    }
+
+    @Override
+    public boolean matches(ItemStack stack) {
+        if (stack.isEmpty()) {
+            return false;
+        }
+        return getResolved().matches(stack.getItem());
+    }
+
+    private ResolvedItemTag getResolved() {
+        Collection<Item> values = tag.values();
+        ResolvedItemTag current = resolved;
+        if (current != null && current.isValid(values)) {
+            return current;
+        }
+        current = RESOLVED_TAGS.get(tag);
+        if (current == null || !current.isValid(values)) {
+            current = new ResolvedItemTag(values);
+            RESOLVED_TAGS.put(tag, current);
+        }
+        resolved = current;
+        return current;
+    }
+
+    static final class ResolvedItemTag {
+        /** The exact {@link Tag#values()} object that this was resolved from. */
+        final Collection<Item> source;
+        final ReadableItemFilter filter;
+
+        /** A bit is set for the raw id of every item in the tag. */
+        final long[] bits;
+
+        ResolvedItemTag(Collection<Item> source) {
+            this.source = source;
+            this.filter = ExactItemFilter.anyOf(source);
+            int maxId = -1;
+            for (Item item : source) {
+                maxId = Math.max(maxId, Registry.ITEM.getRawId(item));
+            }
+            bits = new long[(maxId + 64) >>> 6];
+            for (Item item : source) {
+                int id = Registry.ITEM.getRawId(item);
+                if (id >= 0) {
+                    bits[id >>> 6] |= 1L << id;
+                }
+            }
+        }
+
+        boolean isValid(Collection<Item> values) {
+            return source == values;
+        }
+
+        boolean matches(Item item) {
+            int id = Registry.ITEM.getRawId(item);
+            if (id < 0) {
+                return false;
+            }
+            int word = id >>> 6;
+            return word < bits.length && (bits[word] & (1L << id)) != 0;
+        }
     }
 }
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.item.impl;
+
+import net.minecraft.item.ItemStack;
+
+import alexiil.mc.lib.attributes.item.GroupedItemInvView;
+import alexiil.mc.lib.attributes.item.ItemInvAmountChangeListener;
+import alexiil.mc.lib.attributes.item.ItemStackCollections;
+
+import it.unimi.dsi.fastutil.objects.Object2IntLinkedOpenCustomHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenCustomHashMap;
+
+/** An {@link ItemInvAmountChangeListener} that collects every change that it receives, and only passes them on to a
+ * {@link BatchListener} when {@link #flush()} is called. This is the {@link GroupedItemInvView} equivalent of
+ * {@link CoalescingItemInvSlotListener}: every stack is reported at most once per flush, with the amount before the
+ * first change and the amount after the last change, and stacks whose amount ended up the same aren't reported. */
+public final class CoalescingItemInvAmountListener implements ItemInvAmountChangeListener {
+
+    /** Receives the changes collected by a {@link CoalescingItemInvAmountListener}. */
+    @FunctionalInterface
+    public interface BatchListener {
+
+        /** @param inv The inventory that changed.
+         * @param stacks Every stack whose amount changed, in the order that they were first changed. These must not be
+         *            modified.
+         * @param previous The amount of each stack before the first change.
+         * @param current The amount of each stack after the last change. */
+        void onChanges(GroupedItemInvView inv, ItemStack[] stacks, int[] previous, int[] current);
+    }
+
+    private final BatchListener listener;
+
+    private GroupedItemInvView inv;
+    private final Object2IntLinkedOpenCustomHashMap<ItemStack> previousAmounts
+        = ItemStackCollections.intLinkedHashMap();
+    private final Object2IntOpenCustomHashMap<ItemStack> currentAmounts = ItemStackCollections.intHashMap();
+
+    public CoalescingItemInvAmountListener(BatchListener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void onChange(GroupedItemInvView changedInv, ItemStack stack, int previous, int current) {
+        if (inv != changedInv) {
+            // Batches only ever contain changes to a single inventory
+            flush();
+            inv = changedInv;
+        }
+        if (!previousAmounts.containsKey(stack)) {
+            // Copy the key, as the given stack might be modified after we return
+            ItemStack key = stack.copy();
+            previousAmounts.put(key, previous);
+            currentAmounts.put(key, current);
+        } else {
+            currentAmounts.put(stack, current);
+        }
+    }
+
+    /** @return True if there are any changes that haven't been passed on to the {@link BatchListener} yet. (This
+     *         doesn't check to see if the changes cancel each other out). */
+    public boolean hasPendingChanges() {
+        return !previousAmounts.isEmpty();
+    }
+
+    /** Passes every change received since the last flush to the {@link BatchListener} as a single batch, unless none
+     * of the amounts actually ended up different. */
+    public void flush() {
+        if (previousAmounts.isEmpty()) {
+            return;
+        }
+        int count = previousAmounts.size();
+        ItemStack[] stacks = new ItemStack[count];
+        int[] previous = new int[count];
+        int[] current = new int[count];
+        int index = 0;
+        for (Object2IntMap.Entry<ItemStack> entry : previousAmounts.object2IntEntrySet()) {
+            ItemStack stack = entry.getKey();
+            int before = entry.getIntValue();
+            int after = currentAmounts.getInt(stack);
+            if (before == after) {
+                continue;
+            }
+            stacks[index] = stack;
+            previous[index] = before;
+            current[index] = after;
+            index++;
+        }
+        GroupedItemInvView changedInv = inv;
+        // Clear everything before calling the listener, in case it changes the inventory again
+        previousAmounts.clear();
+        currentAmounts.clear();
+        if (index == 0) {
+            return;
+        }
+        if (index < count) {
+            ItemStack[] stacks2 = new ItemStack[index];
+            int[] previous2 = new int[index];
+            int[] current2 = new int[index];
+            System.arraycopy(stacks, 0, stacks2, 0, index);
+            System.arraycopy(previous, 0, previous2, 0, index);
+            System.arraycopy(current, 0, current2, 0, index);
+            stacks = stacks2;
+            previous = previous2;
+            current = current2;
+        }
+        listener.onChanges(changedInv, stacks, previous, current);
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.item.impl;
+
+import net.minecraft.item.ItemStack;
+
+import alexiil.mc.lib.attributes.item.FixedItemInv.CopyingFixedItemInv;
+import alexiil.mc.lib.attributes.item.FixedItemInvView;
+import alexiil.mc.lib.attributes.item.ItemInvSlotChangeListener;
+import alexiil.mc.lib.attributes.item.ItemStackUtil;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+
+/** An {@link ItemInvSlotChangeListener} that collects every change that it receives, and only passes them on to a
+ * {@link BatchListener} when {@link #flush()} is called. This is intended for listeners that are expensive to call
+ * (such as storage network indexes or GUI syncing), which would rather receive a single batch of changes once per tick
+ * (or at the end of a transaction) than one call for every single item that moves.
+ * <p>
+ * Every slot is reported at most once per flush, with the stack that it held before the first change and the stack
+ * that it held after the last change. Slots that end up equal to the stack that they started with aren't reported at
+ * all.
+ * <p>
+ * As this keeps hold of the {@link ItemStack}s that it's given it should only be registered to
+ * {@link CopyingFixedItemInv}s, as they never modify the stacks that they pass to their listeners. */
+public final class CoalescingItemInvSlotListener implements ItemInvSlotChangeListener {
+
+    /** Receives the changes collected by a {@link CoalescingItemInvSlotListener}. */
+    @FunctionalInterface
+    public interface BatchListener {
+
+        /** @param inv The inventory that changed.
+         * @param slots Every slot that changed, in the order that they were first changed.
+         * @param previous The stack in each slot before the first change.
+         * @param current The stack in each slot after the last change. */
+        void onChanges(FixedItemInvView inv, int[] slots, ItemStack[] previous, ItemStack[] current);
+    }
+
+    private final BatchListener listener;
+
+    private FixedItemInvView inv;
+    private final Int2ObjectLinkedOpenHashMap<ItemStack> previousStacks = new Int2ObjectLinkedOpenHashMap<>();
+    private final Int2ObjectOpenHashMap<ItemStack> currentStacks = new Int2ObjectOpenHashMap<>();
+
+    public CoalescingItemInvSlotListener(BatchListener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void onChange(FixedItemInvView changedInv, int slot, ItemStack previous, ItemStack current) {
+        if (inv != changedInv) {
+            // Batches only ever contain changes to a single inventory
+            flush();
+            inv = changedInv;
+        }
+        previousStacks.putIfAbsent(slot, previous);
+        currentStacks.put(slot, current);
+    }
+
+    /** @return True if there are any changes that haven't been passed on to the {@link BatchListener} yet. (This
+     *         doesn't check to see if the changes cancel each other out). */
+    public boolean hasPendingChanges() {
+        return !previousStacks.isEmpty();
+    }
+
+    /** Passes every change received since the last flush to the {@link BatchListener} as a single batch, unless none
+     * of the slots actually ended up different. */
+    public void flush() {
+        if (previousStacks.isEmpty()) {
+            return;
+        }
+        int count = previousStacks.size();
+        int[] slots = new int[count];
+        ItemStack[] previous = new ItemStack[count];
+        ItemStack[] current = new ItemStack[count];
+        int index = 0;
+        for (Int2ObjectLinkedOpenHashMap.Entry<ItemStack> entry : previousStacks.int2ObjectEntrySet()) {
+            int slot = entry.getIntKey();
+            ItemStack before = entry.getValue();
+            ItemStack after = currentStacks.get(slot);
+            if (isUnchanged(before, after)) {
+                continue;
+            }
+            slots[index] = slot;
+            previous[index] = before;
+            current[index] = after;
+            index++;
+        }
+        FixedItemInvView changedInv = inv;
+        // Clear everything before calling the listener, in case it changes the inventory again
+        previousStacks.clear();
+        currentStacks.clear();
+        if (index == 0) {
+            return;
+        }
+        if (index < count) {
+            int[] slots2 = new int[index];
+            ItemStack[] previous2 = new ItemStack[index];
+            ItemStack[] current2 = new ItemStack[index];
+            System.arraycopy(slots, 0, slots2, 0, index);
+            System.arraycopy(previous, 0, previous2, 0, index);
+            System.arraycopy(current, 0, current2, 0, index);
+            slots = slots2;
+            previous = previous2;
+            current = current2;
+        }
+        listener.onChanges(changedInv, slots, previous, current);
+    }
+
+    private static boolean isUnchanged(ItemStack before, ItemStack after) {
+        if (before == after) {
+            return true;
+        }
+        if (before.isEmpty() || after.isEmpty()) {
+            return before.isEmpty() && after.isEmpty();
+        }
+        return before.getCount() == after.getCount() && ItemStackUtil.areEqualIgnoreAmounts(before, after);
+    }
+}
@@ -17,6 +17,7 @@ import alexiil.mc.lib.attributes.ListenerToken;
 import alexiil.mc.lib.attributes.Simulation;
 import alexiil.mc.lib.attributes.item.FixedItemInv;
 import alexiil.mc.lib.attributes.item.ItemInvSlotChangeListener;
+import alexiil.mc.lib.attributes.item.ItemStackHandle;
 
 /** An {@link FixedItemInv} that delegates to a list of them instead of storing items directly. */
 public class CombinedFixedItemInv<InvType extends FixedItemInv> extends CombinedFixedItemInvView<InvType>
@@ -67,7 +68,7 @@ public class CombinedFixedItemInv<InvType extends FixedItemInv> extends Combined
 
     @Override
     public boolean setInvStack(int slot, ItemStack to, Simulation simulation) {
-        return getInv(slot).setInvStack(getSubSlot(slot), to, simulation);
+        return ((FixedItemInv) getLeafInv(slot)).setInvStack(getLeafSlot(slot), to, simulation);
     }
 
     @Override
@@ -104,7 +105,12 @@ public class CombinedFixedItemInv<InvType extends FixedItemInv> extends Combined
 
         @Override
         public ItemStack getUnmodifiableInvStack(int slot) {
-            return getInv(slot).getUnmodifiableInvStack(getSubSlot(slot));
+            return ((CopyingFixedItemInv) getLeafInv(slot)).getUnmodifiableInvStack(getLeafSlot(slot));
+        }
+
+        @Override
+        public ItemStackHandle getInvStackHandle(int slot) {
+            return ((CopyingFixedItemInv) getLeafInv(slot)).getInvStackHandle(getLeafSlot(slot));
         }
 
         @Override
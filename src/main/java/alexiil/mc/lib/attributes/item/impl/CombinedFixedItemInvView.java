@@ -8,7 +8,7 @@
 package alexiil.mc.lib.attributes.item.impl;
 
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import net.minecraft.item.ItemStack;
@@ -19,32 +19,66 @@ import alexiil.mc.lib.attributes.item.FixedItemInv;
 import alexiil.mc.lib.attributes.item.FixedItemInvView;
 import alexiil.mc.lib.attributes.item.InvMarkDirtyListener;
 import alexiil.mc.lib.attributes.item.filter.ItemFilter;
-
-import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
-import it.unimi.dsi.fastutil.ints.Int2ObjectRBTreeMap;
-import it.unimi.dsi.fastutil.ints.IntArrayList;
-import it.unimi.dsi.fastutil.ints.IntList;
-import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
-import it.unimi.dsi.fastutil.ints.IntSet;
-
-/** An {@link FixedItemInvView} that delegates to a list of them instead of storing items directly. */
+import alexiil.mc.lib.attributes.misc.CombinedSlotIndex;
+import alexiil.mc.lib.attributes.misc.SlotArrays;
+
+/** An {@link FixedItemInvView} that delegates to a list of them instead of storing items directly.
+ * <p>
+ * Slot accesses are routed through a precomputed {@link CombinedSlotIndex}. If any of the {@link #views} are themselves
+ * (unextended) combined inventories then slot accesses skip them entirely, and go straight to the inventories that
+ * they contain. */
 public class CombinedFixedItemInvView<InvType extends FixedItemInvView> implements FixedItemInvView {
 
     public final List<? extends InvType> views;
     protected final int[] subSlotStartIndex;
     protected final int invSize;
 
+    /** Maps slots to an index in {@link #views}. */
+    private final CombinedSlotIndex viewIndex;
+
+    /** The innermost (non-combined) inventories that slot accesses are routed to. */
+    private final FixedItemInvView[] leaves;
+
+    /** Maps slots to an index in {@link #leaves}. This is the same object as {@link #viewIndex} if none of the views
+     * are flattened. */
+    private final CombinedSlotIndex leafIndex;
+
     public CombinedFixedItemInvView(List<? extends InvType> views) {
         this.views = views;
-        subSlotStartIndex = new int[views.size()];
-        int size = 0;
+        int[] counts = new int[views.size()];
+        List<FixedItemInvView> leafList = new ArrayList<>();
+        boolean flattened = false;
         for (int i = 0; i < views.size(); i++) {
-            subSlotStartIndex[i] = size;
             FixedItemInvView view = views.get(i);
-            int s = view.getSlotCount();
-            size += s;
+            counts[i] = view.getSlotCount();
+            if (isFlattenable(view)) {
+                Collections.addAll(leafList, ((CombinedFixedItemInvView<?>) view).leaves);
+                flattened = true;
+            } else {
+                leafList.add(view);
+            }
         }
-        invSize = size;
+        viewIndex = new CombinedSlotIndex("Slot", counts);
+        subSlotStartIndex = viewIndex.getStartIndices();
+        invSize = viewIndex.size();
+
+        leaves = leafList.toArray(new FixedItemInvView[0]);
+        if (flattened) {
+            int[] leafCounts = new int[leaves.length];
+            for (int i = 0; i < leaves.length; i++) {
+                leafCounts[i] = leaves[i].getSlotCount();
+            }
+            leafIndex = new CombinedSlotIndex("Slot", leafCounts);
+        } else {
+            leafIndex = viewIndex;
+        }
+    }
+
+    /** Only our own classes are flattened, as subclasses might override the slot access methods. */
+    static boolean isFlattenable(FixedItemInvView view) {
+        Class<?> cls = view.getClass();
+        return cls == CombinedFixedItemInvView.class || cls == CombinedFixedItemInv.class
+            || cls == CombinedFixedItemInv.OfModifiable.class || cls == CombinedFixedItemInv.OfCopying.class;
     }
 
     public static FixedItemInvView createView(List<? extends FixedItemInvView> list) {
@@ -72,24 +106,7 @@ public class CombinedFixedItemInvView<InvType extends FixedItemInvView> implemen
     }
 
     protected int getInvIndex(int slot) {
-        if (slot < 0) {
-            throw new IllegalArgumentException("Slot must be non-negative! (was " + slot + ")");
-        }
-
-        for (int i = 1; i < subSlotStartIndex.length; i++) {
-            int startIndex = subSlotStartIndex[i];
-            if (slot < startIndex) {
-                return i - 1;
-            }
-        }
-
-        if (slot < invSize) {
-            return views.size() - 1;
-        }
-
-        throw new IllegalArgumentException(
-            "Slot must be less than getInvSize() (was " + slot + ", maximum slot is " + (invSize - 1) + ")"
-        );
+        return viewIndex.getInvIndex(slot);
     }
 
     protected InvType getInv(int slot) {
@@ -97,46 +114,38 @@ public class CombinedFixedItemInvView<InvType extends FixedItemInvView> implemen
     }
 
     protected int getSubSlot(int slot) {
-        if (slot < 0) {
-            throw new IllegalArgumentException("Slot must be non-negative! (was " + slot + ")");
-        }
+        return viewIndex.getSubSlot(slot);
+    }
 
-        for (int i = 0; i < subSlotStartIndex.length; i++) {
-            int startIndex = subSlotStartIndex[i];
-            if (slot < startIndex) {
-                if (i == 0) {
-                    return slot;
-                }
-                return slot - subSlotStartIndex[i - 1];
-            }
-        }
-        if (slot < invSize) {
-            return slot - subSlotStartIndex[subSlotStartIndex.length - 1];
-        }
+    /** @return The innermost inventory that contains the given slot. Unlike {@link #getInv(int)} this never returns a
+     *         (flattened) combined inventory. */
+    protected FixedItemInvView getLeafInv(int slot) {
+        return leaves[leafIndex.getInvIndex(slot)];
+    }
 
-        throw new IllegalArgumentException(
-            "Slot must be less than getInvSize() (was " + slot + ", maximum slot is " + (invSize - 1) + ")"
-        );
+    /** @return The slot in {@link #getLeafInv(int)} that the given slot maps to. */
+    protected int getLeafSlot(int slot) {
+        return leafIndex.getSubSlot(slot);
     }
 
     @Override
     public ItemStack getInvStack(int slot) {
-        return getInv(slot).getInvStack(getSubSlot(slot));
+        return getLeafInv(slot).getInvStack(getLeafSlot(slot));
     }
 
     @Override
     public boolean isItemValidForSlot(int slot, ItemStack item) {
-        return getInv(slot).isItemValidForSlot(getSubSlot(slot), item);
+        return getLeafInv(slot).isItemValidForSlot(getLeafSlot(slot), item);
     }
 
     @Override
     public ItemFilter getFilterForSlot(int slot) {
-        return getInv(slot).getFilterForSlot(getSubSlot(slot));
+        return getLeafInv(slot).getFilterForSlot(getLeafSlot(slot));
     }
 
     @Override
     public int getMaxAmount(int slot, ItemStack stack) {
-        return getInv(slot).getMaxAmount(getSubSlot(slot), stack);
+        return getLeafInv(slot).getMaxAmount(getLeafSlot(slot), stack);
     }
 
     @Override
@@ -217,10 +226,8 @@ public class CombinedFixedItemInvView<InvType extends FixedItemInvView> implemen
             return createView(subList);
         }
 
-        List<FixedItemInvView> list = new ArrayList<>(subList);
-        list.set(0, list.get(0).getSubInv(slotFrom, list.get(0).getSlotCount()));
-        list.set(list.size() - 1, list.get(list.size() - 1).getSubInv(0, slotTo));
-        return createView(list);
+        // Otherwise resolve every slot down to the inventories that contain it, rather than nesting sub views
+        return FlatFixedItemInvView.createView(this, SlotArrays.range(fromIndex, toIndex));
     }
 
     @Override
@@ -232,63 +239,6 @@ public class CombinedFixedItemInvView<InvType extends FixedItemInvView> implemen
             return this;
         }
 
-        // Create a mapped inventory that's composed of mapped sub-inventories
-        // (Rather than just this inventory)
-
-        // To do this we need to unpick the slots back into the order of the underlying inventories
-        // and then put them back together for the main one.
-
-        Int2ObjectMap<IntList> invSlotCount = new Int2ObjectRBTreeMap<>();
-        int[] inventoryIndexes = new int[slots.length];
-        int[] inventorySlots = new int[slots.length];
-        IntSet seenSlots = new IntOpenHashSet();
-
-        for (int i = 0; i < slots.length; i++) {
-
-            if (!seenSlots.add(slots[i])) {
-                throw new IllegalArgumentException("Duplicate slot " + slots[i] + " " + Arrays.toString(slots));
-            }
-
-            int inv = getInvIndex(slots[i]);
-            IntList list = invSlotCount.get(inv);
-            if (list == null) {
-                list = new IntArrayList();
-                invSlotCount.put(inv, list);
-            }
-            int sub = getSubSlot(slots[i]);
-            list.add(sub);
-            inventoryIndexes[i] = inv;
-            inventorySlots[i] = sub;
-        }
-        if (invSlotCount.size() == 1) {
-            // We're only mapping to a single inventory
-            return views.get(invSlotCount.keySet().iterator().nextInt()).getMappedInv(inventorySlots);
-        }
-
-        List<FixedItemInvView> invs = new ArrayList<>();
-        for (Int2ObjectMap.Entry<IntList> entry : invSlotCount.int2ObjectEntrySet()) {
-            int inv = entry.getIntKey();
-            IntList invSlots = entry.getValue();
-            invs.add(views.get(inv).getMappedInv(invSlots.toIntArray()));
-        }
-
-        int[] mappedSlots = new int[slots.length];
-        int[] inventorySlotCounter = new int[invs.size()];
-        int[] inventoryStartIndexes = new int[invs.size()];
-
-        int currentIndex = 0;
-        for (int i = 0; i < invs.size(); i++) {
-            inventoryIndexes[i] = currentIndex;
-            currentIndex += invs.get(i).getSlotCount();
-        }
-
-        for (int i = 0; i < slots.length; i++) {
-            int inv = inventoryIndexes[i];
-            int invCount = inventorySlotCounter[inv]++;
-            mappedSlots[i] = invCount + inventoryStartIndexes[inv];
-        }
-
-        FixedItemInvView combined = createView(invs);
-        return MappedFixedItemInvView.createView(combined, mappedSlots);
+        return FlatFixedItemInvView.createView(this, slots);
     }
 }
@@ -7,20 +7,36 @@
  */
 package alexiil.mc.lib.attributes.item.impl;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import net.minecraft.item.ItemStack;
 
+import alexiil.mc.lib.attributes.ListenerRemovalToken;
+import alexiil.mc.lib.attributes.ListenerToken;
 import alexiil.mc.lib.attributes.Simulation;
 import alexiil.mc.lib.attributes.item.ItemInsertable;
+import alexiil.mc.lib.attributes.item.ItemInsertionFilterListener;
 import alexiil.mc.lib.attributes.item.filter.AggregateItemFilter;
 import alexiil.mc.lib.attributes.item.filter.ItemFilter;
 
+/** An {@link ItemInsertable} that tries to insert into every one of a list of insertables, in order.
+ * <p>
+ * The combined {@link #getInsertionFilter()} is cached: it's rebuilt only if one of the children returns a different
+ * filter object (or notifies a registered {@link ItemInsertionFilterListener}). */
 public final class CombinedItemInsertable implements ItemInsertable {
 
     private final List<? extends ItemInsertable> insertables;
 
+    /** The child filters that {@link #cachedFilter} was built from, or null if it hasn't been built yet (or has been
+     * invalidated by a filter change listener). */
+    private ItemFilter[] cachedChildFilters;
+    private ItemFilter cachedFilter;
+
+    /** The number of {@link ItemInsertionFilterListener}s registered with this. While this is positive every child
+     * insertable will tell us about filter changes, so {@link #cachedFilter} can be returned without checking them. */
+    private int filterListenerCount;
+
     public CombinedItemInsertable(List<? extends ItemInsertable> list) {
         this.insertables = list;
     }
@@ -38,10 +54,78 @@ public final class CombinedItemInsertable implements ItemInsertable {
 
     @Override
     public ItemFilter getInsertionFilter() {
-        List<ItemFilter> filters = new ArrayList<>(insertables.size());
-        for (int i = 0; i < insertables.size(); i++) {
-            filters.add(insertables.get(i).getInsertionFilter());
+        ItemFilter[] filters = cachedChildFilters;
+        if (filters != null) {
+            if (filterListenerCount > 0) {
+                return cachedFilter;
+            }
+            // Most insertables return the same filter object every time, so this is usually enough to revalidate
+            boolean unchanged = true;
+            for (int i = 0; i < filters.length; i++) {
+                if (insertables.get(i).getInsertionFilter() != filters[i]) {
+                    unchanged = false;
+                    break;
+                }
+            }
+            if (unchanged) {
+                return cachedFilter;
+            }
+        }
+        filters = new ItemFilter[insertables.size()];
+        for (int i = 0; i < filters.length; i++) {
+            filters[i] = insertables.get(i).getInsertionFilter();
         }
-        return AggregateItemFilter.anyOf(filters);
+        cachedFilter = AggregateItemFilter.anyOf(Arrays.asList(filters));
+        cachedChildFilters = filters;
+        return cachedFilter;
+    }
+
+    @Override
+    public ListenerToken addInsertionFilterListener(
+        ItemInsertionFilterListener listener, ListenerRemovalToken removalToken
+    ) {
+        final ListenerToken[] tokens = new ListenerToken[insertables.size()];
+        final ListenerRemovalToken ourRemToken = new ListenerRemovalToken() {
+
+            boolean hasAlreadyRemoved = false;
+
+            @Override
+            public void onListenerRemoved() {
+                for (ListenerToken token : tokens) {
+                    if (token == null) {
+                        // This means we have only half-initialised
+                        // (and all of the next tokens must also be null)
+                        return;
+                    }
+                    token.removeListener();
+                }
+                if (!hasAlreadyRemoved) {
+                    hasAlreadyRemoved = true;
+                    filterListenerCount--;
+                    removalToken.onListenerRemoved();
+                }
+            }
+        };
+        final ItemInsertable wrapper = this;
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = insertables.get(i).addInsertionFilterListener(insertable -> {
+                cachedChildFilters = null;
+                listener.onInsertionFilterChange(wrapper);
+            }, ourRemToken);
+            if (tokens[i] == null) {
+                for (int j = 0; j < i; j++) {
+                    tokens[j].removeListener();
+                }
+                return null;
+            }
+        }
+        // A child might have changed before we started listening to it
+        cachedChildFilters = null;
+        filterListenerCount++;
+        return () -> {
+            for (ListenerToken token : tokens) {
+                token.removeListener();
+            }
+        };
     }
 }
@@ -0,0 +1,472 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.item.impl;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+
+import net.minecraft.item.ItemStack;
+import net.minecraft.util.Util;
+
+import alexiil.mc.lib.attributes.ListenerRemovalToken;
+import alexiil.mc.lib.attributes.ListenerToken;
+import alexiil.mc.lib.attributes.Simulation;
+import alexiil.mc.lib.attributes.item.GroupedItemInv;
+import alexiil.mc.lib.attributes.item.ItemInvAmountChangeListener;
+import alexiil.mc.lib.attributes.item.ItemKey;
+import alexiil.mc.lib.attributes.item.ItemStackCollections;
+import alexiil.mc.lib.attributes.item.filter.ConstantItemFilter;
+import alexiil.mc.lib.attributes.item.filter.ExactItemStackFilter;
+import alexiil.mc.lib.attributes.item.filter.ItemFilter;
+
+import it.unimi.dsi.fastutil.objects.Object2ObjectLinkedOpenCustomHashMap;
+
+/** A {@link GroupedItemInv} that can be safely used from multiple threads at once, for example by an asynchronous
+ * crafting planner that queries and {@link #reserve(ItemFilter, int) reserves} items while the server thread inserts
+ * and extracts them.
+ * <p>
+ * Every item type has its own lock, so operations on different item types never block each other, and the total
+ * capacity is claimed with a single atomic counter.
+ * <p>
+ * Listeners are never called concurrently: every change is queued (while the item type is locked, so the changes for a
+ * single item type are always queued in the same order that they happened in), and then the queue is delivered in
+ * order by whichever thread gets to it first. As such a listener might be called on a different thread to the one that
+ * made the change, and might be called slightly after the method that made the change has returned. */
+public class ConcurrentGroupedItemInv implements GroupedItemInv {
+
+    private static final ItemInvAmountChangeListener[] NO_LISTENERS = new ItemInvAmountChangeListener[0];
+
+    public final int maxItemTypes;
+    public final int maxItems;
+
+    private final ConcurrentHashMap<ItemKey, Entry> entries = new ConcurrentHashMap<>();
+
+    /** The total amount of every entry, including reserved items. */
+    private final AtomicInteger totalAmount = new AtomicInteger();
+
+    /** The number of entries in {@link #entries}, which is claimed before adding a new entry. */
+    private final AtomicInteger typeCount = new AtomicInteger();
+
+    private final AtomicInteger changes = new AtomicInteger();
+
+    private final Map<ItemInvAmountChangeListener, ListenerRemovalToken> listeners
+        = new Object2ObjectLinkedOpenCustomHashMap<>(Util.identityHashStrategy());
+
+    private volatile ItemInvAmountChangeListener[] bakedListeners = NO_LISTENERS;
+
+    private final ConcurrentLinkedQueue<ChangeEvent> pendingEvents = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean delivering = new AtomicBoolean();
+
+    public ConcurrentGroupedItemInv(int maxItemTypes, int maxItems) {
+        this.maxItemTypes = maxItemTypes;
+        this.maxItems = maxItems;
+    }
+
+    /** A single stored item type. Every field other than the key and the stack is guarded by the entry itself. */
+    static final class Entry {
+        final ItemKey key;
+
+        /** A single-count stack for {@link #key}, which is never modified. */
+        final ItemStack stack;
+
+        /** The total amount stored, including {@link #reserved}. */
+        int amount;
+
+        /** The amount that has been reserved by {@link Reservation}s, which can't be extracted by anything else. */
+        int reserved;
+
+        /** True once this has been removed from {@link ConcurrentGroupedItemInv#entries}, after which it must never be
+         * modified. */
+        boolean removed;
+
+        Entry(ItemKey key) {
+            this.key = key;
+            this.stack = key.toStack();
+        }
+    }
+
+    static final class ChangeEvent {
+        final ItemStack stack;
+        final int previous, current;
+
+        ChangeEvent(ItemStack stack, int previous, int current) {
+            this.stack = stack;
+            this.previous = previous;
+            this.current = current;
+        }
+    }
+
+    /** Some items that have been set aside by {@link ConcurrentGroupedItemInv#reserve(ItemFilter, int)}. These still
+     * count as stored (so {@link ConcurrentGroupedItemInv#getAmount(ItemStack)} includes them), but they can't be
+     * extracted or reserved by anything else until they are either committed or cancelled. */
+    public final class Reservation {
+        private final Entry entry;
+        private final int amount;
+        private boolean finished;
+
+        Reservation(Entry entry, int amount) {
+            this.entry = entry;
+            this.amount = amount;
+        }
+
+        public int getAmount() {
+            return amount;
+        }
+
+        /** @return A new stack of the reserved items. This doesn't extract them. */
+        public ItemStack getStack() {
+            return entry.key.toStack(amount);
+        }
+
+        /** Removes the reserved items from the inventory.
+         *
+         * @return The extracted items.
+         * @throws IllegalStateException if this has already been committed or cancelled. */
+        public ItemStack commit() {
+            synchronized (entry) {
+                if (finished) {
+                    throw new IllegalStateException("This reservation has already been committed or cancelled!");
+                }
+                finished = true;
+                int previous = entry.amount;
+                entry.reserved -= amount;
+                entry.amount -= amount;
+                totalAmount.addAndGet(-amount);
+                queueChange(entry, previous);
+                removeIfEmpty(entry);
+            }
+            deliverEvents();
+            return entry.key.toStack(amount);
+        }
+
+        /** Makes the reserved items available to everything else again. This does nothing if this reservation has
+         * already been committed or cancelled. */
+        public void cancel() {
+            synchronized (entry) {
+                if (finished) {
+                    return;
+                }
+                finished = true;
+                entry.reserved -= amount;
+            }
+        }
+    }
+
+    // Queries
+
+    @Override
+    public Set<ItemStack> getStoredStacks() {
+        // The entries change concurrently, so this can only be a snapshot
+        Set<ItemStack> set = ItemStackCollections.openLinkedHashSet();
+        for (Entry entry : entries.values()) {
+            synchronized (entry) {
+                if (!entry.removed && entry.amount > 0) {
+                    set.add(entry.stack);
+                }
+            }
+        }
+        return set;
+    }
+
+    @Override
+    public int getAmount(ItemStack stack) {
+        Entry entry = stack.isEmpty() ? null : entries.get(ItemKey.of(stack));
+        if (entry == null) {
+            return 0;
+        }
+        synchronized (entry) {
+            return entry.amount;
+        }
+    }
+
+    /** @return The amount of the given stack that isn't reserved, and so can be extracted or reserved. */
+    public int getAvailableAmount(ItemStack stack) {
+        Entry entry = stack.isEmpty() ? null : entries.get(ItemKey.of(stack));
+        if (entry == null) {
+            return 0;
+        }
+        synchronized (entry) {
+            return entry.amount - entry.reserved;
+        }
+    }
+
+    @Override
+    public int getAmount(ItemFilter filter) {
+        if (filter == ConstantItemFilter.ANYTHING) {
+            return totalAmount.get();
+        } else if (filter == ConstantItemFilter.NOTHING) {
+            return 0;
+        } else if (filter instanceof ExactItemStackFilter) {
+            return getAmount(((ExactItemStackFilter) filter).stack);
+        }
+        int total = 0;
+        for (Entry entry : entries.values()) {
+            if (filter.matches(entry.stack)) {
+                synchronized (entry) {
+                    total += entry.amount;
+                }
+            }
+        }
+        return total;
+    }
+
+    @Override
+    public int getTotalCapacity() {
+        return maxItems;
+    }
+
+    @Override
+    public ItemInvStatistic getStatistics(ItemFilter filter) {
+        int total = totalAmount.get();
+        int matching = getAmount(filter);
+        // Everything that doesn't match the filter takes up space that the filter could otherwise use
+        return new ItemInvStatistic(filter, matching, 0, maxItems - (total - matching));
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return totalAmount.get() == 0;
+    }
+
+    // Modification
+
+    @Override
+    public ItemStack attemptInsertion(ItemStack stack, Simulation simulation) {
+        if (stack.isEmpty()) {
+            return stack;
+        }
+        ItemKey key = ItemKey.of(stack);
+        if (simulation == Simulation.SIMULATE) {
+            if (!entries.containsKey(key) && typeCount.get() >= maxItemTypes) {
+                return stack;
+            }
+            int insertable = Math.min(stack.getCount(), maxItems - totalAmount.get());
+            return insertable <= 0 ? stack : copyDecremented(stack, insertable);
+        }
+        while (true) {
+            Entry entry = getOrCreateEntry(key);
+            if (entry == null) {
+                return stack;
+            }
+            int insertable;
+            synchronized (entry) {
+                if (entry.removed) {
+                    // Someone else emptied (and removed) it between us getting it and locking it
+                    continue;
+                }
+                insertable = claimSpace(stack.getCount());
+                if (insertable > 0) {
+                    int previous = entry.amount;
+                    entry.amount += insertable;
+                    queueChange(entry, previous);
+                } else {
+                    removeIfEmpty(entry);
+                }
+            }
+            if (insertable <= 0) {
+                return stack;
+            }
+            deliverEvents();
+            return copyDecremented(stack, insertable);
+        }
+    }
+
+    @Override
+    public ItemStack attemptExtraction(ItemFilter filter, int maxAmount, Simulation simulation) {
+        if (maxAmount <= 0) {
+            return ItemStack.EMPTY;
+        }
+        for (Entry entry : getCandidates(filter)) {
+            int extracted;
+            synchronized (entry) {
+                if (entry.removed) {
+                    continue;
+                }
+                extracted = Math.min(entry.amount - entry.reserved, maxAmount);
+                if (extracted <= 0) {
+                    continue;
+                }
+                if (simulation == Simulation.ACTION) {
+                    int previous = entry.amount;
+                    entry.amount -= extracted;
+                    totalAmount.addAndGet(-extracted);
+                    queueChange(entry, previous);
+                    removeIfEmpty(entry);
+                }
+            }
+            deliverEvents();
+            return entry.key.toStack(extracted);
+        }
+        return ItemStack.EMPTY;
+    }
+
+    /** Atomically sets aside up to the given amount of the first item type that matches the given filter, so that it
+     * can't be extracted (or reserved) by anything else until the returned {@link Reservation} is either
+     * {@link Reservation#commit() committed} or {@link Reservation#cancel() cancelled}.
+     *
+     * @return The reservation, or null if nothing could be reserved. */
+    @Nullable
+    public Reservation reserve(ItemFilter filter, int maxAmount) {
+        if (maxAmount <= 0) {
+            return null;
+        }
+        for (Entry entry : getCandidates(filter)) {
+            synchronized (entry) {
+                if (entry.removed) {
+                    continue;
+                }
+                int reserved = Math.min(entry.amount - entry.reserved, maxAmount);
+                if (reserved <= 0) {
+                    continue;
+                }
+                entry.reserved += reserved;
+                return new Reservation(entry, reserved);
+            }
+        }
+        return null;
+    }
+
+    private Iterable<Entry> getCandidates(ItemFilter filter) {
+        if (filter == ConstantItemFilter.NOTHING) {
+            return Collections.emptyList();
+        } else if (filter instanceof ExactItemStackFilter) {
+            ItemStack stack = ((ExactItemStackFilter) filter).stack;
+            Entry entry = stack.isEmpty() ? null : entries.get(ItemKey.of(stack));
+            return entry == null ? Collections.emptyList() : Collections.singletonList(entry);
+        } else if (filter == ConstantItemFilter.ANYTHING) {
+            return entries.values();
+        }
+        return () -> entries.values().stream().filter(e -> filter.matches(e.stack)).iterator();
+    }
+
+    @Nullable
+    private Entry getOrCreateEntry(ItemKey key) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            return entry;
+        }
+        while (true) {
+            int types = typeCount.get();
+            if (types >= maxItemTypes) {
+                return null;
+            }
+            if (typeCount.compareAndSet(types, types + 1)) {
+                break;
+            }
+        }
+        Entry created = new Entry(key);
+        Entry previous = entries.putIfAbsent(key, created);
+        if (previous != null) {
+            typeCount.decrementAndGet();
+            return previous;
+        }
+        return created;
+    }
+
+    /** Must be called while holding the lock on the entry. */
+    private void removeIfEmpty(Entry entry) {
+        if (entry.amount == 0 && entry.reserved == 0 && !entry.removed) {
+            entry.removed = true;
+            entries.remove(entry.key, entry);
+            typeCount.decrementAndGet();
+        }
+    }
+
+    /** @return The amount of the given count that was claimed from the free space. */
+    private int claimSpace(int count) {
+        while (true) {
+            int current = totalAmount.get();
+            int claimed = Math.min(count, maxItems - current);
+            if (claimed <= 0) {
+                return 0;
+            }
+            if (totalAmount.compareAndSet(current, current + claimed)) {
+                return claimed;
+            }
+        }
+    }
+
+    private static ItemStack copyDecremented(ItemStack stack, int amount) {
+        if (amount >= stack.getCount()) {
+            return ItemStack.EMPTY;
+        }
+        ItemStack copy = stack.copy();
+        copy.decrement(amount);
+        return copy;
+    }
+
+    // Listeners
+
+    @Override
+    public ListenerToken addListener(ItemInvAmountChangeListener listener, ListenerRemovalToken removalToken) {
+        synchronized (listeners) {
+            ListenerRemovalToken previous = listeners.put(listener, removalToken);
+            if (previous == null) {
+                bakeListeners();
+            } else {
+                assert previous == removalToken
+                    : "The same listener object must be registered with the same removal token";
+            }
+        }
+        return () -> {
+            ListenerRemovalToken token;
+            synchronized (listeners) {
+                token = listeners.remove(listener);
+                if (token != null) {
+                    bakeListeners();
+                }
+            }
+            if (token != null) {
+                assert token == removalToken;
+                removalToken.onListenerRemoved();
+            }
+        };
+    }
+
+    private void bakeListeners() {
+        bakedListeners = listeners.keySet().toArray(new ItemInvAmountChangeListener[0]);
+    }
+
+    @Override
+    public int getChangeValue() {
+        return changes.get();
+    }
+
+    /** Must be called while holding the lock on the entry, so that the changes for every entry are queued in order. */
+    private void queueChange(Entry entry, int previous) {
+        changes.incrementAndGet();
+        if (bakedListeners.length > 0) {
+            pendingEvents.add(new ChangeEvent(entry.stack, previous, entry.amount));
+        }
+    }
+
+    /** Delivers every queued change (in order) unless another thread is already delivering them. This must not be
+     * called while holding the lock on any entry. */
+    private void deliverEvents() {
+        while (!pendingEvents.isEmpty() && delivering.compareAndSet(false, true)) {
+            try {
+                ChangeEvent event;
+                while ((event = pendingEvents.poll()) != null) {
+                    for (ItemInvAmountChangeListener listener : bakedListeners) {
+                        listener.onChange(this, event.stack, event.previous, event.current);
+                    }
+                }
+            } finally {
+                delivering.set(false);
+            }
+            // Loop in case another thread queued something after we finished polling, but before we unlocked
+        }
+    }
+}
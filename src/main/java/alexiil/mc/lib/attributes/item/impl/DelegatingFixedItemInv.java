@@ -16,6 +16,7 @@ import alexiil.mc.lib.attributes.item.FixedItemInv;
 import alexiil.mc.lib.attributes.item.FixedItemInvView;
 import alexiil.mc.lib.attributes.item.InvMarkDirtyListener;
 import alexiil.mc.lib.attributes.item.ItemInvSlotChangeListener;
+import alexiil.mc.lib.attributes.item.ItemStackHandle;
 import alexiil.mc.lib.attributes.item.filter.ItemFilter;
 
 /** A simple delegate base class for {@link FixedItemInv}. */
@@ -116,6 +117,11 @@ public class DelegatingFixedItemInv implements FixedItemInv {
             return ((CopyingFixedItemInv) delegate).getUnmodifiableInvStack(slot);
         }
 
+        @Override
+        public ItemStackHandle getInvStackHandle(int slot) {
+            return ((CopyingFixedItemInv) delegate).getInvStackHandle(slot);
+        }
+
         @Override
         public ListenerToken addListener(ItemInvSlotChangeListener listener, ListenerRemovalToken removalToken) {
             FixedItemInvView wrapper = this;
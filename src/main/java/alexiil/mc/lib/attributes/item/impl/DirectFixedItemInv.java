@@ -23,6 +23,7 @@ import alexiil.mc.lib.attributes.item.FixedItemInv.ModifiableFixedItemInv;
 import alexiil.mc.lib.attributes.item.GroupedItemInv;
 import alexiil.mc.lib.attributes.item.InvMarkDirtyListener;
 import alexiil.mc.lib.attributes.item.ItemInvAmountChangeListener;
+import alexiil.mc.lib.attributes.item.ItemInvSlotVisitor;
 import alexiil.mc.lib.attributes.item.filter.ItemFilter;
 import alexiil.mc.lib.attributes.misc.Saveable;
 
@@ -43,6 +44,13 @@ public class DirectFixedItemInv implements ModifiableFixedItemInv, GroupedItemIn
 
     private int changes = 0;
 
+    /** Returned by {@link #getFilterForSlot(int)}, so that callers that cache filters by identity can reuse them. */
+    private final ItemFilter[] slotFilters;
+
+    /** If true then {@link #markDirty()} just sets {@link #hasPendingChanges} instead of calling the listeners. */
+    private boolean coalesceChanges = false;
+    private boolean hasPendingChanges = false;
+
     // TODO: Optimise this to cache more information!
     private final GroupedItemInv groupedVersion = new GroupedItemInvFixedWrapper(this);
 
@@ -56,6 +64,11 @@ public class DirectFixedItemInv implements ModifiableFixedItemInv, GroupedItemIn
     public DirectFixedItemInv(int slotCount) {
         this.slotCount = slotCount;
         this.slots = DefaultedList.ofSize(slotCount, ItemStack.EMPTY);
+        this.slotFilters = new ItemFilter[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            int slot = i;
+            slotFilters[i] = stack -> isItemValidForSlot(slot, stack);
+        }
     }
 
     // ##################
@@ -79,12 +92,50 @@ public class DirectFixedItemInv implements ModifiableFixedItemInv, GroupedItemIn
 
     @Override
     public final void markDirty() {
+        fireChange();
+    }
+
+    private void fireChange() {
         changes++;
+        if (coalesceChanges) {
+            hasPendingChanges = true;
+            return;
+        }
+        fireMarkDirty();
+    }
+
+    private void fireMarkDirty() {
         for (InvMarkDirtyListener listener : bakedListeners) {
             listener.onMarkDirty(this);
         }
     }
 
+    /** Opt-in mode for inventories that change many times per tick: while this is enabled {@link #markDirty()} only
+     * records that this inventory has changed (and increments {@link #getChangeValue()}), and the listeners are only
+     * called once, by the next call to {@link #flushChanges()}. The owner of this inventory is responsible for calling
+     * that (for example once per tick, or at the end of a transaction).
+     * <p>
+     * Disabling this flushes any pending changes. */
+    public final void setCoalesceChanges(boolean coalesce) {
+        coalesceChanges = coalesce;
+        if (!coalesce) {
+            flushChanges();
+        }
+    }
+
+    public final boolean isCoalescingChanges() {
+        return coalesceChanges;
+    }
+
+    /** Calls every listener once if {@link #markDirty()} has been called since the last flush. This does nothing unless
+     * {@link #setCoalesceChanges(boolean)} is enabled. */
+    public final void flushChanges() {
+        if (hasPendingChanges) {
+            hasPendingChanges = false;
+            fireMarkDirty();
+        }
+    }
+
     /** Removes every listener currently registered to this inventory. */
     public final void invalidateListeners() {
         bakedListeners = INVALIDATING_LISTENERS;
@@ -114,28 +165,46 @@ public class DirectFixedItemInv implements ModifiableFixedItemInv, GroupedItemIn
         return toTag(new CompoundTag());
     }
 
+    /** Writes every non-empty slot to an "items" list, with the slot index stored in each item's "Slot" int. (Older
+     * versions wrote a "slots" list with an entry for every slot instead, which {@link #fromTag(CompoundTag)} can still
+     * read). */
     @Override
     public CompoundTag toTag(CompoundTag tag) {
-        ListTag slotsTag = new ListTag();
-        for (ItemStack stack : slots) {
-            if (stack.isEmpty()) {
-                slotsTag.add(new CompoundTag());
-            } else {
-                slotsTag.add(stack.toTag(new CompoundTag()));
+        ListTag itemsTag = new ListTag();
+        for (int slot = 0; slot < slotCount; slot++) {
+            ItemStack stack = slots.get(slot);
+            if (!stack.isEmpty()) {
+                CompoundTag slotTag = stack.toTag(new CompoundTag());
+                slotTag.putInt("Slot", slot);
+                itemsTag.add(slotTag);
             }
         }
-        tag.put("slots", slotsTag);
+        tag.put("items", itemsTag);
         return tag;
     }
 
     @Override
     public void fromTag(CompoundTag tag) {
-        ListTag slotsTag = tag.getList("slots", new CompoundTag().getType());
-        for (int i = 0; i < slotsTag.size() && i < slots.size(); i++) {
-            slots.set(i, ItemStack.fromTag(slotsTag.getCompound(i)));
-        }
-        for (int i = slotsTag.size(); i < slots.size(); i++) {
-            slots.set(i, ItemStack.EMPTY);
+        if (tag.contains("items") || !tag.contains("slots")) {
+            for (int i = 0; i < slots.size(); i++) {
+                slots.set(i, ItemStack.EMPTY);
+            }
+            ListTag itemsTag = tag.getList("items", new CompoundTag().getType());
+            for (int i = 0; i < itemsTag.size(); i++) {
+                CompoundTag itemTag = itemsTag.getCompound(i);
+                int slot = itemTag.getInt("Slot");
+                if (slot >= 0 && slot < slots.size()) {
+                    slots.set(slot, ItemStack.fromTag(itemTag));
+                }
+            }
+        } else {
+            ListTag slotsTag = tag.getList("slots", new CompoundTag().getType());
+            for (int i = 0; i < slotsTag.size() && i < slots.size(); i++) {
+                slots.set(i, ItemStack.fromTag(slotsTag.getCompound(i)));
+            }
+            for (int i = slotsTag.size(); i < slots.size(); i++) {
+                slots.set(i, ItemStack.EMPTY);
+            }
         }
     }
 
@@ -156,11 +225,27 @@ public class DirectFixedItemInv implements ModifiableFixedItemInv, GroupedItemIn
         return slots.get(slot);
     }
 
+    @Override
+    public void forEachStack(ItemInvSlotVisitor visitor) {
+        for (int slot = 0; slot < slotCount; slot++) {
+            ItemStack stack = slots.get(slot);
+            if (!stack.isEmpty()) {
+                visitor.visit(slot, stack);
+            }
+        }
+    }
+
     @Override
     public boolean isItemValidForSlot(int slot, ItemStack stack) {
         return true;
     }
 
+    @Override
+    public ItemFilter getFilterForSlot(int slot) {
+        validateSlotIndex(slot);
+        return slotFilters[slot];
+    }
+
     @Override
     public final ListenerToken addListener(InvMarkDirtyListener listener, ListenerRemovalToken removalToken) {
         if (bakedListeners == INVALIDATING_LISTENERS) {
@@ -213,7 +298,7 @@ public class DirectFixedItemInv implements ModifiableFixedItemInv, GroupedItemIn
         }
         if (simulation.isAction()) {
             slots.set(slot, to);
-            markDirty();
+            fireChange();
         }
         return true;
     }
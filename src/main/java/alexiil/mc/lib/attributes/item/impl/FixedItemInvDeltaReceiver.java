@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.item.impl;
+
+import java.io.IOException;
+
+import net.minecraft.item.ItemStack;
+import net.minecraft.network.PacketByteBuf;
+
+import alexiil.mc.lib.attributes.item.FixedItemInv;
+
+/** Reads the packets written by a {@link FixedItemInvDeltaSender}, and applies them to a (client side)
+ * {@link FixedItemInv}. */
+public final class FixedItemInvDeltaReceiver {
+
+    private final FixedItemInv inv;
+    private int version = 0;
+
+    /** @param inv The inventory to apply the changes to. This should start out empty, and only be changed by this
+     *            receiver. */
+    public FixedItemInvDeltaReceiver(FixedItemInv inv) {
+        this.inv = inv;
+    }
+
+    /** @return The version of the last packet that was applied, which should be sent back to the
+     *         {@link FixedItemInvDeltaSender#acknowledge(int) sender}. */
+    public int getVersion() {
+        return version;
+    }
+
+    /** Reads a single packet from the given buffer, and applies it to the inventory (unless it's older than the last
+     * packet that was applied, in which case it's read but ignored).
+     *
+     * @return The version of the packet that was read.
+     * @throws IOException if the packet was for an inventory with a different number of slots, or contained an
+     *             invalid slot index. */
+    public int readChanges(PacketByteBuf buffer) throws IOException {
+        int packetVersion = buffer.readVarInt();
+        int slotCount = buffer.readVarInt();
+        if (slotCount != inv.getSlotCount()) {
+            throw new IOException(
+                "The packet was for an inventory with " + slotCount + " slots, but ours has " + inv.getSlotCount()
+            );
+        }
+        boolean apply = packetVersion > version;
+        int count = buffer.readVarInt();
+        int slot = 0;
+        for (int i = 0; i < count; i++) {
+            slot += buffer.readVarInt();
+            if (slot < 0 || slot >= slotCount) {
+                throw new IOException("Invalid slot index " + slot + " (slot count = " + slotCount + ")");
+            }
+            ItemStack stack = buffer.readBoolean() ? ItemStack.fromTag(buffer.readCompoundTag()) : ItemStack.EMPTY;
+            if (apply) {
+                inv.forceSetInvStack(slot, stack);
+            }
+        }
+        if (apply) {
+            version = packetVersion;
+        }
+        return packetVersion;
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.item.impl;
+
+import java.util.BitSet;
+
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.network.PacketByteBuf;
+
+import alexiil.mc.lib.attributes.ListenerToken;
+import alexiil.mc.lib.attributes.item.FixedItemInv.CopyingFixedItemInv;
+import alexiil.mc.lib.attributes.item.FixedItemInvView;
+
+/** Writes the contents of a {@link FixedItemInvView} to network packets, only including the slots that have changed
+ * since the last version that the receiver {@link #acknowledge(int) acknowledged}. The packets are read by a
+ * {@link FixedItemInvDeltaReceiver}.
+ * <p>
+ * Every packet contains every slot that changed since the acknowledged version (rather than since the last packet), so
+ * a packet can always be applied on top of the acknowledged state, and a receiver that only acknowledges every few
+ * packets still ends up with the correct contents. Mods that send over a connection that never drops or reorders
+ * packets (like the normal minecraft connection) can just call {@link #acknowledge(int)} with the returned version
+ * straight after sending.
+ * <p>
+ * If the inventory is a {@link CopyingFixedItemInv} (that supports listeners) then only the slots that it reports as
+ * changed are compared with the previously sent stacks, otherwise every slot is compared whenever
+ * {@link FixedItemInvView#getChangeValue()} changes.
+ * <p>
+ * One sender should be used per receiver, and {@link #close()} should be called when it's no longer needed (for example
+ * when the GUI is closed) to remove the listener that it added to the inventory.
+ * <p>
+ * The packet format is: the version (varint), the slot count (varint), the number of changed slots (varint), and then
+ * for every changed slot (in ascending order): the slot index minus the previous changed index (varint), and then a
+ * boolean for whether the slot is non-empty, followed by the stack's tag if it is. */
+public final class FixedItemInvDeltaSender {
+
+    private final FixedItemInvView inv;
+    private final int slotCount;
+
+    /** The (copied) stacks that were last written for every slot. */
+    private final ItemStack[] lastSent;
+
+    /** The version that every slot last changed in (0 if it has never changed). */
+    private final int[] slotVersions;
+
+    /** Every slot that the listener reported as changed since the last packet, or null if the inventory doesn't
+     * support listeners. */
+    private final BitSet changedSlots;
+    private final ListenerToken listenerToken;
+
+    /** False if the inventory doesn't support listeners, or has removed ours. */
+    private boolean listening;
+
+    private int lastChangeValue;
+    private boolean checkEverySlot = true;
+
+    private int version = 0;
+
+    /** The last version that the receiver applied. This starts at 0 as every receiver starts out empty, and is set to
+     * -1 by {@link #resync()}. */
+    private int acknowledgedVersion = 0;
+
+    public FixedItemInvDeltaSender(FixedItemInvView inv) {
+        this.inv = inv;
+        this.slotCount = inv.getSlotCount();
+        this.lastSent = new ItemStack[slotCount];
+        this.slotVersions = new int[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            lastSent[i] = ItemStack.EMPTY;
+        }
+
+        ListenerToken token = null;
+        BitSet changed = null;
+        if (inv instanceof CopyingFixedItemInv) {
+            BitSet bits = new BitSet(slotCount);
+            token = ((CopyingFixedItemInv) inv).addListener((i, slot, previous, current) -> {
+                bits.set(slot);
+            }, () -> {
+                // The inventory removed us, so just fall back to checking every slot
+                listening = false;
+            });
+            if (token != null) {
+                changed = bits;
+            }
+        }
+        this.changedSlots = changed;
+        this.listenerToken = token;
+        this.listening = token != null;
+    }
+
+    /** @return The version of the last packet that was written, or 0 if no packets have been written yet. */
+    public int getVersion() {
+        return version;
+    }
+
+    /** Informs this sender that the receiver has applied the packet with the given version (and so also every packet
+     * before it). */
+    public void acknowledge(int ackVersion) {
+        if (ackVersion > acknowledgedVersion && ackVersion <= version) {
+            acknowledgedVersion = ackVersion;
+        }
+    }
+
+    /** Makes the next packet contain every slot, for example if the receiver lost its state. */
+    public void resync() {
+        acknowledgedVersion = -1;
+    }
+
+    /** Writes a packet containing every slot that has changed since the last acknowledged version, unless nothing has
+     * changed since then.
+     *
+     * @return True if a packet was written (and so should be sent), or false if nothing was written to the buffer. */
+    public boolean writeChanges(PacketByteBuf buffer) {
+        int nextVersion = version + 1;
+        detectChanges(nextVersion);
+
+        int count = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (slotVersions[slot] > acknowledgedVersion) {
+                count++;
+            }
+        }
+        if (count == 0) {
+            return false;
+        }
+        version = nextVersion;
+        buffer.writeVarInt(version);
+        buffer.writeVarInt(slotCount);
+        buffer.writeVarInt(count);
+        int previousSlot = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (slotVersions[slot] <= acknowledgedVersion) {
+                continue;
+            }
+            buffer.writeVarInt(slot - previousSlot);
+            previousSlot = slot;
+            ItemStack stack = lastSent[slot];
+            if (stack.isEmpty()) {
+                buffer.writeBoolean(false);
+            } else {
+                buffer.writeBoolean(true);
+                buffer.writeCompoundTag(stack.toTag(new CompoundTag()));
+            }
+        }
+        return true;
+    }
+
+    private void detectChanges(int nextVersion) {
+        if (acknowledgedVersion < 0) {
+            // Full resync, so make sure that every slot's stack is up-to-date
+            checkEverySlot = true;
+        }
+        int changeValue = inv.getChangeValue();
+        if (!checkEverySlot && changeValue == lastChangeValue) {
+            return;
+        }
+        lastChangeValue = changeValue;
+        if (checkEverySlot || !listening) {
+            for (int slot = 0; slot < slotCount; slot++) {
+                checkSlot(slot, nextVersion);
+            }
+            if (changedSlots != null) {
+                changedSlots.clear();
+            }
+        } else {
+            for (int slot = changedSlots.nextSetBit(0); slot >= 0; slot = changedSlots.nextSetBit(slot + 1)) {
+                checkSlot(slot, nextVersion);
+            }
+            changedSlots.clear();
+        }
+        checkEverySlot = false;
+    }
+
+    private void checkSlot(int slot, int nextVersion) {
+        ItemStack current = inv.getInvStack(slot);
+        if (!ItemStack.areEqual(current, lastSent[slot])) {
+            lastSent[slot] = current.isEmpty() ? ItemStack.EMPTY : current.copy();
+            slotVersions[slot] = nextVersion;
+        }
+    }
+
+    /** Removes the listener that this added to the inventory (if any). */
+    public void close() {
+        if (listenerToken != null) {
+            listenerToken.removeListener();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.item.impl;
+
+import net.minecraft.item.ItemStack;
+
+import alexiil.mc.lib.attributes.ListenerRemovalToken;
+import alexiil.mc.lib.attributes.ListenerToken;
+import alexiil.mc.lib.attributes.Simulation;
+import alexiil.mc.lib.attributes.item.FixedItemInv;
+import alexiil.mc.lib.attributes.item.FixedItemInvView;
+import alexiil.mc.lib.attributes.item.ItemInvSlotChangeListener;
+import alexiil.mc.lib.attributes.item.ItemStackHandle;
+import alexiil.mc.lib.attributes.misc.SlotArrays;
+
+/** The modifiable version of {@link FlatFixedItemInvView}. */
+public class FlatFixedItemInv extends FlatFixedItemInvView implements FixedItemInv {
+
+    protected FlatFixedItemInv(FixedItemInv[] invs, int[] slotInv, int[] slotIndex) {
+        super(invs, slotInv, slotIndex);
+    }
+
+    /** @return An inventory of the given slots of the given inventory, resolved down to the base inventories. This
+     *         returns a sub or mapped inventory of the base inventory if every slot resolves to the same one, or a flat
+     *         inventory otherwise. */
+    public static FixedItemInv create(FixedItemInv inv, int[] slots) {
+        ResolvedSlots resolved = new ResolvedSlots(inv, slots);
+        if (resolved.bases.size() == 1) {
+            FixedItemInv base = (FixedItemInv) resolved.bases.get(0);
+            int[] baseSlots = resolved.slotIndex;
+            if (base == inv) {
+                // A subclass that we can't look inside, so calling base.getSubInv could just call us again
+                return MappedFixedItemInv.create(inv, baseSlots);
+            }
+            if (SlotArrays.isContiguous(baseSlots)) {
+                return base.getSubInv(baseSlots[0], baseSlots[baseSlots.length - 1] + 1);
+            }
+            return base.getMappedInv(baseSlots);
+        }
+
+        FixedItemInv[] bases = resolved.bases.toArray(new FixedItemInv[0]);
+        boolean allCopying = true;
+        boolean allModifiable = true;
+        for (FixedItemInv base : bases) {
+            allCopying &= base instanceof CopyingFixedItemInv;
+            allModifiable &= base instanceof ModifiableFixedItemInv;
+        }
+        if (allModifiable) {
+            return new OfModifiable(bases, resolved.slotInv, resolved.slotIndex);
+        } else if (allCopying) {
+            return new OfCopying(bases, resolved.slotInv, resolved.slotIndex);
+        }
+        return new FlatFixedItemInv(bases, resolved.slotInv, resolved.slotIndex);
+    }
+
+    @Override
+    public boolean setInvStack(int slot, ItemStack to, Simulation simulation) {
+        return ((FixedItemInv) invs[slotInv[slot]]).setInvStack(slotIndex[slot], to, simulation);
+    }
+
+    @Override
+    public FixedItemInv getSubInv(int fromIndex, int toIndex) {
+        return (FixedItemInv) super.getSubInv(fromIndex, toIndex);
+    }
+
+    @Override
+    public FixedItemInv getMappedInv(int... slots) {
+        return (FixedItemInv) super.getMappedInv(slots);
+    }
+
+    public static class OfModifiable extends FlatFixedItemInv implements ModifiableFixedItemInv {
+
+        protected OfModifiable(FixedItemInv[] invs, int[] slotInv, int[] slotIndex) {
+            super(invs, slotInv, slotIndex);
+        }
+
+        @Override
+        public void markDirty() {
+            for (FixedItemInvView inv : invs) {
+                ((ModifiableFixedItemInv) inv).markDirty();
+            }
+        }
+    }
+
+    public static class OfCopying extends FlatFixedItemInv implements CopyingFixedItemInv {
+
+        protected OfCopying(FixedItemInv[] invs, int[] slotInv, int[] slotIndex) {
+            super(invs, slotInv, slotIndex);
+        }
+
+        @Override
+        public ItemStack getUnmodifiableInvStack(int slot) {
+            return ((CopyingFixedItemInv) invs[slotInv[slot]]).getUnmodifiableInvStack(slotIndex[slot]);
+        }
+
+        @Override
+        public ItemStackHandle getInvStackHandle(int slot) {
+            return ((CopyingFixedItemInv) invs[slotInv[slot]]).getInvStackHandle(slotIndex[slot]);
+        }
+
+        @Override
+        public ListenerToken addListener(ItemInvSlotChangeListener listener, ListenerRemovalToken removalToken) {
+            final ListenerToken[] tokens = new ListenerToken[invs.length];
+            final ListenerRemovalToken ourRemToken = new ListenerRemovalToken() {
+
+                boolean hasAlreadyRemoved = false;
+
+                @Override
+                public void onListenerRemoved() {
+                    for (ListenerToken token : tokens) {
+                        if (token == null) {
+                            // This means we have only half-initialised
+                            // (and all of the next tokens must also be null)
+                            return;
+                        }
+                        token.removeListener();
+                    }
+                    if (!hasAlreadyRemoved) {
+                        hasAlreadyRemoved = true;
+                        removalToken.onListenerRemoved();
+                    }
+                }
+            };
+            final FixedItemInvView wrapper = this;
+            for (int i = 0; i < tokens.length; i++) {
+                final int index = i;
+                tokens[i] = ((CopyingFixedItemInv) invs[i]).addListener((inv, baseSlot, previous, current) -> {
+                    int exposedSlot = inverseSlotMaps[index].get(baseSlot);
+                    if (exposedSlot >= 0) {
+                        listener.onChange(wrapper, exposedSlot, previous, current);
+                    }
+                }, ourRemToken);
+                if (tokens[i] == null) {
+                    for (int j = 0; j < i; j++) {
+                        tokens[j].removeListener();
+                    }
+                    return null;
+                }
+            }
+            return () -> {
+                for (ListenerToken token : tokens) {
+                    token.removeListener();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.item.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.minecraft.item.ItemStack;
+
+import alexiil.mc.lib.attributes.ListenerRemovalToken;
+import alexiil.mc.lib.attributes.ListenerToken;
+import alexiil.mc.lib.attributes.item.FixedItemInv;
+import alexiil.mc.lib.attributes.item.FixedItemInvView;
+import alexiil.mc.lib.attributes.item.InvMarkDirtyListener;
+import alexiil.mc.lib.attributes.item.filter.ItemFilter;
+import alexiil.mc.lib.attributes.misc.SlotArrays;
+
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+
+/** A {@link FixedItemInvView} where every slot maps directly to a slot in one of several base inventories.
+ * <p>
+ * This is what sub, mapped, and combined views normalise to when they are nested in each other: every slot is resolved
+ * through all of the (unextended) {@link SubFixedItemInvView}, {@link MappedFixedItemInvView},
+ * {@link CombinedFixedItemInvView}, and {@link FlatFixedItemInvView} layers when this is created, so accessing a slot
+ * costs the same no matter how deeply the views were nested. */
+public class FlatFixedItemInvView implements FixedItemInvView {
+
+    /** Every distinct base inventory, in the order that they were first seen. */
+    protected final FixedItemInvView[] invs;
+
+    /** The index in {@link #invs} for each exposed slot. */
+    protected final int[] slotInv;
+
+    /** The slot in the base inventory for each exposed slot. */
+    protected final int[] slotIndex;
+
+    /** For each base inventory: the base slot to the exposed slot. */
+    protected final Int2IntMap[] inverseSlotMaps;
+
+    protected FlatFixedItemInvView(FixedItemInvView[] invs, int[] slotInv, int[] slotIndex) {
+        this.invs = invs;
+        this.slotInv = slotInv;
+        this.slotIndex = slotIndex;
+        inverseSlotMaps = new Int2IntMap[invs.length];
+        for (int i = 0; i < invs.length; i++) {
+            inverseSlotMaps[i] = new Int2IntOpenHashMap();
+            inverseSlotMaps[i].defaultReturnValue(-1);
+        }
+        for (int i = 0; i < slotInv.length; i++) {
+            int prev = inverseSlotMaps[slotInv[i]].put(slotIndex[i], i);
+            if (prev != -1) {
+                throw new IllegalStateException(
+                    "Duplicated slot! (Slot " + slotIndex[i] + " of " + invs[slotInv[i]] + " appears at both index "
+                        + prev + " and " + i + ")"
+                );
+            }
+        }
+    }
+
+    /** @return A view of the given slots of the given inventory, resolved down to the base inventories. This returns a
+     *         sub or mapped view of the base inventory if every slot resolves to the same one, or a flat view
+     *         otherwise. If the given inventory is a {@link FixedItemInv} then this returns the result of
+     *         {@link FlatFixedItemInv#create(FixedItemInv, int[])}. */
+    public static FixedItemInvView createView(FixedItemInvView inv, int[] slots) {
+        if (inv instanceof FixedItemInv) {
+            return FlatFixedItemInv.create((FixedItemInv) inv, slots);
+        }
+        ResolvedSlots resolved = new ResolvedSlots(inv, slots);
+        if (resolved.bases.size() == 1) {
+            FixedItemInvView base = resolved.bases.get(0);
+            int[] baseSlots = resolved.slotIndex;
+            if (base == inv) {
+                // A subclass that we can't look inside, so calling base.getSubInv could just call us again
+                return new MappedFixedItemInvView(inv, baseSlots);
+            }
+            if (SlotArrays.isContiguous(baseSlots)) {
+                return base.getSubInv(baseSlots[0], baseSlots[baseSlots.length - 1] + 1);
+            }
+            return base.getMappedInv(baseSlots);
+        }
+        return new FlatFixedItemInvView(
+            resolved.bases.toArray(new FixedItemInvView[0]), resolved.slotInv, resolved.slotIndex
+        );
+    }
+
+    /** @return True if the given inventory is one of the view types that {@link #createView(FixedItemInvView, int[])}
+     *         resolves slots through. */
+    public static boolean isNormalisable(FixedItemInvView inv) {
+        return isPartial(inv) || CombinedFixedItemInvView.isFlattenable(inv) || isFlat(inv);
+    }
+
+    /** Only our own classes are resolved through, as subclasses might override the slot access methods. */
+    private static boolean isPartial(FixedItemInvView inv) {
+        Class<?> cls = inv.getClass();
+        return cls == SubFixedItemInvView.class || cls == SubFixedItemInv.class
+            || cls == SubFixedItemInv.OfModifiable.class || cls == SubFixedItemInv.OfCopying.class
+            || cls == MappedFixedItemInvView.class || cls == MappedFixedItemInv.class
+            || cls == MappedFixedItemInv.OfModifiable.class || cls == MappedFixedItemInv.OfCopying.class;
+    }
+
+    private static boolean isFlat(FixedItemInvView inv) {
+        Class<?> cls = inv.getClass();
+        return cls == FlatFixedItemInvView.class || cls == FlatFixedItemInv.class
+            || cls == FlatFixedItemInv.OfModifiable.class || cls == FlatFixedItemInv.OfCopying.class;
+    }
+
+    /** The result of resolving a list of slots down to their base inventories. */
+    static final class ResolvedSlots {
+        final List<FixedItemInvView> bases = new ArrayList<>();
+        final int[] slotInv;
+        final int[] slotIndex;
+
+        ResolvedSlots(FixedItemInvView inv, int[] slots) {
+            Reference2IntMap<FixedItemInvView> baseIndices = new Reference2IntOpenHashMap<>();
+            baseIndices.defaultReturnValue(-1);
+            slotInv = new int[slots.length];
+            slotIndex = new int[slots.length];
+            int slotCount = inv.getSlotCount();
+            for (int i = 0; i < slots.length; i++) {
+                int slot = slots[i];
+                if (slot < 0 || slot >= slotCount) {
+                    throw new IllegalArgumentException(
+                        "Invalid slot index: " + slot + ", as it must be between 0 and the slot count of " + slotCount
+                    );
+                }
+                FixedItemInvView current = inv;
+                while (true) {
+                    if (isPartial(current)) {
+                        AbstractPartialFixedItemInvView partial = (AbstractPartialFixedItemInvView) current;
+                        slot = partial.getInternalSlot(slot);
+                        current = partial.inv;
+                    } else if (CombinedFixedItemInvView.isFlattenable(current)) {
+                        CombinedFixedItemInvView<?> combined = (CombinedFixedItemInvView<?>) current;
+                        int leafSlot = combined.getLeafSlot(slot);
+                        current = combined.getLeafInv(slot);
+                        slot = leafSlot;
+                    } else if (isFlat(current)) {
+                        FlatFixedItemInvView flat = (FlatFixedItemInvView) current;
+                        current = flat.invs[flat.slotInv[slot]];
+                        slot = flat.slotIndex[slot];
+                    } else {
+                        break;
+                    }
+                }
+                int index = baseIndices.getInt(current);
+                if (index < 0) {
+                    index = bases.size();
+                    bases.add(current);
+                    baseIndices.put(current, index);
+                }
+                slotInv[i] = index;
+                slotIndex[i] = slot;
+            }
+        }
+    }
+
+    @Override
+    public int getSlotCount() {
+        return slotInv.length;
+    }
+
+    @Override
+    public ItemStack getInvStack(int slot) {
+        return invs[slotInv[slot]].getInvStack(slotIndex[slot]);
+    }
+
+    @Override
+    public boolean isItemValidForSlot(int slot, ItemStack stack) {
+        return invs[slotInv[slot]].isItemValidForSlot(slotIndex[slot], stack);
+    }
+
+    @Override
+    public ItemFilter getFilterForSlot(int slot) {
+        return invs[slotInv[slot]].getFilterForSlot(slotIndex[slot]);
+    }
+
+    @Override
+    public int getMaxAmount(int slot, ItemStack stack) {
+        return invs[slotInv[slot]].getMaxAmount(slotIndex[slot], stack);
+    }
+
+    @Override
+    public int getChangeValue() {
+        int count = 0;
+        for (FixedItemInvView inv : invs) {
+            count += inv.getChangeValue();
+        }
+        return count;
+    }
+
+    @Override
+    public FixedItemInvView getSubInv(int fromIndex, int toIndex) {
+        if (fromIndex == toIndex) {
+            return EmptyFixedItemInv.INSTANCE;
+        }
+        if (fromIndex == 0 && toIndex == getSlotCount()) {
+            return this;
+        }
+        return createView(this, SlotArrays.range(fromIndex, toIndex));
+    }
+
+    @Override
+    public FixedItemInvView getMappedInv(int... slots) {
+        if (slots.length == 0) {
+            return EmptyFixedItemInv.INSTANCE;
+        }
+        if (FixedItemInvView.areSlotArraysEqual(this, slots)) {
+            return this;
+        }
+        return createView(this, slots);
+    }
+
+    @Override
+    public ListenerToken addListener(InvMarkDirtyListener listener, ListenerRemovalToken removalToken) {
+        final ListenerToken[] tokens = new ListenerToken[invs.length];
+        final ListenerRemovalToken ourRemToken = new ListenerRemovalToken() {
+
+            boolean hasAlreadyRemoved = false;
+
+            @Override
+            public void onListenerRemoved() {
+                for (ListenerToken token : tokens) {
+                    if (token == null) {
+                        // This means we have only half-initialised
+                        // (and all of the next tokens must also be null)
+                        return;
+                    }
+                    token.removeListener();
+                }
+                if (!hasAlreadyRemoved) {
+                    hasAlreadyRemoved = true;
+                    removalToken.onListenerRemoved();
+                }
+            }
+        };
+
+        final FixedItemInvView wrapper = this;
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = invs[i].addListener((inv) -> {
+                listener.onMarkDirty(wrapper);
+            }, ourRemToken);
+            if (tokens[i] == null) {
+                for (int j = 0; j < i; j++) {
+                    tokens[j].removeListener();
+                }
+                return null;
+            }
+        }
+        return () -> {
+            for (ListenerToken token : tokens) {
+                token.removeListener();
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{invs = " + Arrays.toString(invs) + "}";
+    }
+}
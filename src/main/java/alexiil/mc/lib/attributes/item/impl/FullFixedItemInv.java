@@ -23,6 +23,8 @@ import alexiil.mc.lib.attributes.Simulation;
 import alexiil.mc.lib.attributes.item.FixedItemInv.CopyingFixedItemInv;
 import alexiil.mc.lib.attributes.item.GroupedItemInv;
 import alexiil.mc.lib.attributes.item.ItemInvSlotChangeListener;
+import alexiil.mc.lib.attributes.item.ItemInvSlotVisitor;
+import alexiil.mc.lib.attributes.item.ItemStackHandle;
 import alexiil.mc.lib.attributes.item.ItemStackUtil;
 import alexiil.mc.lib.attributes.item.ItemTransferable;
 import alexiil.mc.lib.attributes.item.filter.ConstantItemFilter;
@@ -45,6 +47,11 @@ public class FullFixedItemInv implements CopyingFixedItemInv, ItemTransferable,
 
     protected final DefaultedList<ItemStack> slots;
 
+    /** The last {@link ItemStackHandle} returned for each slot. Stored stacks are never modified (only replaced) so
+     * these stay valid for as long as they are {@link ItemStackHandle#isBackedBy(ItemStack) backed by} the stack in the
+     * slot. */
+    private final ItemStackHandle[] handles;
+
     // TODO: Optimise this to cache more information!
     private final GroupedItemInv groupedVersion = new GroupedItemInvFixedWrapper(this);
 
@@ -59,6 +66,7 @@ public class FullFixedItemInv implements CopyingFixedItemInv, ItemTransferable,
 
     public FullFixedItemInv(int invSize) {
         slots = DefaultedList.ofSize(invSize, ItemStack.EMPTY);
+        handles = new ItemStackHandle[invSize];
 
         if (AttributeUtil.EXPENSIVE_DEBUG_CHECKS) {
             Class<?> cls = getClass();
@@ -97,6 +105,29 @@ public class FullFixedItemInv implements CopyingFixedItemInv, ItemTransferable,
         return stack;
     }
 
+    @Override
+    public ItemStackHandle getInvStackHandle(int slot) {
+        ItemStack stack = slots.get(slot);
+        ItemStackHandle handle = handles[slot];
+        if (handle == null || !handle.isBackedBy(stack)) {
+            ItemInvModificationTracker.trackNeverChanging(stack);
+            handle = ItemStackHandle.ofUnmodifiable(stack);
+            handles[slot] = handle;
+        }
+        return handle;
+    }
+
+    @Override
+    public void forEachStack(ItemInvSlotVisitor visitor) {
+        for (int slot = 0; slot < slots.size(); slot++) {
+            ItemStack stack = slots.get(slot);
+            if (!stack.isEmpty()) {
+                ItemInvModificationTracker.trackNeverChanging(stack);
+                visitor.visit(slot, stack);
+            }
+        }
+    }
+
     @Override
     public boolean isItemValidForSlot(int slot, ItemStack item) {
         return true;
@@ -7,8 +7,7 @@
  */
 package alexiil.mc.lib.attributes.item.impl;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 import net.minecraft.item.ItemStack;
 
@@ -26,6 +25,10 @@ import alexiil.mc.lib.attributes.item.filter.ItemFilter;
  * (unless the target inventory has a very small {@link FixedItemInvView#getSlotCount() size}). */
 public class GroupedItemInvFixedWrapper extends GroupedItemInvViewFixedWrapper implements GroupedItemInv {
 
+    /** The slot filters that {@link #cachedFilter} was built from. */
+    private ItemFilter[] cachedFilters;
+    private ItemFilter cachedFilter;
+
     public GroupedItemInvFixedWrapper(FixedItemInv inv) {
         super(inv);
     }
@@ -45,15 +48,32 @@ public class GroupedItemInvFixedWrapper extends GroupedItemInvViewFixedWrapper i
             case 1: {
                 return inv.getFilterForSlot(0);
             }
-            case 2: {
-                return inv.getFilterForSlot(0).or(inv.getFilterForSlot(1));
-            }
             default: {
-                List<ItemFilter> filters = new ArrayList<>(invSize);
+                ItemFilter[] filters = cachedFilters;
+                if (filters != null && filters.length == invSize) {
+                    // Slot filters can't notify us of changes, but they're almost always the same object each time
+                    boolean unchanged = true;
+                    for (int i = 0; i < invSize; i++) {
+                        if (inv.getFilterForSlot(i) != filters[i]) {
+                            unchanged = false;
+                            break;
+                        }
+                    }
+                    if (unchanged) {
+                        return cachedFilter;
+                    }
+                }
+                filters = new ItemFilter[invSize];
                 for (int i = 0; i < invSize; i++) {
-                    filters.add(inv.getFilterForSlot(i));
+                    filters[i] = inv.getFilterForSlot(i);
+                }
+                if (invSize == 2) {
+                    cachedFilter = filters[0].or(filters[1]);
+                } else {
+                    cachedFilter = AggregateItemFilter.anyOf(Arrays.asList(filters));
                 }
-                return AggregateItemFilter.anyOf(filters);
+                cachedFilters = filters;
+                return cachedFilter;
             }
         }
     }
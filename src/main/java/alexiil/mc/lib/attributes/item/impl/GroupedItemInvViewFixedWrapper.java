@@ -62,7 +62,7 @@ public class GroupedItemInvViewFixedWrapper implements GroupedItemInvView {
         int totalSpace = 0;
         boolean totalSpaceValid = true;
         for (int s = 0; s < inv.getSlotCount(); s++) {
-            ItemStack stack = inv.getInvStack(s);
+            ItemStack stack = peekInvStack(s);
             if (!stack.isEmpty()) {
                 if (filter.matches(stack)) {
                     amount += stack.getCount();
@@ -85,6 +85,15 @@ public class GroupedItemInvViewFixedWrapper implements GroupedItemInvView {
         return new ItemInvStatistic(filter, amount, space, totalSpaceValid ? totalSpace : -1);
     }
 
+    /** @return The stack in the given slot, which must not be modified or retained. Unlike
+     *         {@link FixedItemInvView#getInvStack(int)} this never copies the stack. */
+    final ItemStack peekInvStack(int slot) {
+        if (inv instanceof CopyingFixedItemInv) {
+            return ((CopyingFixedItemInv) inv).getUnmodifiableInvStack(slot);
+        }
+        return inv.getInvStack(slot);
+    }
+
     @Override
     public int getChangeValue() {
         return inv.getChangeValue();
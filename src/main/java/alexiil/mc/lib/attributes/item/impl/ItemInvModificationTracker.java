@@ -7,27 +7,137 @@
  */
 package alexiil.mc.lib.attributes.item.impl;
 
+import java.lang.ref.WeakReference;
 import java.util.Collections;
+import java.util.Locale;
 import java.util.Map;
 import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
 
 import net.minecraft.item.ItemStack;
 
 import alexiil.mc.lib.attributes.AttributeUtil;
 import alexiil.mc.lib.attributes.item.FixedItemInv;
+import alexiil.mc.lib.attributes.misc.LibBlockAttributes;
 
 /** A tracker object that tries to ensure that the "no modification" rule that methods like
- * {@link FixedItemInv#getInvStack(int)} use is followed. */
+ * {@link FixedItemInv#getInvStack(int)} use is followed.
+ * <p>
+ * The amount of work this does depends on the current {@link TrackingMode}, which defaults to
+ * {@link TrackingMode#FULL} if {@link AttributeUtil#EXPENSIVE_DEBUG_CHECKS} is enabled, or {@link TrackingMode#OFF}
+ * otherwise. This can be overridden with the system property "libblockattributes.item_modification_tracking" (set to
+ * "off", "sampled", or "full"), or changed at runtime with {@link #setMode(TrackingMode)}. */
 public final class ItemInvModificationTracker {
     private ItemInvModificationTracker() {}
 
-    private static final boolean ENABLED = AttributeUtil.EXPENSIVE_DEBUG_CHECKS;
+    /** The different levels of checking that this tracker can perform. */
+    public enum TrackingMode {
+        /** Nothing is tracked. {@link #trackNeverChanging(ItemStack)} returns immediately. */
+        OFF,
+
+        /** Only 1 in every {@link #getSampleRate()} stacks are tracked, in a fixed-size lock-free table. The stack
+         * trace of the code that originally returned the stack is not captured, so errors only contain the stack trace
+         * of the point where the modification was detected. */
+        SAMPLED,
+
+        /** Every stack is tracked, along with the stack trace of the code that returned it. This is very slow, but
+         * gives the most useful error messages. */
+        FULL;
+    }
+
+    private static final int SAMPLED_TABLE_SIZE = 1 << 12;
+
     private static final Map<ItemStack, TrackedItemStackState> stacks
         = Collections.synchronizedMap(new WeakHashMap<>());
 
+    private static final AtomicReferenceArray<SampledItemStackState> sampledStacks
+        = new AtomicReferenceArray<>(SAMPLED_TABLE_SIZE);
+
+    private static final LongAdder checkedCount = new LongAdder();
+    private static final LongAdder violationCount = new LongAdder();
+
+    private static volatile TrackingMode mode = readDefaultMode();
+    private static volatile int sampleMask = readDefaultSampleRate() - 1;
+
+    private static TrackingMode readDefaultMode() {
+        String prop = System.getProperty("libblockattributes.item_modification_tracking");
+        if (prop != null) {
+            try {
+                return TrackingMode.valueOf(prop.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                LibBlockAttributes.LOGGER.warn(
+                    "Unknown item modification tracking mode '" + prop + "', expected one of off, sampled, or full."
+                );
+            }
+        }
+        return AttributeUtil.EXPENSIVE_DEBUG_CHECKS ? TrackingMode.FULL : TrackingMode.OFF;
+    }
+
+    private static int readDefaultSampleRate() {
+        return roundSampleRate(Integer.getInteger("libblockattributes.item_modification_tracking.sample_rate", 64));
+    }
+
+    private static int roundSampleRate(int rate) {
+        if (rate <= 1) {
+            return 1;
+        }
+        // Round up to a power of two so that sampling is a single mask check
+        return Math.min(1 << 30, Integer.highestOneBit(rate - 1) << 1);
+    }
+
+    public static TrackingMode getMode() {
+        return mode;
+    }
+
+    /** Changes the current {@link TrackingMode}. This clears all previously tracked stacks, but doesn't reset the
+     * statistics. */
+    public static void setMode(TrackingMode newMode) {
+        if (newMode == null) {
+            throw new NullPointerException("newMode");
+        }
+        mode = newMode;
+        stacks.clear();
+        for (int i = 0; i < SAMPLED_TABLE_SIZE; i++) {
+            sampledStacks.set(i, null);
+        }
+    }
+
+    /** @return The number of stacks of which only 1 is tracked in {@link TrackingMode#SAMPLED}. This is always a power
+     *         of two. */
+    public static int getSampleRate() {
+        return sampleMask + 1;
+    }
+
+    /** Sets the sampling rate used by {@link TrackingMode#SAMPLED}. The given rate is rounded up to the next power of
+     * two. */
+    public static void setSampleRate(int rate) {
+        sampleMask = roundSampleRate(rate) - 1;
+    }
+
+    /** @return The number of times that a tracked stack has been compared against its original copy. */
+    public static long getCheckedCount() {
+        return checkedCount.sum();
+    }
+
+    /** @return The number of times that a tracked stack was found to have been modified. */
+    public static long getViolationCount() {
+        return violationCount.sum();
+    }
+
+    public static void resetStatistics() {
+        checkedCount.reset();
+        violationCount.reset();
+    }
+
     /** Tracks the given ItemStack to ensure that it hasn't changed by the time it is garbage collected. */
     public static void trackNeverChanging(ItemStack stack) {
-        if (!ENABLED || stack == null) {
+        final TrackingMode current = mode;
+        if (current == TrackingMode.OFF || stack == null) {
+            return;
+        }
+        if (current == TrackingMode.SAMPLED) {
+            trackSampled(stack);
             return;
         }
         TrackedItemStackState ref = stacks.get(stack);
@@ -38,6 +148,40 @@ public final class ItemInvModificationTracker {
         }
     }
 
+    private static void trackSampled(ItemStack stack) {
+        int hash = mix(System.identityHashCode(stack));
+        // Use the high bits for sampling and the low bits for the table index so the two don't correlate
+        if (((hash >>> 16) & sampleMask) != 0) {
+            return;
+        }
+        int index = hash & (SAMPLED_TABLE_SIZE - 1);
+        SampledItemStackState existing = sampledStacks.get(index);
+        if (existing != null && existing.get() == stack) {
+            existing.check(stack);
+        } else {
+            // Collisions just evict the previous entry: this is only a sample after all
+            sampledStacks.compareAndSet(index, existing, new SampledItemStackState(stack));
+        }
+    }
+
+    private static int mix(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 15);
+    }
+
+    static void onViolation(ItemStack original, ItemStack current, Throwable origin) {
+        violationCount.increment();
+        String msg = "The ItemStack that is stored has been changed! (\n\tOriginal = " + stackToFullString(original)
+            + ", \n\tChanged = " + stackToFullString(current) + ")";
+        if (origin == null) {
+            throw new IllegalStateException(
+                msg + "\n(The original stack trace wasn't captured as tracking is in SAMPLED mode - use FULL mode to see"
+                    + " where the stack came from)"
+            );
+        }
+        throw new IllegalStateException(msg, origin);
+    }
+
     final static class TrackedItemStackState {
         final ItemStack copy;
         final Throwable stack;
@@ -48,12 +192,28 @@ public final class ItemInvModificationTracker {
         }
 
         void check(ItemStack current) {
+            checkedCount.increment();
             if (ItemStack.areEqual(current, copy)) {
                 return;
             }
-            throw new IllegalStateException(
-                "The ItemStack that is stored has been changed! (\n\tOriginal = " + stackToFullString(copy) + ", \n\tChanged = " + stackToFullString(current) + ")", stack
-            );
+            onViolation(copy, current, stack);
+        }
+    }
+
+    final static class SampledItemStackState extends WeakReference<ItemStack> {
+        final ItemStack copy;
+
+        SampledItemStackState(ItemStack referent) {
+            super(referent);
+            this.copy = referent.copy();
+        }
+
+        void check(ItemStack current) {
+            checkedCount.increment();
+            if (ItemStack.areEqual(current, copy)) {
+                return;
+            }
+            onViolation(copy, current, null);
         }
     }
 
@@ -0,0 +1,439 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.item.impl;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.util.Util;
+
+import alexiil.mc.lib.attributes.ListenerRemovalToken;
+import alexiil.mc.lib.attributes.ListenerToken;
+import alexiil.mc.lib.attributes.Simulation;
+import alexiil.mc.lib.attributes.item.GroupedItemInv;
+import alexiil.mc.lib.attributes.item.ItemInvAmountChangeListener;
+import alexiil.mc.lib.attributes.item.ItemInvAmountVisitor;
+import alexiil.mc.lib.attributes.item.ItemKey;
+import alexiil.mc.lib.attributes.item.ItemStackCollections;
+import alexiil.mc.lib.attributes.item.filter.ConstantItemFilter;
+import alexiil.mc.lib.attributes.item.filter.ExactItemStackFilter;
+import alexiil.mc.lib.attributes.item.filter.InvertedItemFilter;
+import alexiil.mc.lib.attributes.item.filter.ItemFilter;
+import alexiil.mc.lib.attributes.misc.Saveable;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2ObjectLinkedOpenCustomHashMap;
+
+/** A {@link GroupedItemInv} for very large storages (such as storage networks), which stores a long count for every
+ * item type, and so can hold far more than {@link Integer#MAX_VALUE} items.
+ * <p>
+ * Every stored {@link ItemKey} is given an index, and the counts are stored in a single primitive array rather than in
+ * one object per item type. Indices are reused after an item type is completely removed.
+ * <p>
+ * The int-based methods from {@link GroupedItemInv} (and the values passed to {@link ItemInvAmountChangeListener}s)
+ * saturate at {@link Integer#MAX_VALUE}, so callers that know about this class should use the long-based methods
+ * instead: {@link #getAmountLong(ItemKey)}, {@link #getAmountLong(ItemFilter)}, {@link #getTotalCapacityLong()}, and
+ * {@link #getStatisticsLong(ItemFilter)}. */
+public class LargeGroupedItemInv implements GroupedItemInv, Saveable {
+
+    private static final ItemInvAmountChangeListener[] NO_LISTENERS = new ItemInvAmountChangeListener[0];
+
+    /** Sentinel value used during {@link #invalidateListeners()}. */
+    private static final ItemInvAmountChangeListener[] INVALIDATING_LISTENERS = new ItemInvAmountChangeListener[0];
+
+    public final int maxItemTypes;
+    public final long maxItems;
+
+    /** The index of every stored key in {@link #keys}, {@link #stacks}, and {@link #amounts}. */
+    private final Object2IntOpenHashMap<ItemKey> indices = new Object2IntOpenHashMap<>();
+
+    /** The key at every index, or null if the index is free. */
+    private ItemKey[] keys = new ItemKey[16];
+
+    /** A single-count stack for every key in {@link #keys}, which is never modified, and only passed to filters (and
+     * {@link #getStoredStacks()}). */
+    private ItemStack[] stacks = new ItemStack[16];
+
+    private long[] amounts = new long[16];
+
+    /** One more than the highest index that has been used. */
+    private int indexLimit = 0;
+
+    private final IntArrayList freeIndices = new IntArrayList();
+
+    private final Set<ItemStack> storedStacks = ItemStackCollections.openLinkedHashSet();
+    private final Set<ItemStack> storedStacksView = Collections.unmodifiableSet(storedStacks);
+
+    /** A cached count of every stored item, which makes statistics for {@link ConstantItemFilter#ANYTHING} O(1). */
+    private long cachedItemCount;
+
+    private int changes;
+
+    private ItemInvAmountChangeListener ownerListener;
+
+    private final Map<ItemInvAmountChangeListener, ListenerRemovalToken> listeners
+        = new Object2ObjectLinkedOpenCustomHashMap<>(Util.identityHashStrategy());
+
+    private ItemInvAmountChangeListener[] bakedListeners = NO_LISTENERS;
+
+    public LargeGroupedItemInv(int maxItemTypes, long maxItems) {
+        this.maxItemTypes = maxItemTypes;
+        this.maxItems = maxItems;
+        indices.defaultReturnValue(-1);
+    }
+
+    /** A long-based version of {@link ItemInvStatistic}. */
+    public static final class LargeItemInvStatistic {
+
+        public final ItemFilter filter;
+
+        /** The total amount of the given filter. */
+        public final long amount;
+
+        /** The total amount of space that the given filter can be added to. */
+        public final long spaceAddable;
+
+        /** The total amount of additional entries that could be added to by this filter. */
+        public final long spaceTotal;
+
+        public LargeItemInvStatistic(ItemFilter filter, long amount, long spaceAddable, long spaceTotal) {
+            this.filter = filter;
+            this.amount = amount;
+            this.spaceAddable = spaceAddable;
+            this.spaceTotal = spaceTotal;
+        }
+
+        /** @return An {@link ItemInvStatistic} with every value clamped to fit into an int. */
+        public ItemInvStatistic toIntStatistic() {
+            return new ItemInvStatistic(filter, saturate(amount), saturate(spaceAddable), saturate(spaceTotal));
+        }
+    }
+
+    /** @return The given long, clamped to fit into an int. */
+    public static int saturate(long value) {
+        if (value > Integer.MAX_VALUE) {
+            return Integer.MAX_VALUE;
+        }
+        if (value < Integer.MIN_VALUE) {
+            return Integer.MIN_VALUE;
+        }
+        return (int) value;
+    }
+
+    // Long-based accessors
+
+    public long getAmountLong(ItemKey key) {
+        int index = indices.getInt(key);
+        return index < 0 ? 0 : amounts[index];
+    }
+
+    public long getAmountLong(ItemStack stack) {
+        return stack.isEmpty() ? 0 : getAmountLong(ItemKey.of(stack));
+    }
+
+    public long getAmountLong(ItemFilter filter) {
+        if (filter == ConstantItemFilter.ANYTHING) {
+            return cachedItemCount;
+        } else if (filter == ConstantItemFilter.NOTHING) {
+            return 0;
+        } else if (filter instanceof ExactItemStackFilter) {
+            return getAmountLong(((ExactItemStackFilter) filter).stack);
+        } else if (filter instanceof InvertedItemFilter) {
+            return cachedItemCount - getAmountLong(((InvertedItemFilter) filter).delegate);
+        }
+        long total = 0;
+        for (int i = 0; i < indexLimit; i++) {
+            if (keys[i] != null && filter.matches(stacks[i])) {
+                total += amounts[i];
+            }
+        }
+        return total;
+    }
+
+    public long getTotalCapacityLong() {
+        return maxItems;
+    }
+
+    /** @return The total number of items stored in this inventory. */
+    public long getTotalAmountLong() {
+        return cachedItemCount;
+    }
+
+    public LargeItemInvStatistic getStatisticsLong(ItemFilter filter) {
+        long totalCount = getAmountLong(filter);
+        // Everything that doesn't match the filter takes up space that the filter could otherwise use
+        long totalSpace = maxItems - (cachedItemCount - totalCount);
+        return new LargeItemInvStatistic(filter, totalCount, 0, totalSpace);
+    }
+
+    // GroupedItemInvView
+
+    @Override
+    public Set<ItemStack> getStoredStacks() {
+        return storedStacksView;
+    }
+
+    @Override
+    public Set<ItemKey> getStoredKeys() {
+        return Collections.unmodifiableSet(indices.keySet());
+    }
+
+    @Override
+    public int getAmount(ItemStack stack) {
+        return saturate(getAmountLong(stack));
+    }
+
+    @Override
+    public int getAmount(ItemFilter filter) {
+        return saturate(getAmountLong(filter));
+    }
+
+    /** {@inheritDoc}
+     * <p>
+     * Amounts greater than {@link Integer#MAX_VALUE} are saturated, like {@link #getAmount(ItemStack)}. */
+    @Override
+    public void forEachAmount(ItemInvAmountVisitor visitor) {
+        for (int i = 0; i < indexLimit; i++) {
+            if (keys[i] != null) {
+                visitor.visit(stacks[i], saturate(amounts[i]));
+            }
+        }
+    }
+
+    @Override
+    public int getTotalCapacity() {
+        return saturate(maxItems);
+    }
+
+    @Override
+    public ItemInvStatistic getStatistics(ItemFilter filter) {
+        return getStatisticsLong(filter).toIntStatistic();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return cachedItemCount == 0;
+    }
+
+    // Storage
+
+    private int addKey(ItemKey key) {
+        int index;
+        if (freeIndices.isEmpty()) {
+            index = indexLimit++;
+            if (index >= keys.length) {
+                int newLength = keys.length * 2;
+                keys = Arrays.copyOf(keys, newLength);
+                stacks = Arrays.copyOf(stacks, newLength);
+                amounts = Arrays.copyOf(amounts, newLength);
+            }
+        } else {
+            index = freeIndices.popInt();
+        }
+        keys[index] = key;
+        stacks[index] = key.toStack();
+        amounts[index] = 0;
+        indices.put(key, index);
+        storedStacks.add(stacks[index]);
+        return index;
+    }
+
+    private void removeKey(int index) {
+        indices.removeInt(keys[index]);
+        storedStacks.remove(stacks[index]);
+        keys[index] = null;
+        stacks[index] = null;
+        amounts[index] = 0;
+        freeIndices.add(index);
+    }
+
+    private int findFirstMatching(ItemFilter filter) {
+        if (filter == ConstantItemFilter.NOTHING) {
+            return -1;
+        } else if (filter instanceof ExactItemStackFilter) {
+            ItemStack stack = ((ExactItemStackFilter) filter).stack;
+            return stack.isEmpty() ? -1 : indices.getInt(ItemKey.of(stack));
+        }
+        for (int i = 0; i < indexLimit; i++) {
+            if (keys[i] != null && filter.matches(stacks[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public ItemStack attemptInsertion(ItemStack stack, Simulation simulation) {
+        if (stack.isEmpty()) {
+            return stack;
+        }
+        ItemKey key = ItemKey.of(stack);
+        int index = indices.getInt(key);
+        if (index < 0 && indices.size() >= maxItemTypes) {
+            return stack;
+        }
+        int insertable = (int) Math.min(stack.getCount(), maxItems - cachedItemCount);
+        if (insertable <= 0) {
+            return stack;
+        }
+        stack = stack.copy();
+        stack.decrement(insertable);
+        if (simulation == Simulation.ACTION) {
+            if (index < 0) {
+                index = addKey(key);
+            }
+            long current = amounts[index];
+            amounts[index] = current + insertable;
+            cachedItemCount += insertable;
+            fireAmountChange(stacks[index], current, current + insertable);
+        }
+        return stack;
+    }
+
+    @Override
+    public ItemStack attemptExtraction(ItemFilter filter, int maxAmount, Simulation simulation) {
+        if (maxAmount <= 0) {
+            return ItemStack.EMPTY;
+        }
+        int index = findFirstMatching(filter);
+        if (index < 0) {
+            return ItemStack.EMPTY;
+        }
+        ItemKey key = keys[index];
+        ItemStack keyStack = stacks[index];
+        long current = amounts[index];
+        int extracted = (int) Math.min(current, maxAmount);
+        if (simulation == Simulation.ACTION) {
+            amounts[index] = current - extracted;
+            cachedItemCount -= extracted;
+            if (extracted == current) {
+                removeKey(index);
+            }
+            fireAmountChange(keyStack, current, current - extracted);
+        }
+        return key.toStack(extracted);
+    }
+
+    // Listeners
+
+    @Override
+    public ListenerToken addListener(ItemInvAmountChangeListener listener, ListenerRemovalToken removalToken) {
+        if (bakedListeners == INVALIDATING_LISTENERS) {
+            // It doesn't really make sense to add listeners while we are invalidating them
+            return null;
+        }
+        ListenerRemovalToken previous = listeners.put(listener, removalToken);
+        if (previous == null) {
+            bakeListeners();
+        } else {
+            assert previous == removalToken : "The same listener object must be registered with the same removal token";
+        }
+        return () -> {
+            ListenerRemovalToken token = listeners.remove(listener);
+            if (token != null) {
+                assert token == removalToken;
+                bakeListeners();
+                removalToken.onListenerRemoved();
+            }
+        };
+    }
+
+    /** Sets the owner listener callback, which is never removed from the listener list when
+     * {@link #invalidateListeners()} is called. */
+    public void setOwnerListener(ItemInvAmountChangeListener ownerListener) {
+        this.ownerListener = ownerListener;
+    }
+
+    private void bakeListeners() {
+        bakedListeners = listeners.keySet().toArray(new ItemInvAmountChangeListener[0]);
+    }
+
+    public void invalidateListeners() {
+        bakedListeners = INVALIDATING_LISTENERS;
+        ListenerRemovalToken[] removalTokens = listeners.values().toArray(new ListenerRemovalToken[0]);
+        listeners.clear();
+        for (ListenerRemovalToken token : removalTokens) {
+            token.onListenerRemoved();
+        }
+        bakedListeners = NO_LISTENERS;
+    }
+
+    @Override
+    public int getChangeValue() {
+        return changes;
+    }
+
+    /** Fires an amount change, with both amounts {@link #saturate(long) saturated} to fit into an int. */
+    protected final void fireAmountChange(ItemStack stack, long previous, long current) {
+        changes++;
+        int prev = saturate(previous);
+        int curr = saturate(current);
+        if (ownerListener != null) {
+            ownerListener.onChange(this, stack, prev, curr);
+        }
+        // Iterate over the previous array in case the listeners array is changed while we are iterating
+        final ItemInvAmountChangeListener[] baked = bakedListeners;
+        for (ItemInvAmountChangeListener listener : baked) {
+            listener.onChange(this, stack, prev, curr);
+        }
+    }
+
+    // NBT support
+
+    @Override
+    public CompoundTag toTag(CompoundTag tag) {
+        ListTag items = new ListTag();
+        for (int i = 0; i < indexLimit; i++) {
+            if (keys[i] == null || amounts[i] <= 0) {
+                continue;
+            }
+            CompoundTag itemTag = stacks[i].toTag(new CompoundTag());
+            itemTag.putLong("Count", amounts[i]);
+            items.add(itemTag);
+        }
+        if (!items.isEmpty()) {
+            tag.put("items", items);
+        }
+        return tag;
+    }
+
+    @Override
+    public void fromTag(CompoundTag tag) {
+        for (int i = 0; i < indexLimit; i++) {
+            if (keys[i] != null) {
+                removeKey(i);
+            }
+        }
+        freeIndices.clear();
+        indexLimit = 0;
+        cachedItemCount = 0;
+
+        ListTag items = tag.getList("items", new CompoundTag().getType());
+        for (int i = 0; i < items.size(); i++) {
+            CompoundTag itemTag = items.getCompound(i).copy();
+            long count = itemTag.getLong("Count");
+            itemTag.putByte("Count", (byte) 1);
+            ItemStack stack = ItemStack.fromTag(itemTag);
+            if (!stack.isEmpty() && count > 0) {
+                ItemKey key = ItemKey.of(stack);
+                int index = indices.getInt(key);
+                if (index < 0) {
+                    index = addKey(key);
+                }
+                amounts[index] += count;
+                cachedItemCount += count;
+            }
+        }
+    }
+}
@@ -17,6 +17,7 @@ import alexiil.mc.lib.attributes.Simulation;
 import alexiil.mc.lib.attributes.item.FixedItemInv;
 import alexiil.mc.lib.attributes.item.FixedItemInvView;
 import alexiil.mc.lib.attributes.item.ItemInvSlotChangeListener;
+import alexiil.mc.lib.attributes.item.ItemStackHandle;
 
 public class MappedFixedItemInv extends MappedFixedItemInvView implements FixedItemInv {
 
@@ -42,6 +43,9 @@ public class MappedFixedItemInv extends MappedFixedItemInvView implements FixedI
         for (int s = fromIndex; s < toIndex; s++) {
             nSlots[i++] = getInternalSlot(s);
         }
+        if (FlatFixedItemInvView.isNormalisable(inv)) {
+            return FlatFixedItemInv.create((FixedItemInv) inv, nSlots);
+        }
         return create((FixedItemInv) inv, nSlots);
     }
 
@@ -60,6 +64,9 @@ public class MappedFixedItemInv extends MappedFixedItemInvView implements FixedI
         if (FixedItemInvView.areSlotArraysEqual(inv, slots)) {
             return (FixedItemInv) inv;
         }
+        if (FlatFixedItemInvView.isNormalisable(inv)) {
+            return FlatFixedItemInv.create((FixedItemInv) inv, slots);
+        }
         return create((FixedItemInv) inv, slots);
     }
 
@@ -97,6 +104,11 @@ public class MappedFixedItemInv extends MappedFixedItemInvView implements FixedI
             return ((CopyingFixedItemInv) inv).getUnmodifiableInvStack(getInternalSlot(slot));
         }
 
+        @Override
+        public ItemStackHandle getInvStackHandle(int slot) {
+            return ((CopyingFixedItemInv) inv).getInvStackHandle(getInternalSlot(slot));
+        }
+
         @Override
         public ListenerToken addListener(ItemInvSlotChangeListener listener, ListenerRemovalToken removalToken) {
             FixedItemInvView wrapper = this;
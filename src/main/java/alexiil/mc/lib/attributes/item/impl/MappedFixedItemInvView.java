@@ -71,6 +71,9 @@ public class MappedFixedItemInvView extends AbstractPartialFixedItemInvView {
         for (int s = fromIndex; s < toIndex; s++) {
             nSlots[i++] = getInternalSlot(s);
         }
+        if (FlatFixedItemInvView.isNormalisable(inv)) {
+            return FlatFixedItemInvView.createView(inv, nSlots);
+        }
         return new MappedFixedItemInvView(inv, nSlots);
     }
 
@@ -83,6 +86,9 @@ public class MappedFixedItemInvView extends AbstractPartialFixedItemInvView {
         for (int i = 0; i < slots.length; i++) {
             slots[i] = getInternalSlot(slots[i]);
         }
+        if (FlatFixedItemInvView.isNormalisable(inv)) {
+            return FlatFixedItemInvView.createView(inv, slots);
+        }
         return new MappedFixedItemInvView(inv, slots);
     }
 }
@@ -7,9 +7,13 @@
  */
 package alexiil.mc.lib.attributes.item.impl;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.nbt.ListTag;
@@ -20,15 +24,27 @@ import alexiil.mc.lib.attributes.ListenerToken;
 import alexiil.mc.lib.attributes.Simulation;
 import alexiil.mc.lib.attributes.item.GroupedItemInv;
 import alexiil.mc.lib.attributes.item.ItemInvAmountChangeListener;
+import alexiil.mc.lib.attributes.item.ItemInvAmountVisitor;
+import alexiil.mc.lib.attributes.item.ItemKey;
 import alexiil.mc.lib.attributes.item.ItemStackCollections;
+import alexiil.mc.lib.attributes.item.filter.ConstantItemFilter;
+import alexiil.mc.lib.attributes.item.filter.ExactItemFilter;
+import alexiil.mc.lib.attributes.item.filter.ExactItemSetFilter;
+import alexiil.mc.lib.attributes.item.filter.ExactItemStackFilter;
+import alexiil.mc.lib.attributes.item.filter.InvertedItemFilter;
 import alexiil.mc.lib.attributes.item.filter.ItemFilter;
 import alexiil.mc.lib.attributes.misc.Saveable;
 
-import it.unimi.dsi.fastutil.objects.Object2IntMap;
 import it.unimi.dsi.fastutil.objects.Object2ObjectLinkedOpenCustomHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
 
 /** A simple {@link GroupedItemInv} that has a limit on both the number of different items that this can store, and the
- * total number of items that can be stored. */
+ * total number of items that can be stored.
+ * <p>
+ * {@link #getStatistics(ItemFilter)} and {@link #attemptExtraction(ItemFilter, int, Simulation)} look up
+ * {@link ExactItemStackFilter}, {@link ExactItemFilter}, and {@link ExactItemSetFilter} (and their inversions) directly
+ * rather than checking every stored stack, so only other filters need a full scan. */
 public class SimpleGroupedItemInv implements GroupedItemInv, Saveable {
 
     private static final ItemInvAmountChangeListener[] NO_LISTENERS = new ItemInvAmountChangeListener[0];
@@ -39,7 +55,8 @@ public class SimpleGroupedItemInv implements GroupedItemInv, Saveable {
     public final int maxItemTypes;
     public final int maxItems;
 
-    /** A cached count of the number of items stored in {@link #stacks}. */
+    /** A cached count of the number of items stored in {@link #stacks}, which makes statistics for
+     * {@link ConstantItemFilter#ANYTHING} O(1). */
     private int cachedItemCount;
 
     private int changes;
@@ -52,17 +69,75 @@ public class SimpleGroupedItemInv implements GroupedItemInv, Saveable {
     // Should this use WeakReference instead of storing them directly?
     private ItemInvAmountChangeListener[] bakedListeners = NO_LISTENERS;
 
-    private final Object2IntMap<ItemStack> stacks = ItemStackCollections.intMap();
+    /** Every stored item type, keyed on the interned {@link ItemKey} so that lookups don't re-hash the stack's tag. */
+    private final Map<ItemKey, StoredEntry> stacks = ItemStackCollections.keyLinkedHashMap();
+
+    /** The {@link StoredEntry#stack} of every entry in {@link #stacks}. This only changes when an item type is added or
+     * removed. */
+    private final Set<ItemStack> storedStacks = ItemStackCollections.openLinkedHashSet();
+    private final Set<ItemStack> storedStacksView = Collections.unmodifiableSet(storedStacks);
+
+    /** Every entry in {@link #stacks}, grouped by {@link Item}. */
+    private final Map<Item, List<StoredEntry>> itemBuckets = new Reference2ObjectOpenHashMap<>();
+
+    /** A cached count of the number of items stored in each bucket of {@link #itemBuckets}. */
+    private final Reference2IntOpenHashMap<Item> itemTotals = new Reference2IntOpenHashMap<>();
+
+    /** The {@link StoredEntry#order} of the next entry to be added. */
+    private long nextOrder;
 
     public SimpleGroupedItemInv(int maxItemTypes, int maxItems) {
         this.maxItemTypes = maxItemTypes;
         this.maxItems = maxItems;
-        stacks.defaultReturnValue(-1);
+    }
+
+    /** A single stored item type. */
+    static final class StoredEntry {
+        final ItemKey key;
+
+        /** A single-count stack for {@link #key}, which is never modified, and only passed to filters (and
+         * {@link SimpleGroupedItemInv#getStoredStacks()}). */
+        final ItemStack stack;
+
+        /** The position of this entry in the (insertion) order of {@link SimpleGroupedItemInv#stacks}. */
+        final long order;
+
+        int amount;
+
+        StoredEntry(ItemKey key, long order) {
+            this.key = key;
+            this.stack = key.toStack();
+            this.order = order;
+        }
     }
 
     @Override
     public Set<ItemStack> getStoredStacks() {
-        return stacks.keySet();
+        return storedStacksView;
+    }
+
+    @Override
+    public Set<ItemKey> getStoredKeys() {
+        return Collections.unmodifiableSet(stacks.keySet());
+    }
+
+    @Override
+    public int getAmount(ItemStack stack) {
+        StoredEntry entry = stacks.get(ItemKey.of(stack));
+        return entry == null ? 0 : entry.amount;
+    }
+
+    @Override
+    public void forEachAmount(ItemInvAmountVisitor visitor) {
+        for (StoredEntry entry : stacks.values()) {
+            visitor.visit(entry.stack, entry.amount);
+        }
+    }
+
+    /** @return The amount of the given key that is stored in this inventory. */
+    public int getAmount(ItemKey key) {
+        StoredEntry entry = stacks.get(key);
+        return entry == null ? 0 : entry.amount;
     }
 
     @Override
@@ -72,24 +147,128 @@ public class SimpleGroupedItemInv implements GroupedItemInv, Saveable {
 
     @Override
     public ItemInvStatistic getStatistics(ItemFilter filter) {
-        int totalCount = 0;
-        int totalSpace = maxItems;
-        for (Object2IntMap.Entry<ItemStack> entry : stacks.object2IntEntrySet()) {
-            ItemStack stack = entry.getKey();
-            int count = entry.getIntValue();
-            if (filter.matches(stack)) {
-                totalCount += count;
-            } else {
-                totalSpace -= count;
+        int totalCount = getMatchingAmount(filter);
+        // Everything that doesn't match the filter takes up space that the filter could otherwise use
+        int totalSpace = maxItems - (cachedItemCount - totalCount);
+        return new ItemInvStatistic(filter, totalCount, 0, totalSpace);
+    }
+
+    @Override
+    public int getAmount(ItemFilter filter) {
+        return getMatchingAmount(filter);
+    }
+
+    private int getMatchingAmount(ItemFilter filter) {
+        if (filter == ConstantItemFilter.ANYTHING) {
+            return cachedItemCount;
+        } else if (filter == ConstantItemFilter.NOTHING) {
+            return 0;
+        } else if (filter instanceof ExactItemStackFilter) {
+            ItemStack stack = ((ExactItemStackFilter) filter).stack;
+            return stack.isEmpty() ? 0 : getAmount(ItemKey.of(stack));
+        } else if (filter instanceof ExactItemFilter) {
+            return getBucketAmount(((ExactItemFilter) filter).item);
+        } else if (filter instanceof ExactItemSetFilter) {
+            Set<Item> items = ((ExactItemSetFilter) filter).getItems();
+            if (items.size() <= itemBuckets.size()) {
+                int total = 0;
+                for (Item item : items) {
+                    total += getBucketAmount(item);
+                }
+                return total;
+            }
+        } else if (filter instanceof InvertedItemFilter) {
+            return cachedItemCount - getMatchingAmount(((InvertedItemFilter) filter).delegate);
+        }
+
+        int total = 0;
+        for (StoredEntry entry : stacks.values()) {
+            if (filter.matches(entry.stack)) {
+                total += entry.amount;
+            }
+        }
+        return total;
+    }
+
+    private int getBucketAmount(Item item) {
+        return itemTotals.getInt(item);
+    }
+
+    /** Changes the amount stored in the given entry, keeping {@link #cachedItemCount} and {@link #itemTotals} up to
+     * date. */
+    private void changeAmount(StoredEntry entry, int delta) {
+        entry.amount += delta;
+        cachedItemCount += delta;
+        Item item = entry.key.getItem();
+        int total = itemTotals.addTo(item, delta) + delta;
+        if (total == 0) {
+            itemTotals.removeInt(item);
+        }
+    }
+
+    /** @return The first {@link StoredEntry} that matches the given filter, or null if none do. */
+    private StoredEntry findFirstMatching(ItemFilter filter) {
+        if (filter == ConstantItemFilter.NOTHING) {
+            return null;
+        } else if (filter instanceof ExactItemStackFilter) {
+            ItemStack stack = ((ExactItemStackFilter) filter).stack;
+            return stack.isEmpty() ? null : stacks.get(ItemKey.of(stack));
+        } else if (filter instanceof ExactItemFilter) {
+            List<StoredEntry> bucket = itemBuckets.get(((ExactItemFilter) filter).item);
+            return bucket == null ? null : bucket.get(0);
+        } else if (filter instanceof ExactItemSetFilter) {
+            Set<Item> items = ((ExactItemSetFilter) filter).getItems();
+            if (items.size() <= itemBuckets.size()) {
+                // Every bucket is in insertion order, so the earliest of their first entries is the same one that a
+                // full scan would have found
+                StoredEntry first = null;
+                for (Item item : items) {
+                    List<StoredEntry> bucket = itemBuckets.get(item);
+                    if (bucket != null && (first == null || bucket.get(0).order < first.order)) {
+                        first = bucket.get(0);
+                    }
+                }
+                return first;
+            }
+        }
+
+        for (StoredEntry entry : stacks.values()) {
+            if (filter.matches(entry.stack)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private StoredEntry addEntry(ItemKey key) {
+        StoredEntry entry = new StoredEntry(key, nextOrder++);
+        stacks.put(key, entry);
+        storedStacks.add(entry.stack);
+        itemBuckets.computeIfAbsent(key.getItem(), i -> new ArrayList<>(1)).add(entry);
+        return entry;
+    }
+
+    private void removeEntry(StoredEntry entry) {
+        stacks.remove(entry.key);
+        storedStacks.remove(entry.stack);
+        Item item = entry.key.getItem();
+        List<StoredEntry> bucket = itemBuckets.get(item);
+        if (bucket != null) {
+            bucket.remove(entry);
+            if (bucket.isEmpty()) {
+                itemBuckets.remove(item);
             }
         }
-        return new ItemInvStatistic(filter, totalCount, 0, totalSpace);
     }
 
     @Override
     public ItemStack attemptInsertion(ItemStack stack, Simulation simulation) {
-        int current = stacks.getInt(stack);
-        if (current < 0 && stacks.size() >= maxItemTypes) {
+        if (stack.isEmpty()) {
+            return stack;
+        }
+        ItemKey key = ItemKey.of(stack);
+        StoredEntry entry = stacks.get(key);
+        if (entry == null && stacks.size() >= maxItemTypes) {
             return stack;
         }
         int insertable = Math.min(stack.getCount(), maxItems - cachedItemCount);
@@ -100,35 +279,32 @@ public class SimpleGroupedItemInv implements GroupedItemInv, Saveable {
         ItemStack insStack = stack.split(insertable);
         assert insStack.getCount() == insertable;
         if (simulation == Simulation.ACTION) {
-            stacks.put(insStack, insertable + (current < 0 ? 0 : current));
-            cachedItemCount += insertable;
-            fireAmountChange(stack, current, current + insertable);
+            if (entry == null) {
+                entry = addEntry(key);
+            }
+            int current = entry.amount;
+            changeAmount(entry, insertable);
+            fireAmountChange(entry.stack, current, current + insertable);
         }
         return stack;
     }
 
     @Override
     public ItemStack attemptExtraction(ItemFilter filter, int maxAmount, Simulation simulation) {
-        for (Object2IntMap.Entry<ItemStack> entry : stacks.object2IntEntrySet()) {
-            ItemStack stack = entry.getKey();
-            if (filter.matches(stack)) {
-                int current = entry.getIntValue();
-                int extracted = Math.min(current, maxAmount);
-                if (simulation == Simulation.ACTION) {
-                    if (extracted == current) {
-                        stacks.removeInt(stack);
-                    } else {
-                        entry.setValue(current - extracted);
-                    }
-                    cachedItemCount -= extracted;
-                    fireAmountChange(stack, current, current - extracted);
-                }
-                stack = stack.copy();
-                stack.setCount(extracted);
-                return stack;
+        StoredEntry entry = findFirstMatching(filter);
+        if (entry == null) {
+            return ItemStack.EMPTY;
+        }
+        int current = entry.amount;
+        int extracted = Math.min(current, maxAmount);
+        if (simulation == Simulation.ACTION) {
+            changeAmount(entry, -extracted);
+            if (extracted == current) {
+                removeEntry(entry);
             }
+            fireAmountChange(entry.stack, current, current - extracted);
         }
-        return ItemStack.EMPTY;
+        return entry.key.toStack(extracted);
     }
 
     // Listeners
@@ -197,13 +373,12 @@ public class SimpleGroupedItemInv implements GroupedItemInv, Saveable {
     @Override
     public CompoundTag toTag(CompoundTag tag) {
         ListTag items = new ListTag();
-        for (Object2IntMap.Entry<ItemStack> entry : this.stacks.object2IntEntrySet()) {
-            ItemStack stack = entry.getKey();
-            int count = entry.getIntValue();
+        for (StoredEntry entry : this.stacks.values()) {
+            int count = entry.amount;
             if (count <= 0) {
                 continue;
             }
-            CompoundTag itemTag = stack.toTag(new CompoundTag());
+            CompoundTag itemTag = entry.stack.toTag(new CompoundTag());
             itemTag.putInt("Count", count);
             items.add(itemTag);
         }
@@ -222,12 +397,13 @@ public class SimpleGroupedItemInv implements GroupedItemInv, Saveable {
             itemTag.putByte("Count", (byte) 1);
             ItemStack stack = ItemStack.fromTag(itemTag);
             if (!stack.isEmpty()) {
-                stacks.put(stack, count);
+                ItemKey key = ItemKey.of(stack);
+                StoredEntry entry = stacks.get(key);
+                if (entry == null) {
+                    entry = addEntry(key);
+                }
+                changeAmount(entry, count - entry.amount);
             }
         }
-
-        for (int count : stacks.values().toIntArray()) {
-            cachedItemCount += count;
-        }
     }
 }
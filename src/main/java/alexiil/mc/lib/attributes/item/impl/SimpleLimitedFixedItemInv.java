@@ -7,7 +7,9 @@
  */
 package alexiil.mc.lib.attributes.item.impl;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import javax.annotation.Nullable;
 
@@ -18,8 +20,10 @@ import alexiil.mc.lib.attributes.ListenerToken;
 import alexiil.mc.lib.attributes.Simulation;
 import alexiil.mc.lib.attributes.item.FixedItemInv;
 import alexiil.mc.lib.attributes.item.FixedItemInvView;
+import alexiil.mc.lib.attributes.item.GroupedItemInv;
 import alexiil.mc.lib.attributes.item.InvMarkDirtyListener;
 import alexiil.mc.lib.attributes.item.ItemInvSlotChangeListener;
+import alexiil.mc.lib.attributes.item.ItemStackHandle;
 import alexiil.mc.lib.attributes.item.ItemStackUtil;
 import alexiil.mc.lib.attributes.item.LimitedFixedItemInv;
 import alexiil.mc.lib.attributes.item.filter.ConstantItemFilter;
@@ -40,6 +44,18 @@ public class SimpleLimitedFixedItemInv extends DelegatingFixedItemInv implements
     protected final byte[] maxInsertionAmounts;
     protected final byte[] minimumAmounts;
 
+    /** Every distinct set of rules, built by {@link #markFinal()}. Null until then. */
+    private RuleGroup[] ruleGroups;
+
+    /** The index in {@link #ruleGroups} of the group that every slot belongs to. */
+    private int[] slotGroups;
+
+    /** The last filter returned by {@link #getFilterForSlot(int)} for each slot, and the delegate and insertion filters
+     * that it was combined from. Null until a slot with an insertion filter is asked for its filter. */
+    private ItemFilter[] combinedFilters;
+    private ItemFilter[] combinedBases;
+    private ItemFilter[] combinedRules;
+
     public SimpleLimitedFixedItemInv(FixedItemInv delegate) {
         super(delegate);
         insertionFilters = new ItemFilter[delegate.getSlotCount()];
@@ -61,10 +77,78 @@ public class SimpleLimitedFixedItemInv extends DelegatingFixedItemInv implements
 
     @Override
     public SimpleLimitedFixedItemInv markFinal() {
-        isImmutable = true;
+        if (!isImmutable) {
+            isImmutable = true;
+            compileRules();
+        }
         return this;
     }
 
+    /** Every slot that shares exactly the same rules, so that they only need to be checked once for all of them. */
+    static final class RuleGroup {
+        @Nullable
+        final ItemFilter insertionFilter;
+        @Nullable
+        final ItemFilter extractionFilter;
+        final byte maxInsertionAmount;
+        final byte minimumAmount;
+
+        /** True if nothing can ever be inserted into any of these slots. */
+        final boolean rejectsInsertion;
+
+        RuleGroup(ItemFilter insertionFilter, ItemFilter extractionFilter, byte maxInsertion, byte minimum) {
+            this.insertionFilter = insertionFilter;
+            this.extractionFilter = extractionFilter;
+            this.maxInsertionAmount = maxInsertion;
+            this.minimumAmount = minimum;
+            this.rejectsInsertion = maxInsertion <= 0 || insertionFilter == ConstantItemFilter.NOTHING;
+        }
+
+        boolean hasSameRules(ItemFilter insertion, ItemFilter extraction, byte maxInsertion, byte minimum) {
+            return insertionFilter == insertion && extractionFilter == extraction
+                && maxInsertionAmount == maxInsertion && minimumAmount == minimum;
+        }
+
+        /** @return True if a stack (that passes the delegate's own checks) might be insertable into these slots. */
+        boolean canInsert(ItemStack stack) {
+            return !rejectsInsertion && (insertionFilter == null || insertionFilter.matches(stack));
+        }
+    }
+
+    /** Groups every slot by its rules. As the rules can't change after {@link #markFinal()} this only happens once. */
+    private void compileRules() {
+        int slotCount = insertionFilters.length;
+        List<RuleGroup> groups = new ArrayList<>();
+        int[] groupIndices = new int[slotCount];
+        for (int slot = 0; slot < slotCount; slot++) {
+            ItemFilter insertion = insertionFilters[slot];
+            ItemFilter extraction = extractionFilters[slot];
+            byte max = maxInsertionAmounts[slot];
+            byte min = minimumAmounts[slot];
+            int index = -1;
+            // Almost every inventory only has a handful of distinct rules, so a linear search is fine here
+            for (int g = groups.size() - 1; g >= 0; g--) {
+                if (groups.get(g).hasSameRules(insertion, extraction, max, min)) {
+                    index = g;
+                    break;
+                }
+            }
+            if (index < 0) {
+                index = groups.size();
+                groups.add(new RuleGroup(insertion, extraction, max, min));
+            }
+            groupIndices[slot] = index;
+        }
+        ruleGroups = groups.toArray(new RuleGroup[0]);
+        slotGroups = groupIndices;
+    }
+
+    /** @return The number of distinct rule groups that {@link #markFinal()} compiled the slot rules into, or -1 if this
+     *         hasn't been marked as final yet. */
+    public int getRuleGroupCount() {
+        return ruleGroups == null ? -1 : ruleGroups.length;
+    }
+
     protected void assertMutable() {
         if (isImmutable) {
             throw new IllegalStateException(
@@ -84,12 +168,15 @@ public class SimpleLimitedFixedItemInv extends DelegatingFixedItemInv implements
         } else {
             inv = new SimpleLimitedFixedItemInv(delegate);
         }
-        inv.isImmutable = isImmutable;
         for (int i = 0; i < inv.getSlotCount(); i++) {
             inv.insertionFilters[i] = insertionFilters[i];
+            inv.extractionFilters[i] = extractionFilters[i];
             inv.maxInsertionAmounts[i] = maxInsertionAmounts[i];
             inv.minimumAmounts[i] = minimumAmounts[i];
         }
+        if (isImmutable) {
+            inv.markFinal();
+        }
         return inv;
     }
 
@@ -97,16 +184,36 @@ public class SimpleLimitedFixedItemInv extends DelegatingFixedItemInv implements
 
     @Override
     public boolean isItemValidForSlot(int slot, ItemStack stack) {
-        return (stack.isEmpty() || getFilterForSlot(slot).matches(stack)) && delegate.isItemValidForSlot(slot, stack);
+        // Equivalent to getFilterForSlot(slot).matches(stack), but without allocating a new combined filter
+        if (!stack.isEmpty()) {
+            ItemFilter filter = insertionFilters[slot];
+            if (filter != null && !filter.matches(stack)) {
+                return false;
+            }
+        }
+        return delegate.isItemValidForSlot(slot, stack);
     }
 
     @Override
     public ItemFilter getFilterForSlot(int slot) {
+        ItemFilter base = super.getFilterForSlot(slot);
         ItemFilter filter = insertionFilters[slot];
-        if (filter != null) {
-            return super.getFilterForSlot(slot).and(filter);
+        if (filter == null) {
+            return base;
         }
-        return super.getFilterForSlot(slot);
+        if (combinedFilters == null) {
+            combinedFilters = new ItemFilter[insertionFilters.length];
+            combinedBases = new ItemFilter[insertionFilters.length];
+            combinedRules = new ItemFilter[insertionFilters.length];
+        } else if (combinedBases[slot] == base && combinedRules[slot] == filter) {
+            // Return the same object as last time, so that callers that cache by identity can reuse it
+            return combinedFilters[slot];
+        }
+        ItemFilter combined = base.and(filter);
+        combinedFilters[slot] = combined;
+        combinedBases[slot] = base;
+        combinedRules[slot] = filter;
+        return combined;
     }
 
     @Override
@@ -158,7 +265,12 @@ public class SimpleLimitedFixedItemInv extends DelegatingFixedItemInv implements
         if (insertionFilters[slot] != null && !insertionFilters[slot].matches(stack)) {
             return stack;
         }
+        return insertChecked(slot, currentCount, stack, simulation);
+    }
 
+    /** The rest of {@link #insertStack(int, ItemStack, Simulation)}, after the maximum amount and the insertion filter
+     * have been checked. */
+    private ItemStack insertChecked(int slot, int currentCount, ItemStack stack, Simulation simulation) {
         // If current count + added count exceed the maximum, we need to try and insert
         // a partial amount and adjust the excess
         int cannotAddAmount = Math.max(0, currentCount + stack.getCount() - maxInsertionAmounts[slot]);
@@ -210,6 +322,63 @@ public class SimpleLimitedFixedItemInv extends DelegatingFixedItemInv implements
         return Math.min(ourMax, delegateMax);
     }
 
+    /** {@inheritDoc}
+     * <p>
+     * Once this has been {@link #markFinal() marked as final} the returned inventory tests the rules of each group of
+     * identical slots once per insertion, rather than once per slot. */
+    @Override
+    public GroupedItemInv getGroupedInv() {
+        if (ruleGroups == null) {
+            return super.getGroupedInv();
+        }
+        return new GroupedItemInvFixedWrapper(this) {
+            @Override
+            public ItemStack attemptInsertion(ItemStack stack, Simulation simulation) {
+                return insertGrouped(stack, simulation);
+            }
+        };
+    }
+
+    /** Inserts into every slot in order, like {@link GroupedItemInvFixedWrapper}, but skips every slot in a rule group
+     * as soon as that group rejects the stack. */
+    private ItemStack insertGrouped(ItemStack stack, Simulation simulation) {
+        if (stack.isEmpty()) {
+            return ItemStack.EMPTY;
+        }
+        RuleGroup[] groups = ruleGroups;
+        // Bit 'g' of tested is set once group 'g' has been checked, and of accepted if it might accept the stack.
+        // (Groups after the first 64 are checked on every slot instead, which is no worse than not grouping at all).
+        long tested = 0;
+        long accepted = 0;
+        for (int slot = 0; slot < slotGroups.length; slot++) {
+            int g = slotGroups[slot];
+            if (g < 64) {
+                long bit = 1L << g;
+                if ((tested & bit) == 0) {
+                    tested |= bit;
+                    if (groups[g].canInsert(stack)) {
+                        accepted |= bit;
+                    }
+                }
+                if ((accepted & bit) == 0) {
+                    continue;
+                }
+            } else if (!groups[g].canInsert(stack)) {
+                continue;
+            }
+            ItemStack current = getInvStack(slot);
+            int currentCount = current.isEmpty() ? 0 : current.getCount();
+            if (currentCount >= maxInsertionAmounts[slot]) {
+                continue;
+            }
+            stack = insertChecked(slot, currentCount, stack, simulation);
+            if (stack.isEmpty()) {
+                return ItemStack.EMPTY;
+            }
+        }
+        return stack;
+    }
+
     // Rules
 
     @Override
@@ -325,6 +494,11 @@ public class SimpleLimitedFixedItemInv extends DelegatingFixedItemInv implements
             return ((CopyingFixedItemInv) delegate).getUnmodifiableInvStack(slot);
         }
 
+        @Override
+        public ItemStackHandle getInvStackHandle(int slot) {
+            return ((CopyingFixedItemInv) delegate).getInvStackHandle(slot);
+        }
+
         @Override
         public ListenerToken addListener(ItemInvSlotChangeListener listener, ListenerRemovalToken removalToken) {
             FixedItemInvView wrapper = this;
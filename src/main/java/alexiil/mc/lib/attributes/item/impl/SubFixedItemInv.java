@@ -15,6 +15,8 @@ import alexiil.mc.lib.attributes.Simulation;
 import alexiil.mc.lib.attributes.item.FixedItemInv;
 import alexiil.mc.lib.attributes.item.FixedItemInvView;
 import alexiil.mc.lib.attributes.item.ItemInvSlotChangeListener;
+import alexiil.mc.lib.attributes.item.ItemStackHandle;
+import alexiil.mc.lib.attributes.misc.SlotArrays;
 
 public class SubFixedItemInv extends SubFixedItemInvView implements FixedItemInv {
 
@@ -41,6 +43,9 @@ public class SubFixedItemInv extends SubFixedItemInvView implements FixedItemInv
         }
         fIndex = getInternalSlot(fIndex);
         tIndex = getInternalSlot(tIndex - 1) + 1;
+        if (FlatFixedItemInvView.isNormalisable(inv)) {
+            return FlatFixedItemInv.create(inv(), SlotArrays.range(fIndex, tIndex));
+        }
         return create(inv(), fIndex, tIndex);
     }
 
@@ -52,6 +57,9 @@ public class SubFixedItemInv extends SubFixedItemInvView implements FixedItemInv
         for (int i = 0; i < slots.length; i++) {
             slots[i] = getInternalSlot(slots[i]);
         }
+        if (FlatFixedItemInvView.isNormalisable(inv)) {
+            return FlatFixedItemInv.create(inv(), slots);
+        }
         return MappedFixedItemInv.create(inv(), slots);
     }
 
@@ -89,6 +97,11 @@ public class SubFixedItemInv extends SubFixedItemInvView implements FixedItemInv
             return ((CopyingFixedItemInv) inv).getUnmodifiableInvStack(getInternalSlot(slot));
         }
 
+        @Override
+        public ItemStackHandle getInvStackHandle(int slot) {
+            return ((CopyingFixedItemInv) inv).getInvStackHandle(getInternalSlot(slot));
+        }
+
         @Override
         public ListenerToken addListener(ItemInvSlotChangeListener listener, ListenerRemovalToken removalToken) {
             FixedItemInvView wrapper = this;
@@ -8,6 +8,7 @@
 package alexiil.mc.lib.attributes.item.impl;
 
 import alexiil.mc.lib.attributes.item.FixedItemInvView;
+import alexiil.mc.lib.attributes.misc.SlotArrays;
 
 /** Default implementation for {@link FixedItemInvView#getSubInv(int, int)}. */
 public class SubFixedItemInvView extends AbstractPartialFixedItemInvView {
@@ -62,6 +63,9 @@ public class SubFixedItemInvView extends AbstractPartialFixedItemInvView {
         }
         fIndex = getInternalSlot(fIndex);
         tIndex = getInternalSlot(tIndex - 1) + 1;
+        if (FlatFixedItemInvView.isNormalisable(inv)) {
+            return FlatFixedItemInvView.createView(inv, SlotArrays.range(fIndex, tIndex));
+        }
         return new SubFixedItemInvView(inv, fIndex, tIndex);
     }
 
@@ -73,6 +77,9 @@ public class SubFixedItemInvView extends AbstractPartialFixedItemInvView {
         for (int i = 0; i < slots.length; i++) {
             slots[i] = getInternalSlot(slots[i]);
         }
+        if (FlatFixedItemInvView.isNormalisable(inv)) {
+            return FlatFixedItemInvView.createView(inv, slots);
+        }
         return new MappedFixedItemInvView(inv, slots);
     }
 }
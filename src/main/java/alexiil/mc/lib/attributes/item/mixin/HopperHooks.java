@@ -7,9 +7,15 @@
  */
 package alexiil.mc.lib.attributes.item.mixin;
 
+import java.util.Arrays;
+
+import javax.annotation.Nullable;
+
 import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
 import net.minecraft.block.DispenserBlock;
 import net.minecraft.block.HopperBlock;
+import net.minecraft.block.entity.BlockEntity;
 import net.minecraft.block.entity.DispenserBlockEntity;
 import net.minecraft.block.entity.Hopper;
 import net.minecraft.block.entity.HopperBlockEntity;
@@ -26,9 +32,11 @@ import alexiil.mc.lib.attributes.item.ItemAttributes;
 import alexiil.mc.lib.attributes.item.ItemExtractable;
 import alexiil.mc.lib.attributes.item.ItemInsertable;
 import alexiil.mc.lib.attributes.item.ItemInvUtil;
+import alexiil.mc.lib.attributes.item.LbaItemsConfig;
 import alexiil.mc.lib.attributes.item.compat.FixedInventoryVanillaWrapper;
 import alexiil.mc.lib.attributes.item.impl.EmptyItemExtractable;
 import alexiil.mc.lib.attributes.item.impl.RejectingItemInsertable;
+import alexiil.mc.lib.attributes.item.mixin.api.IHopperBlockEntity;
 
 /** Helper class for the {@link HopperBlockEntity} to implement the actual transfer logic. */
 public final class HopperHooks {
@@ -36,6 +44,12 @@ public final class HopperHooks {
     /** Hoppers always search UP for adjacent inventories to extract from. */
     private static final SearchOption<? super ItemExtractable> EXTRACT_SEARCH = SearchOptions.inDirection(Direction.UP);
 
+    private static final byte UNKNOWN = 0, VANILLA = 1, MODDED = 2;
+
+    /** Whether each block (indexed by raw id) is from vanilla, so the namespace of its identifier only needs to be
+     * checked once. This is copy-on-write, so it's fine to read without locking. */
+    private static byte[] vanillaBlocks = new byte[0];
+
     private HopperHooks() {}
 
     /** Attempts to insert items from a Hopper into an adjacent LBA insertable. If the block entity to be inserted into
@@ -45,27 +59,37 @@ public final class HopperHooks {
      *         insertion failed or succeeded. */
     public static ActionResult tryInsert(HopperBlockEntity hopper) {
         Direction towards = hopper.getCachedState().get(HopperBlock.FACING);
-        BlockPos targetPos = hopper.getPos().offset(towards);
-
         World world = hopper.getWorld();
-        if (isVanillaInventoryAt(world, targetPos)) {
-            return ActionResult.PASS;
+
+        if (hopper instanceof IHopperBlockEntity) {
+            HopperTargetCache cache = ((IHopperBlockEntity) hopper).libblockattributes__getTargetCache();
+            HopperTargetCache.Target<ItemInsertable> target = cache.insertTarget;
+            BlockPos targetPos = target.getPos(world, hopper.getPos(), towards);
+            BlockState state = world.getBlockState(targetPos);
+            BlockEntity be = world.getBlockEntity(targetPos);
+
+            ItemInsertable insertable;
+            if (target.isValid(state, be)) {
+                insertable = target.get();
+            } else {
+                insertable = findInsertable(world, targetPos, state.getBlock(), towards);
+                target.set(state, be, insertable);
+            }
+            if (insertable == null) {
+                return ActionResult.PASS;
+            }
+            return move(cache.getSelfExtractable(), insertable, cache);
         }
 
-        ItemInsertable insertable = ItemAttributes.INSERTABLE.get(world, targetPos, SearchOptions.inDirection(towards));
-        if (insertable == RejectingItemInsertable.NULL) {
-            return ActionResult.PASS; // Let Vanilla handle non-LBA enabled inventories and Entities
+        BlockPos targetPos = hopper.getPos().offset(towards);
+        Block block = world.getBlockState(targetPos).getBlock();
+        ItemInsertable insertable = findInsertable(world, targetPos, block, towards);
+        if (insertable == null) {
+            return ActionResult.PASS;
         }
 
         // Get an Extractable for the Hopper's internal inventory
-        ItemExtractable extractable = new FixedInventoryVanillaWrapper(hopper).getExtractable();
-
-        // Try to move any one item from hopper->inventory
-        if (ItemInvUtil.move(extractable, insertable, 1) > 0) {
-            return ActionResult.SUCCESS;
-        } else {
-            return ActionResult.FAIL;
-        }
+        return move(new FixedInventoryVanillaWrapper(hopper).getExtractable(), insertable, null);
     }
 
     /** Tries to extract items from a LBA extractable above the given hopper. Note that the given hopper can also be a
@@ -77,23 +101,74 @@ public final class HopperHooks {
      *         extraction failed or succeeded. */
     public static ActionResult tryExtract(Hopper hopper) {
         World world = hopper.getWorld();
-        BlockPos blockAbove = new BlockPos(hopper.getHopperX(), hopper.getHopperY() + 1, hopper.getHopperZ());
 
-        if (isVanillaInventoryAt(world, blockAbove)) {
-            return ActionResult.PASS;
+        if (hopper instanceof IHopperBlockEntity) {
+            HopperTargetCache cache = ((IHopperBlockEntity) hopper).libblockattributes__getTargetCache();
+            HopperTargetCache.Target<ItemExtractable> target = cache.extractTarget;
+            BlockPos blockAbove = target.getPos(world, ((HopperBlockEntity) hopper).getPos(), Direction.UP);
+            BlockState state = world.getBlockState(blockAbove);
+            BlockEntity be = world.getBlockEntity(blockAbove);
+
+            ItemExtractable extractable;
+            if (target.isValid(state, be)) {
+                extractable = target.get();
+            } else {
+                extractable = findExtractable(world, blockAbove, state.getBlock());
+                target.set(state, be, extractable);
+            }
+            if (extractable == null) {
+                return ActionResult.PASS;
+            }
+            return move(extractable, cache.getSelfInsertable(), cache);
         }
 
-        // Get an Extractable for the inventory above the hopper
-        ItemExtractable extractable = ItemAttributes.EXTRACTABLE.get(world, blockAbove, EXTRACT_SEARCH);
-        if (extractable == EmptyItemExtractable.NULL) {
-            return ActionResult.PASS; // Let Vanilla handle non-LBA enabled inventories and Entities
+        // Hopper minecarts move around, so there's nothing worth caching
+        BlockPos blockAbove = new BlockPos(hopper.getHopperX(), hopper.getHopperY() + 1, hopper.getHopperZ());
+        ItemExtractable extractable = findExtractable(world, blockAbove, world.getBlockState(blockAbove).getBlock());
+        if (extractable == null) {
+            return ActionResult.PASS;
         }
 
         // Get an Insertable for the Hopper's internal inventory
-        ItemInsertable insertable = new FixedInventoryVanillaWrapper(hopper).getInsertable();
+        return move(extractable, new FixedInventoryVanillaWrapper(hopper).getInsertable(), null);
+    }
 
-        // Try to move any one item from inventory->hopper
-        if (ItemInvUtil.move(extractable, insertable, 1) > 0) {
+    /** @return The LBA insertable at the given position, or null if vanilla should handle it instead. */
+    @Nullable
+    private static ItemInsertable findInsertable(World world, BlockPos pos, Block block, Direction towards) {
+        if (isVanillaBlock(block)) {
+            return null;
+        }
+        ItemInsertable insertable = ItemAttributes.INSERTABLE.get(world, pos, SearchOptions.inDirection(towards));
+        if (insertable == RejectingItemInsertable.NULL) {
+            return null; // Let Vanilla handle non-LBA enabled inventories and Entities
+        }
+        return insertable;
+    }
+
+    /** @return The LBA extractable at the given position, or null if vanilla should handle it instead. */
+    @Nullable
+    private static ItemExtractable findExtractable(World world, BlockPos pos, Block block) {
+        if (isVanillaBlock(block)) {
+            return null;
+        }
+        ItemExtractable extractable = ItemAttributes.EXTRACTABLE.get(world, pos, EXTRACT_SEARCH);
+        if (extractable == EmptyItemExtractable.NULL) {
+            return null; // Let Vanilla handle non-LBA enabled inventories and Entities
+        }
+        return extractable;
+    }
+
+    /** @param cache The cache to record the number of moved items in, so that the cooldown can be scaled to match. If
+     *            this is null then only a single item is moved, as there's no way to scale the cooldown. */
+    private static ActionResult move(ItemExtractable from, ItemInsertable to, @Nullable HopperTargetCache cache) {
+        // Try to move any one item (or up to a full batch if bulk transfers are enabled)
+        int maximum = cache == null ? 1 : LbaItemsConfig.HOPPER_TRANSFER_COUNT;
+        int moved = ItemInvUtil.move(from, to, maximum);
+        if (moved > 0) {
+            if (cache != null) {
+                cache.onItemsMoved(moved);
+            }
             return ActionResult.SUCCESS;
         } else {
             return ActionResult.FAIL;
@@ -125,12 +200,27 @@ public final class HopperHooks {
         }
     }
 
-    private static boolean isVanillaInventoryAt(World world, BlockPos pos) {
-        Block block = world.getBlockState(pos).getBlock();
-        if ("minecraft".equals(Registry.BLOCK.getId(block).getNamespace())) {
-            return true;
+    private static boolean isVanillaBlock(Block block) {
+        int id = Registry.BLOCK.getRawId(block);
+        byte[] table = vanillaBlocks;
+        if (id >= 0 && id < table.length && table[id] != UNKNOWN) {
+            return table[id] == VANILLA;
+        }
+        boolean vanilla = "minecraft".equals(Registry.BLOCK.getId(block).getNamespace());
+        if (id >= 0) {
+            if (id >= table.length) {
+                table = Arrays.copyOf(table, Math.max(id + 1, table.length * 2));
+            } else {
+                table = table.clone();
+            }
+            table[id] = vanilla ? VANILLA : MODDED;
+            vanillaBlocks = table;
         }
-        return false;
+        return vanilla;
+    }
+
+    private static boolean isVanillaInventoryAt(World world, BlockPos pos) {
+        return isVanillaBlock(world.getBlockState(pos).getBlock());
         // If there's a TE at the target position that implements Inventory (such that Hopper would handle it itself)
         // defer to Vanilla to avoid injecting ourselves inbetween Vanilla blocks needlessly.
         // ItemAttributes.INSERTABLE would return an auto-converted Inventory in such cases.
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.item.mixin;
+
+import javax.annotation.Nullable;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.block.entity.BlockEntity;
+import net.minecraft.inventory.Inventory;
+import concern.BlockPos;
+import concern.Direction;
+import net.minecraft.world.World;
+
+import alexiil.mc.lib.attributes.item.ItemExtractable;
+import alexiil.mc.lib.attributes.item.ItemInsertable;
+import alexiil.mc.lib.attributes.item.LbaItemsConfig;
+import alexiil.mc.lib.attributes.item.compat.FixedInventoryVanillaWrapper;
+
+/** Stores the LBA targets of a single hopper between ticks, so that {@link HopperHooks} doesn't need to look up the
+ * attributes of the adjacent blocks (or wrap the hopper's own inventory) every time it transfers an item.
+ * <p>
+ * A cached target is only used while the {@link BlockState} and {@link BlockEntity} at its position are the same
+ * objects that it was resolved from, so replacing or changing the neighbouring block invalidates it. As an extra
+ * safety net for block entities that change which attribute they expose without changing their state, every target is
+ * also resolved again after {@link #MAX_USES} uses. Mods can call {@link #invalidate()} to force this sooner. */
+public final class HopperTargetCache {
+
+    /** The maximum number of times that a single resolved target is used before it's looked up again. */
+    public static final int MAX_USES = 32;
+
+    private final Inventory hopper;
+    private FixedInventoryVanillaWrapper wrapper;
+    private ItemInsertable selfInsertable;
+    private ItemExtractable selfExtractable;
+
+    final Target<ItemInsertable> insertTarget = new Target<>();
+    final Target<ItemExtractable> extractTarget = new Target<>();
+
+    /** The largest number of items moved by a single operation since the hopper's cooldown was last set. */
+    private int cooldownMultiplier = 1;
+
+    public HopperTargetCache(Inventory hopper) {
+        this.hopper = hopper;
+    }
+
+    /** Forgets every cached target, so they will all be looked up again the next time they are used. */
+    public void invalidate() {
+        insertTarget.invalidate();
+        extractTarget.invalidate();
+    }
+
+    void onItemsMoved(int count) {
+        cooldownMultiplier = Math.max(cooldownMultiplier, count);
+    }
+
+    /** Multiplies the given (vanilla) hopper cooldown by the number of items that were moved in the last operation, so
+     * that bulk transfers (see {@link LbaItemsConfig#HOPPER_TRANSFER_COUNT}) have the same average throughput as
+     * moving a single item at a time.
+     * 
+     * @return The new cooldown. */
+    public int scaleCooldown(int cooldown) {
+        int multiplier = cooldownMultiplier;
+        cooldownMultiplier = 1;
+        if (cooldown <= 0 || multiplier <= 1) {
+            return cooldown;
+        }
+        return (int) Math.min((long) cooldown * multiplier, Integer.MAX_VALUE);
+    }
+
+    /** @return A (reused) wrapper around the hopper's own inventory. */
+    FixedInventoryVanillaWrapper getWrapper() {
+        if (wrapper == null) {
+            wrapper = new FixedInventoryVanillaWrapper(hopper);
+        }
+        return wrapper;
+    }
+
+    ItemInsertable getSelfInsertable() {
+        if (selfInsertable == null) {
+            selfInsertable = getWrapper().getInsertable();
+        }
+        return selfInsertable;
+    }
+
+    ItemExtractable getSelfExtractable() {
+        if (selfExtractable == null) {
+            selfExtractable = getWrapper().getExtractable();
+        }
+        return selfExtractable;
+    }
+
+    /** A single cached lookup, in a single direction. */
+    static final class Target<T> {
+        private World world;
+        private BlockPos pos;
+        private Direction direction;
+        private BlockState state;
+        private BlockEntity blockEntity;
+        private int uses;
+
+        /** The resolved value, or null if the target should be left to vanilla. */
+        @Nullable
+        private T value;
+        private boolean resolved;
+
+        void invalidate() {
+            resolved = false;
+            value = null;
+            state = null;
+            blockEntity = null;
+        }
+
+        /** @return The position that the hopper is pointing at, which is reused for as long as the direction doesn't
+         *         change. (Hoppers never move, so the source position can't either). */
+        BlockPos getPos(World world, BlockPos from, Direction direction) {
+            if (pos == null || this.world != world || this.direction != direction) {
+                this.world = world;
+                this.direction = direction;
+                pos = from.offset(direction);
+                invalidate();
+            }
+            return pos;
+        }
+
+        /** @return True if {@link #get()} can be used instead of looking up the target again. */
+        boolean isValid(BlockState currentState, BlockEntity currentBlockEntity) {
+            if (!resolved || state != currentState || blockEntity != currentBlockEntity) {
+                return false;
+            }
+            return ++uses <= MAX_USES;
+        }
+
+        @Nullable
+        T get() {
+            return value;
+        }
+
+        void set(BlockState currentState, BlockEntity currentBlockEntity, @Nullable T resolvedValue) {
+            state = currentState;
+            blockEntity = currentBlockEntity;
+            value = resolvedValue;
+            resolved = true;
+            uses = 0;
+        }
+    }
+}
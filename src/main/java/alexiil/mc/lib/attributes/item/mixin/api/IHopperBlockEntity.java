@@ -0,0 +1,18 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.item.mixin.api;
+
+import net.minecraft.block.entity.HopperBlockEntity;
+
+import alexiil.mc.lib.attributes.item.mixin.HopperTargetCache;
+
+/** Implemented by {@link HopperBlockEntity} (via a mixin) to store the targets that it has already looked up. */
+public interface IHopperBlockEntity {
+
+    HopperTargetCache libblockattributes__getTargetCache();
+}
@@ -10,6 +10,7 @@ package alexiil.mc.lib.attributes.item.mixin.impl;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.ModifyVariable;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 
 import net.minecraft.block.entity.Hopper;
@@ -17,6 +18,8 @@ import net.minecraft.block.entity.HopperBlockEntity;
 import net.minecraft.util.ActionResult;
 
 import alexiil.mc.lib.attributes.item.mixin.HopperHooks;
+import alexiil.mc.lib.attributes.item.mixin.HopperTargetCache;
+import alexiil.mc.lib.attributes.item.mixin.api.IHopperBlockEntity;
 
 /**
  * Mixin for the hopper block entity to add support for LBA insertables and extractables.
@@ -24,7 +27,28 @@ import alexiil.mc.lib.attributes.item.mixin.HopperHooks;
  */
 @SuppressWarnings("ConstantConditions")
 @Mixin(HopperBlockEntity.class)
-public class HopperBlockEntityMixin {
+public class HopperBlockEntityMixin implements IHopperBlockEntity {
+
+    private HopperTargetCache libblockattributes__targetCache;
+
+    @Override
+    public HopperTargetCache libblockattributes__getTargetCache() {
+        if (libblockattributes__targetCache == null) {
+            libblockattributes__targetCache = new HopperTargetCache((HopperBlockEntity) (Object) this);
+        }
+        return libblockattributes__targetCache;
+    }
+
+    /** Scales the cooldown after a bulk transfer, so that hoppers which move several items at once still have the
+     * same average throughput as vanilla. This is required, as without it every bulk transfer would be a free speed
+     * increase. */
+    @ModifyVariable(method = "setCooldown", at = @At("HEAD"), argsOnly = true, require = 1)
+    private int scaleCooldown(int cooldown) {
+        if (libblockattributes__targetCache == null) {
+            return cooldown;
+        }
+        return libblockattributes__targetCache.scaleCooldown(cooldown);
+    }
 
     @Inject(method = "insert", at = @At("HEAD"), cancellable = true, require = 1, allow = 1)
     private void onInsert(CallbackInfoReturnable<Boolean> cri) {
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.misc;
+
+/** Maps the slots (or tanks) of a combined inventory back to the inventory that contains them, and the slot index in
+ * that inventory.
+ * <p>
+ * Combinations with up to {@link #MAX_TABLE_SIZE} slots use a pair of lookup arrays, so each lookup is a single array
+ * access. Larger combinations binary search the start indices instead, so they don't use too much memory. */
+public final class CombinedSlotIndex {
+
+    /** The maximum number of slots that will be stored in lookup arrays. */
+    public static final int MAX_TABLE_SIZE = 1 << 14;
+
+    private final String slotName;
+    private final int[] startIndices;
+    private final int size;
+
+    /** Slot to inventory index, or null if this uses binary search. */
+    private final int[] slotToInv;
+
+    /** Slot to sub-slot, or null if this uses binary search. */
+    private final int[] slotToSub;
+
+    /** @param slotName The (capitalised) name of a slot, used in exception messages. (For example "Slot" or "Tank").
+     * @param counts The number of slots in every inventory, in order. */
+    public CombinedSlotIndex(String slotName, int[] counts) {
+        this.slotName = slotName;
+        startIndices = new int[counts.length];
+        int total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            startIndices[i] = total;
+            total += counts[i];
+        }
+        size = total;
+
+        if (size <= MAX_TABLE_SIZE) {
+            slotToInv = new int[size];
+            slotToSub = new int[size];
+            for (int i = 0; i < counts.length; i++) {
+                int start = startIndices[i];
+                for (int s = 0; s < counts[i]; s++) {
+                    slotToInv[start + s] = i;
+                    slotToSub[start + s] = s;
+                }
+            }
+        } else {
+            slotToInv = null;
+            slotToSub = null;
+        }
+    }
+
+    /** @return The total number of slots in every inventory. */
+    public int size() {
+        return size;
+    }
+
+    /** @return The combined slot index of the first slot in the given inventory. */
+    public int getStartIndex(int inv) {
+        return startIndices[inv];
+    }
+
+    /** @return The start index of every inventory. This must not be modified! */
+    public int[] getStartIndices() {
+        return startIndices;
+    }
+
+    public int getInvIndex(int slot) {
+        checkSlot(slot);
+        if (slotToInv != null) {
+            return slotToInv[slot];
+        }
+        return search(slot);
+    }
+
+    public int getSubSlot(int slot) {
+        checkSlot(slot);
+        if (slotToSub != null) {
+            return slotToSub[slot];
+        }
+        return slot - startIndices[search(slot)];
+    }
+
+    private void checkSlot(int slot) {
+        if (slot < 0) {
+            throw new IllegalArgumentException(slotName + " must be non-negative! (was " + slot + ")");
+        }
+        if (slot >= size) {
+            throw new IllegalArgumentException(
+                slotName + " must be less than getInvSize() (was " + slot + ", maximum " + slotName.toLowerCase()
+                    + " is " + (size - 1) + ")"
+            );
+        }
+    }
+
+    /** @return The last inventory whose start index is less than or equal to the given slot. (Which skips over any
+     *         empty inventories, as they share their start index with the next one). */
+    private int search(int slot) {
+        int low = 0;
+        int high = startIndices.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (startIndices[mid] <= slot) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.misc;
+
+/** Helpers for arrays of slot (or tank) indices, as used by sub, mapped, and flat inventory views. */
+public final class SlotArrays {
+    private SlotArrays() {}
+
+    /** @return A new array of every index from fromIndex (inclusive) to toIndex (exclusive). */
+    public static int[] range(int fromIndex, int toIndex) {
+        int[] slots = new int[toIndex - fromIndex];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = fromIndex + i;
+        }
+        return slots;
+    }
+
+    /** @return True if the given array is exactly [0, 1, 2 ... count-2, count-1]. */
+    public static boolean isIdentity(int[] slots, int count) {
+        if (slots.length != count) {
+            return false;
+        }
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i] != i) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** @return True if every index in the given array is one more than the previous one. */
+    public static boolean isContiguous(int[] slots) {
+        for (int i = 1; i < slots.length; i++) {
+            if (slots[i] != slots[0] + i) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.minecraft.item.ItemStack;
+
+import alexiil.mc.lib.attributes.fluid.FixedFluidInv;
+import alexiil.mc.lib.attributes.fluid.FluidExtractable;
+import alexiil.mc.lib.attributes.fluid.FluidInsertable;
+import alexiil.mc.lib.attributes.fluid.FluidVolumeUtil;
+import alexiil.mc.lib.attributes.fluid.amount.FluidAmount;
+import alexiil.mc.lib.attributes.fluid.impl.SimpleFixedFluidInv;
+import alexiil.mc.lib.attributes.fluid.volume.FluidKeys;
+import alexiil.mc.lib.attributes.fluid.volume.FluidVolume;
+import alexiil.mc.lib.attributes.item.FixedItemInv;
+import alexiil.mc.lib.attributes.item.GroupedItemInv;
+import alexiil.mc.lib.attributes.item.ItemInvUtil;
+import alexiil.mc.lib.attributes.item.filter.ExactItemFilter;
+import alexiil.mc.lib.attributes.item.filter.ItemFilter;
+import alexiil.mc.lib.attributes.item.impl.FullFixedItemInv;
+import alexiil.mc.lib.attributes.item.impl.ItemInvTester;
+import alexiil.mc.lib.attributes.item.impl.SimpleGroupedItemInv;
+
+/** Checks that the common transfer paths ({@link ItemInvUtil#move(alexiil.mc.lib.attributes.item.ItemExtractable,
+ * alexiil.mc.lib.attributes.item.ItemInsertable, ItemFilter, int)} and
+ * {@link FluidVolumeUtil#move(FluidExtractable, FluidInsertable, FluidAmount)}) don't allocate more than a fixed
+ * budget per call.
+ * <p>
+ * This uses the per-thread allocation counter from {@link com.sun.management.ThreadMXBean}, so every test is skipped
+ * on JVMs that don't support it. The exact number of bytes depends on the JVM (object headers, compressed pointers,
+ * and how much escape analysis removes), so budgets are counted in copies of the values that are being moved: each
+ * test first measures how many bytes a single {@link ItemStack#copy()} (or {@link FluidVolume#copy()}) allocates on
+ * the current JVM, and then checks the move against a whole number of those. Every move simulates and then performs
+ * an extraction and an insertion, so a few copies are expected; each budget allows slightly more than that.
+ * <p>
+ * Fixed inventories are also measured with a small and a large (but otherwise identical) inventory, and the larger
+ * one may only allocate {@link #SLOT_SCALING_TOLERANCE} more bytes per move, which catches per-slot allocations
+ * creeping in. If a change legitimately needs more then raise the budget in the same commit, and say why. */
+public class TransferAllocationTester extends VanillaSetupBaseTester {
+
+    /** How many times each operation is run before measuring, so the JIT has compiled (and escape-analysed) it. */
+    private static final int WARMUP_OPERATIONS = 20_000;
+    private static final int MEASURED_OPERATIONS = 10_000;
+    /** The smallest of this many measurements is used, to ignore one-off allocations from unrelated code. */
+    private static final int MEASUREMENT_ROUNDS = 3;
+
+    /** How many more bytes per move a large inventory may allocate than a small one. */
+    private static final long SLOT_SCALING_TOLERANCE = 16;
+
+    private static final int SMALL_SLOTS = 27;
+    private static final int LARGE_SLOTS = 27 * 8;
+
+    /** Budgets, in {@link ItemStack#copy()}s per move. */
+    private static final int ITEM_MOVE_BUDGET = 6;
+    private static final int FILTERED_ITEM_MOVE_BUDGET = 8;
+
+    /** Budget, in {@link FluidVolume#copy()}s per move. */
+    private static final int FLUID_MOVE_BUDGET = 8;
+
+    /** Copies made while measuring a single copy are stored here, so that escape analysis can't remove them. */
+    private final Object[] sink = new Object[2];
+
+    private com.sun.management.ThreadMXBean threadBean;
+
+    @Before
+    public void setupAllocationCounter() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(
+            "Per-thread allocation counting isn't available on this JVM",
+            bean instanceof com.sun.management.ThreadMXBean
+        );
+        threadBean = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(
+            "Per-thread allocation counting isn't supported on this JVM",
+            threadBean.isThreadAllocatedMemorySupported()
+        );
+        if (!threadBean.isThreadAllocatedMemoryEnabled()) {
+            threadBean.setThreadAllocatedMemoryEnabled(true);
+        }
+    }
+
+    @Test
+    public void testItemMove() {
+        long small = measureItemMove(SMALL_SLOTS, null);
+        long large = measureItemMove(LARGE_SLOTS, null);
+        assertBudget("ItemInvUtil.move", ITEM_MOVE_BUDGET, measureStackCopy(), small);
+        assertNoSlotScaling("ItemInvUtil.move", small, large);
+    }
+
+    @Test
+    public void testFilteredItemMove() {
+        ItemFilter filter = new ExactItemFilter(ItemInvTester.ITEMS[3]);
+        long small = measureItemMove(SMALL_SLOTS, filter);
+        long large = measureItemMove(LARGE_SLOTS, filter);
+        assertBudget("ItemInvUtil.move (filtered)", FILTERED_ITEM_MOVE_BUDGET, measureStackCopy(), small);
+        assertNoSlotScaling("ItemInvUtil.move (filtered)", small, large);
+    }
+
+    /** @return The number of bytes allocated per move between two {@link FullFixedItemInv}s of the given size, which
+     *         only have items in their first {@link #SMALL_SLOTS} slots. */
+    private long measureItemMove(int slots, ItemFilter filter) {
+        FixedItemInv from = new FullFixedItemInv(slots);
+        FixedItemInv to = new FullFixedItemInv(slots);
+        fill(from);
+
+        GroupedItemInv a = from.getGroupedInv();
+        GroupedItemInv b = to.getGroupedInv();
+        if (filter == null) {
+            return measure(() -> {
+                ItemInvUtil.move(a, b, 1);
+                ItemInvUtil.move(b, a, 1);
+            });
+        }
+        return measure(() -> {
+            ItemInvUtil.move(a, b, filter, 1);
+            ItemInvUtil.move(b, a, filter, 1);
+        });
+    }
+
+    @Test
+    public void testGroupedItemMove() {
+        GroupedItemInv a = new SimpleGroupedItemInv(8, 8 * 64);
+        GroupedItemInv b = new SimpleGroupedItemInv(8, 8 * 64);
+        for (int i = 0; i < 8; i++) {
+            a.insert(new ItemStack(ItemInvTester.ITEMS[i], 32));
+        }
+
+        assertBudget("ItemInvUtil.move (grouped)", ITEM_MOVE_BUDGET, measureStackCopy(), measure(() -> {
+            ItemInvUtil.move(a, b, 1);
+            ItemInvUtil.move(b, a, 1);
+        }));
+    }
+
+    @Test
+    public void testFluidMove() {
+        FixedFluidInv from = new SimpleFixedFluidInv(4, FluidAmount.ofWhole(16));
+        FixedFluidInv to = new SimpleFixedFluidInv(4, FluidAmount.ofWhole(16));
+        from.forceSetInvFluid(0, FluidKeys.WATER.withAmount(FluidAmount.ofWhole(8)));
+        from.forceSetInvFluid(1, FluidKeys.LAVA.withAmount(FluidAmount.ofWhole(8)));
+
+        FluidExtractable extractA = from.getExtractable();
+        FluidInsertable insertA = from.getInsertable();
+        FluidExtractable extractB = to.getExtractable();
+        FluidInsertable insertB = to.getInsertable();
+        FluidVolume volume = FluidKeys.WATER.withAmount(FluidAmount.BOTTLE);
+        long bytesPerCopy = measure(() -> {
+            sink[0] = volume.copy();
+            sink[1] = volume.copy();
+        });
+        assertBudget("FluidVolumeUtil.move", FLUID_MOVE_BUDGET, bytesPerCopy, measure(() -> {
+            FluidVolumeUtil.move(extractA, insertB, FluidAmount.BOTTLE);
+            FluidVolumeUtil.move(extractB, insertA, FluidAmount.BOTTLE);
+        }));
+    }
+
+    private static void fill(FixedItemInv inv) {
+        for (int slot = 0; slot < SMALL_SLOTS; slot += 2) {
+            inv.forceSetInvStack(slot, new ItemStack(ItemInvTester.ITEMS[(slot / 2) % 8], 32));
+        }
+    }
+
+    /** @return The number of bytes allocated by a single {@link ItemStack#copy()} of a stack without a tag. */
+    private long measureStackCopy() {
+        ItemStack stack = new ItemStack(ItemInvTester.ITEMS[0], 32);
+        return measure(() -> {
+            sink[0] = stack.copy();
+            sink[1] = stack.copy();
+        });
+    }
+
+    /** @param pair Two moves, which must leave everything in the same state as before.
+     * @return The number of bytes allocated per move. */
+    private long measure(Runnable pair) {
+        for (int i = 0; i < WARMUP_OPERATIONS; i++) {
+            pair.run();
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < MEASUREMENT_ROUNDS; round++) {
+            long before = threadBean.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < MEASURED_OPERATIONS; i++) {
+                pair.run();
+            }
+            long after = threadBean.getThreadAllocatedBytes(threadId);
+            best = Math.min(best, after - before);
+        }
+
+        return best / (MEASURED_OPERATIONS * 2L);
+    }
+
+    private static void assertBudget(String name, int copiesPerMove, long bytesPerCopy, long perMove) {
+        long bytesPerMove = copiesPerMove * bytesPerCopy;
+        Assert.assertTrue(
+            name + " allocated " + perMove + " bytes per move, which is over the budget of " + copiesPerMove
+                + " copies (" + bytesPerMove + " bytes, at " + bytesPerCopy + " bytes per copy)",
+            perMove <= bytesPerMove
+        );
+    }
+
+    private static void assertNoSlotScaling(String name, long small, long large) {
+        Assert.assertTrue(
+            name + " allocated " + large + " bytes per move with " + LARGE_SLOTS + " slots, but only " + small
+                + " with " + SMALL_SLOTS + " slots, so it probably allocates something for every slot",
+            large <= small + SLOT_SCALING_TOLERANCE
+        );
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.fluid.impl;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import alexiil.mc.lib.attributes.Simulation;
+import alexiil.mc.lib.attributes.VanillaSetupBaseTester;
+import alexiil.mc.lib.attributes.fluid.FixedFluidInv;
+import alexiil.mc.lib.attributes.fluid.FluidVolumeUtil;
+import alexiil.mc.lib.attributes.fluid.amount.FluidAmount;
+import alexiil.mc.lib.attributes.fluid.volume.FluidKeys;
+import alexiil.mc.lib.attributes.fluid.volume.FluidVolume;
+
+public class FixedFluidInvTester extends VanillaSetupBaseTester {
+
+    @Test
+    public void testFlattenedViews() {
+
+        // Tank i of the combined inventory holds (i + 1) buckets of water
+        SimpleFixedFluidInv inv1 = new SimpleFixedFluidInv(10, FluidAmount.ofWhole(64));
+        SimpleFixedFluidInv inv2 = new SimpleFixedFluidInv(20, FluidAmount.ofWhole(64));
+        for (int i = 0; i < 30; i++) {
+            SimpleFixedFluidInv inv = i < 10 ? inv1 : inv2;
+            inv.forceSetInvFluid(i < 10 ? i : i - 10, FluidKeys.WATER.withAmount(FluidAmount.ofWhole(i + 1)));
+        }
+
+        FixedFluidInv combined = new CombinedFixedFluidInv<>(Arrays.asList(inv1, inv2));
+
+        // Tanks 5, 15, and 10 of the combined inventory
+        FixedFluidInv nested = combined.getSubInv(5, 25).getMappedInv(19, 0, 10, 5).getSubInv(1, 4);
+        Assert.assertEquals(3, nested.getTankCount());
+        assertWater(6, nested.getInvFluid(0));
+        assertWater(16, nested.getInvFluid(1));
+        assertWater(11, nested.getInvFluid(2));
+
+        // Every layer should have been resolved straight down to the base inventories
+        Assert.assertTrue(nested instanceof FlatFixedFluidInv);
+        FlatFixedFluidInv flat = (FlatFixedFluidInv) nested;
+        Assert.assertEquals(2, flat.invs.length);
+        Assert.assertSame(inv1, flat.invs[0]);
+        Assert.assertSame(inv2, flat.invs[1]);
+
+        Assert.assertTrue(nested.setInvFluid(1, FluidVolumeUtil.EMPTY, Simulation.ACTION));
+        Assert.assertTrue(inv2.getInvFluid(5).isEmpty());
+
+        // Views that only cover a single base inventory don't need a flat view at all
+        FixedFluidInv single = combined.getSubInv(5, 25).getMappedInv(12, 9, 10);
+        Assert.assertTrue(single instanceof MappedFixedFluidInv);
+        Assert.assertSame(inv2, ((MappedFixedFluidInv) single).inv);
+        assertWater(18, single.getInvFluid(0));
+        assertWater(15, single.getInvFluid(1));
+    }
+
+    private static void assertWater(int buckets, FluidVolume volume) {
+        Assert.assertEquals(FluidKeys.WATER, volume.getFluidKey());
+        Assert.assertEquals(FluidAmount.ofWhole(buckets), volume.getAmount_F());
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.item;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+import net.minecraft.nbt.CompoundTag;
+
+import alexiil.mc.lib.attributes.VanillaSetupBaseTester;
+
+public class ItemKeyTester extends VanillaSetupBaseTester {
+
+    @Test
+    public void testInterning() {
+        Assert.assertSame(ItemKey.of(Items.APPLE), ItemKey.of(new ItemStack(Items.APPLE, 5)));
+        Assert.assertSame(ItemKey.EMPTY, ItemKey.of(ItemStack.EMPTY));
+        Assert.assertNotSame(ItemKey.of(Items.APPLE), ItemKey.of(Items.STICK));
+
+        ItemStack tagged = new ItemStack(Items.APPLE);
+        CompoundTag tag = new CompoundTag();
+        tag.putInt("value", 1);
+        tagged.setTag(tag);
+
+        ItemKey key = ItemKey.of(tagged);
+        Assert.assertNotSame(ItemKey.of(Items.APPLE), key);
+        Assert.assertSame(key, ItemKey.of(tagged.copy()));
+        Assert.assertTrue(key.matches(tagged));
+        Assert.assertFalse(key.matches(new ItemStack(Items.APPLE)));
+
+        // Changing the original stack's tag mustn't change the key
+        tag.putInt("value", 2);
+        Assert.assertEquals(1, key.getTag().getInt("value"));
+        Assert.assertNotSame(key, ItemKey.of(tagged));
+
+        // Lookups only borrow the stack's tag, so changing it back finds the original key again
+        tag.putInt("value", 1);
+        Assert.assertSame(key, ItemKey.of(tagged));
+        tag.putInt("value", 3);
+        Assert.assertEquals(1, key.getTag().getInt("value"));
+    }
+
+    @Test
+    public void testConcurrentInterning() throws Exception {
+        int threads = 8;
+        int tags = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<ItemKey[]>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(executor.submit(() -> {
+                    ItemKey[] keys = new ItemKey[tags];
+                    for (int i = 0; i < tags; i++) {
+                        ItemStack stack = new ItemStack(Items.STICK);
+                        CompoundTag tag = new CompoundTag();
+                        tag.putInt("concurrent", i);
+                        stack.setTag(tag);
+                        keys[i] = ItemKey.of(stack);
+                    }
+                    return keys;
+                }));
+            }
+
+            // Every thread must have been given the same key for every tag
+            ItemKey[] first = results.get(0).get();
+            for (Future<ItemKey[]> result : results) {
+                ItemKey[] keys = result.get();
+                for (int i = 0; i < tags; i++) {
+                    Assert.assertSame(first[i], keys[i]);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testToStack() {
+        ItemKey key = ItemKey.of(Items.APPLE);
+        Assert.assertTrue(ItemStack.areEqual(new ItemStack(Items.APPLE, 3), key.toStack(3)));
+        Assert.assertTrue(key.toStack(0).isEmpty());
+        Assert.assertTrue(ItemKey.EMPTY.toStack(5).isEmpty());
+    }
+}
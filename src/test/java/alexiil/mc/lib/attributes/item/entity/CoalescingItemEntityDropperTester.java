@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.item.entity;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.minecraft.entity.ItemEntity;
+import net.minecraft.item.ItemStack;
+
+import alexiil.mc.lib.attributes.Simulation;
+import alexiil.mc.lib.attributes.item.entity.ItemEntityAreaExtractableTester.TestSource;
+import alexiil.mc.lib.attributes.item.impl.ItemInvTester;
+
+public class CoalescingItemEntityDropperTester extends ItemInvTester {
+
+    @Test
+    public void testSpawnsImmediately() {
+        TestSource source = new TestSource();
+        CoalescingItemEntityDropper dropper = new CoalescingItemEntityDropper(source, 0.5, 0.5, 0.5, 1);
+
+        assertEmpty(dropper.insert(new ItemStack(ITEMS[0], 10)));
+        Assert.assertEquals(1, source.entities.size());
+        assertEquals(new ItemStack(ITEMS[0], 10), source.entities.get(0).getStack());
+
+        // Later insertions in the same tick merge into the entity that was just spawned
+        assertEmpty(dropper.insert(new ItemStack(ITEMS[0], 20)));
+        Assert.assertEquals(1, source.entities.size());
+        assertEquals(new ItemStack(ITEMS[0], 30), source.entities.get(0).getStack());
+
+        // And only overflow into a new entity once it's full
+        assertEmpty(dropper.insert(new ItemStack(ITEMS[0], 50)));
+        Assert.assertEquals(2, source.entities.size());
+        assertEquals(new ItemStack(ITEMS[0], 64), source.entities.get(0).getStack());
+        assertEquals(new ItemStack(ITEMS[0], 16), source.entities.get(1).getStack());
+
+        assertEmpty(dropper.insert(new ItemStack(ITEMS[1], 5)));
+        Assert.assertEquals(3, source.entities.size());
+        assertEquals(new ItemStack(ITEMS[1], 5), source.entities.get(2).getStack());
+
+        // The nearby entities are only queried once per tick
+        Assert.assertEquals(1, source.queries);
+    }
+
+    @Test
+    public void testTopsUpExistingEntities() {
+        TestSource source = new TestSource();
+        ItemEntity existing = source.add(ITEMS[0], 60);
+        ItemEntity dead = source.add(ITEMS[0], 1);
+        dead.remove();
+        CoalescingItemEntityDropper dropper = new CoalescingItemEntityDropper(source, 0.5, 0.5, 0.5, 1);
+
+        assertEmpty(dropper.insert(new ItemStack(ITEMS[0], 10)));
+        Assert.assertEquals(64, existing.getStack().getCount());
+        Assert.assertEquals(1, dead.getStack().getCount());
+        Assert.assertEquals(3, source.entities.size());
+        assertEquals(new ItemStack(ITEMS[0], 6), source.entities.get(2).getStack());
+
+        // Entities that were picked up since the last query are skipped
+        source.entities.get(2).remove();
+        assertEmpty(dropper.insert(new ItemStack(ITEMS[0], 2)));
+        Assert.assertEquals(4, source.entities.size());
+        assertEquals(new ItemStack(ITEMS[0], 2), source.entities.get(3).getStack());
+        Assert.assertEquals(1, source.queries);
+
+        source.time++;
+        assertEmpty(dropper.insert(new ItemStack(ITEMS[0], 2)));
+        Assert.assertEquals(2, source.queries);
+        Assert.assertEquals(4, source.entities.size());
+        Assert.assertEquals(4, source.entities.get(3).getStack().getCount());
+    }
+
+    @Test
+    public void testNoMerging() {
+        TestSource source = new TestSource();
+        source.add(ITEMS[0], 10);
+        CoalescingItemEntityDropper dropper = new CoalescingItemEntityDropper(source, 0.5, 0.5, 0.5, 0);
+
+        assertEmpty(dropper.insert(new ItemStack(ITEMS[0], 10)));
+        assertEmpty(dropper.insert(new ItemStack(ITEMS[0], 70)));
+        Assert.assertEquals(0, source.queries);
+        Assert.assertEquals(4, source.entities.size());
+        Assert.assertEquals(10, source.entities.get(0).getStack().getCount());
+        Assert.assertEquals(64, source.entities.get(2).getStack().getCount());
+        Assert.assertEquals(6, source.entities.get(3).getStack().getCount());
+
+        // Simulating never spawns anything
+        assertEmpty(dropper.attemptInsertion(new ItemStack(ITEMS[0], 10), Simulation.SIMULATE));
+        Assert.assertEquals(4, source.entities.size());
+    }
+}
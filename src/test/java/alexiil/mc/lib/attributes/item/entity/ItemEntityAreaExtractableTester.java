@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.item.entity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.minecraft.entity.ItemEntity;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.util.math.Box;
+import net.minecraft.world.World;
+
+import alexiil.mc.lib.attributes.Simulation;
+import alexiil.mc.lib.attributes.item.ItemInsertable;
+import alexiil.mc.lib.attributes.item.filter.ConstantItemFilter;
+import alexiil.mc.lib.attributes.item.filter.ExactItemFilter;
+import alexiil.mc.lib.attributes.item.impl.ItemInvTester;
+
+public class ItemEntityAreaExtractableTester extends ItemInvTester {
+
+    private static final Box BOX = new Box(0, 0, 0, 1, 1, 1);
+
+    @Test
+    public void testGrouping() {
+        TestSource source = new TestSource();
+        ItemEntity a = source.add(ITEMS[0], 10);
+        ItemEntity b = source.add(ITEMS[1], 5);
+        ItemEntity c = source.add(ITEMS[0], 20);
+        ItemEntityAreaExtractable extractable = new ItemEntityAreaExtractable(source, BOX, 0);
+
+        Assert.assertEquals(30, extractable.getAmount(new ExactItemFilter(ITEMS[0])));
+        Assert.assertEquals(35, extractable.getAmount(ConstantItemFilter.ANYTHING));
+
+        assertEquals(
+            new ItemStack(ITEMS[0], 25),
+            extractable.attemptExtraction(new ExactItemFilter(ITEMS[0]), 25, Simulation.SIMULATE)
+        );
+        Assert.assertEquals(10, a.getStack().getCount());
+
+        // A single extraction takes from every entity of the same type
+        assertEquals(
+            new ItemStack(ITEMS[0], 25),
+            extractable.attemptExtraction(new ExactItemFilter(ITEMS[0]), 25, Simulation.ACTION)
+        );
+        Assert.assertFalse(a.isAlive());
+        Assert.assertEquals(5, c.getStack().getCount());
+        Assert.assertEquals(5, b.getStack().getCount());
+    }
+
+    @Test
+    public void testStaleness() {
+        TestSource source = new TestSource();
+        ItemEntity a = source.add(ITEMS[0], 10);
+        ItemEntityAreaExtractable extractable = new ItemEntityAreaExtractable(source, BOX, 20);
+
+        Assert.assertEquals(10, extractable.getAmount(ConstantItemFilter.ANYTHING));
+        Assert.assertEquals(1, source.queries);
+
+        // New entities aren't seen until the next refresh
+        source.add(ITEMS[1], 4);
+        source.time += 5;
+        Assert.assertEquals(10, extractable.getAmount(ConstantItemFilter.ANYTHING));
+        Assert.assertEquals(1, source.queries);
+
+        // But cached entities that have been removed (or changed) are skipped straight away
+        a.setStack(new ItemStack(ITEMS[2], 10));
+        Assert.assertEquals(0, extractable.getAmount(ConstantItemFilter.ANYTHING));
+        assertEmpty(extractable.attemptExtraction(ConstantItemFilter.ANYTHING, 64, Simulation.SIMULATE));
+
+        source.time += 15;
+        Assert.assertEquals(14, extractable.getAmount(ConstantItemFilter.ANYTHING));
+        Assert.assertEquals(2, source.queries);
+
+        a.remove();
+        extractable.markStale();
+        Assert.assertEquals(4, extractable.getAmount(ConstantItemFilter.ANYTHING));
+        Assert.assertEquals(3, source.queries);
+    }
+
+    @Test
+    public void testMoveAll() {
+        TestSource source = new TestSource();
+        ItemEntity a = source.add(ITEMS[0], 10);
+        ItemEntity b = source.add(ITEMS[0], 10);
+        ItemEntity c = source.add(ITEMS[1], 10);
+        ItemEntityAreaExtractable extractable = new ItemEntityAreaExtractable(source, BOX, 0);
+
+        // Only accepts 6 of the first item type, but anything of the others
+        List<ItemStack> offered = new ArrayList<>();
+        ItemInsertable to = (stack, simulation) -> {
+            offered.add(stack.copy());
+            if (stack.getItem() != ITEMS[0]) {
+                return ItemStack.EMPTY;
+            }
+            ItemStack excess = stack.copy();
+            excess.decrement(Math.min(6, stack.getCount()));
+            return excess;
+        };
+
+        Assert.assertEquals(16, extractable.moveAll(to, ConstantItemFilter.ANYTHING, 64));
+        // The second ITEMS[0] entity is never offered, as the insertable refused some of the first one
+        Assert.assertEquals(2, offered.size());
+        assertEquals(new ItemStack(ITEMS[0], 10), offered.get(0));
+        assertEquals(new ItemStack(ITEMS[1], 10), offered.get(1));
+        Assert.assertEquals(4, a.getStack().getCount());
+        Assert.assertEquals(10, b.getStack().getCount());
+        Assert.assertFalse(c.isAlive());
+
+        // maxTotal limits the total across every item type
+        Assert.assertEquals(3, extractable.moveAll(to, ConstantItemFilter.ANYTHING, 3));
+        Assert.assertEquals(1, a.getStack().getCount());
+    }
+
+    /** An {@link ItemEntitySource} over a list of entities (not in any world), which counts how often it's queried. */
+    static final class TestSource implements ItemEntitySource {
+        final List<ItemEntity> entities = new ArrayList<>();
+        long time;
+        int queries;
+
+        ItemEntity add(Item item, int count) {
+            return spawnItemEntity(0.5, 0.5, 0.5, new ItemStack(item, count));
+        }
+
+        @Override
+        public ItemEntity spawnItemEntity(double x, double y, double z, ItemStack stack) {
+            ItemEntity entity = new ItemEntity((World) null, x, y, z, stack);
+            entities.add(entity);
+            return entity;
+        }
+
+        @Override
+        public long getTime() {
+            return time;
+        }
+
+        @Override
+        public List<ItemEntity> getItemEntities(Box box) {
+            queries++;
+            List<ItemEntity> list = new ArrayList<>();
+            for (ItemEntity entity : entities) {
+                if (entity.isAlive()) {
+                    list.add(entity);
+                }
+            }
+            return list;
+        }
+    }
+}
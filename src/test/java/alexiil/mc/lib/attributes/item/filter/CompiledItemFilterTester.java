@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.item.filter;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.minecraft.item.BlockItem;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.CompoundTag;
+
+import alexiil.mc.lib.attributes.item.impl.ItemInvTester;
+
+public class CompiledItemFilterTester extends ItemInvTester {
+
+    @Test
+    public void testItemOnlyFilters() {
+        ItemFilter filter = new ExactItemFilter(ITEMS[0])
+            .or(new ExactItemSetFilter(new HashSet<>(Arrays.asList(ITEMS[1], ITEMS[2], ITEMS[3]))))
+            .and(new ExactItemFilter(ITEMS[2]).negate());
+        ItemFilter compiled = CompiledItemFilter.compile(filter);
+        Assert.assertTrue(compiled instanceof CompiledItemFilter);
+        assertSameResults(filter, compiled);
+
+        ItemFilter classFilter = new ItemClassFilter(BlockItem.class).or(new ExactItemFilter(ITEMS[4]));
+        assertSameResults(classFilter, CompiledItemFilter.compile(classFilter));
+    }
+
+    @Test
+    public void testResidualFilters() {
+        ItemFilter filter = new ExactItemStackFilter(new ItemStack(ITEMS[5]))
+            .or(new ExactItemFilter(ITEMS[6]))
+            .or(stack -> stack.getItem() == ITEMS[7]);
+        ItemFilter compiled = CompiledItemFilter.compile(filter);
+        assertSameResults(filter, compiled);
+
+        ItemStack tagged = new ItemStack(ITEMS[5]);
+        CompoundTag tag = new CompoundTag();
+        tag.putBoolean("different", true);
+        tagged.setTag(tag);
+        Assert.assertFalse(compiled.matches(tagged));
+        Assert.assertTrue(compiled.matches(new ItemStack(ITEMS[5])));
+
+        // Completely opaque filters aren't worth compiling
+        ItemFilter opaque = stack -> true;
+        Assert.assertSame(opaque, CompiledItemFilter.compile(opaque));
+    }
+
+    private static void assertSameResults(ItemFilter expected, ItemFilter actual) {
+        for (int i = 0; i < ITEMS.length; i++) {
+            ItemStack stack = new ItemStack(ITEMS[i]);
+            Assert.assertEquals("Item " + i, expected.matches(stack), actual.matches(stack));
+        }
+    }
+}
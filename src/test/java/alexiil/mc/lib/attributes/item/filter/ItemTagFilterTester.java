@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.item.filter;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.tag.Tag;
+
+import alexiil.mc.lib.attributes.item.impl.ItemInvTester;
+
+public class ItemTagFilterTester extends ItemInvTester {
+
+    @Test
+    public void testResolvedCache() {
+        ReloadableTag tag = new ReloadableTag(ITEMS[0], ITEMS[1]);
+        ItemTagFilter filter = new ItemTagFilter(tag);
+
+        ReadableItemFilter resolved = filter.resolve();
+        Assert.assertSame(resolved, filter.resolve());
+        // Filters for the same tag share the same resolution
+        Assert.assertSame(resolved, new ItemTagFilter(tag).resolve());
+
+        Assert.assertTrue(filter.matches(new ItemStack(ITEMS[0])));
+        Assert.assertTrue(filter.matches(new ItemStack(ITEMS[1])));
+        Assert.assertFalse(filter.matches(new ItemStack(ITEMS[2])));
+        Assert.assertFalse(filter.matches(ItemStack.EMPTY));
+    }
+
+    @Test
+    public void testReloadInvalidatesCache() {
+        ReloadableTag tag = new ReloadableTag(ITEMS[0], ITEMS[1]);
+        ItemTagFilter filter = new ItemTagFilter(tag);
+        ReadableItemFilter before = filter.resolve();
+        Assert.assertTrue(filter.matches(new ItemStack(ITEMS[0])));
+
+        tag.reload(ITEMS[2]);
+        ReadableItemFilter after = filter.resolve();
+        Assert.assertNotSame(before, after);
+        Assert.assertSame(after, filter.resolve());
+        Assert.assertTrue(after.matches(new ItemStack(ITEMS[2])));
+        Assert.assertFalse(after.matches(new ItemStack(ITEMS[0])));
+
+        Assert.assertFalse(filter.matches(new ItemStack(ITEMS[0])));
+        Assert.assertTrue(filter.matches(new ItemStack(ITEMS[2])));
+    }
+
+    /** A tag that replaces its value list when "reloaded", in the same way that vanilla tags do. */
+    private static final class ReloadableTag implements Tag<Item> {
+        private List<Item> values;
+
+        ReloadableTag(Item... items) {
+            reload(items);
+        }
+
+        void reload(Item... items) {
+            values = Arrays.asList(items.clone());
+        }
+
+        @Override
+        public boolean contains(Item item) {
+            return values.contains(item);
+        }
+
+        @Override
+        public List<Item> values() {
+            return values;
+        }
+    }
+}
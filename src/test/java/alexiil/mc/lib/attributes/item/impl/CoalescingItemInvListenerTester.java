@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.item.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.minecraft.item.ItemStack;
+
+import alexiil.mc.lib.attributes.Simulation;
+
+public class CoalescingItemInvListenerTester extends ItemInvTester {
+
+    @Test
+    public void testSlotChanges() {
+        FullFixedItemInv inv = new FullFixedItemInv(4);
+        List<int[]> batches = new ArrayList<>();
+        List<ItemStack[]> currents = new ArrayList<>();
+        CoalescingItemInvSlotListener coalescer = new CoalescingItemInvSlotListener((i, slots, previous, current) -> {
+            assertIdentityEquals(inv, i);
+            for (ItemStack stack : previous) {
+                assertEmpty(stack);
+            }
+            batches.add(slots);
+            currents.add(current);
+        });
+        Assert.assertNotNull(inv.addListener(coalescer, () -> {}));
+
+        int max = new ItemStack(ITEMS[0]).getMaxCount();
+        for (int i = 0; i < max; i++) {
+            assertEmpty(inv.getInsertable().insert(new ItemStack(ITEMS[0])));
+        }
+        // Changes that cancel out aren't reported
+        inv.setInvStack(3, new ItemStack(ITEMS[1]), Simulation.ACTION);
+        inv.setInvStack(3, ItemStack.EMPTY, Simulation.ACTION);
+
+        Assert.assertTrue(batches.isEmpty());
+        Assert.assertTrue(coalescer.hasPendingChanges());
+        coalescer.flush();
+        Assert.assertFalse(coalescer.hasPendingChanges());
+
+        Assert.assertEquals(1, batches.size());
+        Assert.assertArrayEquals(new int[] { 0 }, batches.get(0));
+        assertEquals(new ItemStack(ITEMS[0], max), currents.get(0)[0]);
+
+        coalescer.flush();
+        Assert.assertEquals(1, batches.size());
+    }
+
+    @Test
+    public void testAmountChanges() {
+        List<ItemStack[]> batches = new ArrayList<>();
+        List<int[]> currents = new ArrayList<>();
+        CoalescingItemInvAmountListener coalescer
+            = new CoalescingItemInvAmountListener((i, stacks, previous, current) -> {
+                batches.add(stacks);
+                currents.add(current);
+            });
+        SimpleGroupedItemInv inv = new SimpleGroupedItemInv(2, 1000);
+        ItemStack stack = new ItemStack(ITEMS[0]);
+        for (int i = 0; i < 10; i++) {
+            coalescer.onChange(inv, stack, i, i + 1);
+        }
+        coalescer.onChange(inv, new ItemStack(ITEMS[1]), 0, 5);
+        coalescer.onChange(inv, new ItemStack(ITEMS[1]), 5, 0);
+        coalescer.flush();
+
+        Assert.assertEquals(1, batches.size());
+        Assert.assertEquals(1, batches.get(0).length);
+        assertItem(ITEMS[0], batches.get(0)[0]);
+        Assert.assertArrayEquals(new int[] { 10 }, currents.get(0));
+    }
+
+    @Test
+    public void testDirectInvMarkDirty() {
+        DirectFixedItemInv inv = new DirectFixedItemInv(2);
+        int[] calls = { 0 };
+        Assert.assertNotNull(inv.addListener(i -> calls[0]++, () -> {}));
+
+        inv.setCoalesceChanges(true);
+        for (int i = 0; i < 10; i++) {
+            inv.insert(0, new ItemStack(ITEMS[0]));
+        }
+        Assert.assertEquals(0, calls[0]);
+        Assert.assertEquals(10, inv.getChangeValue());
+
+        inv.flushChanges();
+        Assert.assertEquals(1, calls[0]);
+        inv.flushChanges();
+        Assert.assertEquals(1, calls[0]);
+
+        inv.insert(1, new ItemStack(ITEMS[1]));
+        inv.setCoalesceChanges(false);
+        Assert.assertEquals(2, calls[0]);
+        inv.insert(1, new ItemStack(ITEMS[1]));
+        Assert.assertEquals(3, calls[0]);
+    }
+}
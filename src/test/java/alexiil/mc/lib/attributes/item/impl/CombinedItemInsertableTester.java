@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.item.impl;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.minecraft.item.ItemStack;
+
+import alexiil.mc.lib.attributes.ListenerRemovalToken;
+import alexiil.mc.lib.attributes.ListenerToken;
+import alexiil.mc.lib.attributes.Simulation;
+import alexiil.mc.lib.attributes.item.ItemInsertable;
+import alexiil.mc.lib.attributes.item.ItemInsertionFilterListener;
+import alexiil.mc.lib.attributes.item.filter.ExactItemFilter;
+import alexiil.mc.lib.attributes.item.filter.ItemFilter;
+
+public class CombinedItemInsertableTester extends ItemInvTester {
+
+    @Test
+    public void testFilterRevalidation() {
+        TestInsertable a = new TestInsertable(new ExactItemFilter(ITEMS[0]), false);
+        TestInsertable b = new TestInsertable(new ExactItemFilter(ITEMS[1]), false);
+        CombinedItemInsertable combined = new CombinedItemInsertable(Arrays.asList(a, b));
+
+        ItemFilter filter = combined.getInsertionFilter();
+        assertIdentityEquals(filter, combined.getInsertionFilter());
+        Assert.assertTrue(filter.matches(new ItemStack(ITEMS[1])));
+        Assert.assertFalse(filter.matches(new ItemStack(ITEMS[2])));
+
+        b.filter = new ExactItemFilter(ITEMS[2]);
+        ItemFilter changed = combined.getInsertionFilter();
+        Assert.assertNotSame(filter, changed);
+        Assert.assertFalse(changed.matches(new ItemStack(ITEMS[1])));
+        Assert.assertTrue(changed.matches(new ItemStack(ITEMS[2])));
+    }
+
+    @Test
+    public void testFilterListeners() {
+        TestInsertable a = new TestInsertable(new ExactItemFilter(ITEMS[0]), true);
+        TestInsertable b = new TestInsertable(new ExactItemFilter(ITEMS[1]), true);
+        CombinedItemInsertable combined = new CombinedItemInsertable(Arrays.asList(a, b));
+
+        int[] changes = { 0 };
+        ListenerToken token = combined.addInsertionFilterListener(insertable -> {
+            assertIdentityEquals(combined, insertable);
+            changes[0]++;
+        }, () -> {});
+        Assert.assertNotNull(token);
+
+        ItemFilter filter = combined.getInsertionFilter();
+        assertIdentityEquals(filter, combined.getInsertionFilter());
+
+        a.setFilter(new ExactItemFilter(ITEMS[3]));
+        Assert.assertEquals(1, changes[0]);
+        Assert.assertTrue(combined.getInsertionFilter().matches(new ItemStack(ITEMS[3])));
+
+        token.removeListener();
+        Assert.assertNull(a.listener);
+        Assert.assertNull(b.listener);
+
+        // Insertables that can't notify us mean that we can't either
+        TestInsertable c = new TestInsertable(new ExactItemFilter(ITEMS[4]), false);
+        CombinedItemInsertable combined2 = new CombinedItemInsertable(Arrays.asList(a, c));
+        Assert.assertNull(combined2.addInsertionFilterListener(insertable -> {}, () -> {}));
+        Assert.assertNull(a.listener);
+    }
+
+    static final class TestInsertable implements ItemInsertable {
+        ItemFilter filter;
+        final boolean supportsListeners;
+        ItemInsertionFilterListener listener;
+        ListenerRemovalToken removalToken;
+
+        TestInsertable(ItemFilter filter, boolean supportsListeners) {
+            this.filter = filter;
+            this.supportsListeners = supportsListeners;
+        }
+
+        void setFilter(ItemFilter filter) {
+            this.filter = filter;
+            if (listener != null) {
+                listener.onInsertionFilterChange(this);
+            }
+        }
+
+        @Override
+        public ItemStack attemptInsertion(ItemStack stack, Simulation simulation) {
+            return filter.matches(stack) ? ItemStack.EMPTY : stack;
+        }
+
+        @Override
+        public ItemFilter getInsertionFilter() {
+            return filter;
+        }
+
+        @Override
+        public ListenerToken addInsertionFilterListener(
+            ItemInsertionFilterListener listener, ListenerRemovalToken removalToken
+        ) {
+            if (!supportsListeners) {
+                return null;
+            }
+            this.listener = listener;
+            this.removalToken = removalToken;
+            return () -> {
+                if (this.listener == listener) {
+                    this.listener = null;
+                    this.removalToken = null;
+                    removalToken.onListenerRemoved();
+                }
+            };
+        }
+    }
+}
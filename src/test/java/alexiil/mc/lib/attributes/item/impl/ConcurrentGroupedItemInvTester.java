@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.item.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+
+import alexiil.mc.lib.attributes.Simulation;
+import alexiil.mc.lib.attributes.item.filter.ConstantItemFilter;
+import alexiil.mc.lib.attributes.item.filter.ExactItemFilter;
+
+public class ConcurrentGroupedItemInvTester extends ItemInvTester {
+
+    private static final int THREADS = 4;
+    private static final int OPERATIONS = 20_000;
+    private static final int ITEM_TYPES = 8;
+
+    @Test
+    public void testReservations() {
+        ConcurrentGroupedItemInv inv = new ConcurrentGroupedItemInv(4, 100);
+        assertEmpty(inv.insert(new ItemStack(ITEMS[0], 10)));
+
+        ConcurrentGroupedItemInv.Reservation reservation = inv.reserve(new ExactItemFilter(ITEMS[0]), 6);
+        Assert.assertNotNull(reservation);
+        Assert.assertEquals(6, reservation.getAmount());
+        Assert.assertEquals(10, inv.getAmount(new ItemStack(ITEMS[0])));
+        Assert.assertEquals(4, inv.getAvailableAmount(new ItemStack(ITEMS[0])));
+
+        // Reserved items can't be extracted by anything else
+        assertEquals(new ItemStack(ITEMS[0], 4), inv.extract(new ExactItemFilter(ITEMS[0]), 64));
+        assertEmpty(inv.extract(new ExactItemFilter(ITEMS[0]), 64));
+        Assert.assertNull(inv.reserve(ConstantItemFilter.ANYTHING, 1));
+
+        assertEquals(new ItemStack(ITEMS[0], 6), reservation.commit());
+        Assert.assertTrue(inv.isEmpty());
+        Assert.assertTrue(inv.getStoredStacks().isEmpty());
+
+        assertEmpty(inv.insert(new ItemStack(ITEMS[1], 3)));
+        ConcurrentGroupedItemInv.Reservation cancelled = inv.reserve(ConstantItemFilter.ANYTHING, 64);
+        Assert.assertEquals(3, cancelled.getAmount());
+        cancelled.cancel();
+        Assert.assertEquals(3, inv.getAvailableAmount(new ItemStack(ITEMS[1])));
+        try {
+            cancelled.commit();
+            Assert.fail("Committing a cancelled reservation should throw!");
+        } catch (IllegalStateException expected) {
+            // Good
+        }
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        ConcurrentGroupedItemInv inv = new ConcurrentGroupedItemInv(ITEM_TYPES, 2_000);
+
+        AtomicBoolean inListener = new AtomicBoolean();
+        AtomicReference<String> failure = new AtomicReference<>();
+        Map<Item, Integer> lastAmounts = new ConcurrentHashMap<>();
+        inv.addListener((i, stack, previous, current) -> {
+            if (!inListener.compareAndSet(false, true)) {
+                failure.compareAndSet(null, "Listener called concurrently!");
+            }
+            int last = lastAmounts.getOrDefault(stack.getItem(), 0);
+            if (last != previous) {
+                failure.compareAndSet(null, "Out of order: " + stack + " went " + last + " -> " + previous);
+            }
+            lastAmounts.put(stack.getItem(), current);
+            inListener.set(false);
+        }, () -> {});
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<long[]>> results = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            final long seed = t;
+            results.add(executor.submit(() -> {
+                start.await();
+                return runOperations(inv, new Random(seed));
+            }));
+        }
+        start.countDown();
+        long inserted = 0;
+        long extracted = 0;
+        for (Future<long[]> result : results) {
+            long[] counts = result.get(60, TimeUnit.SECONDS);
+            inserted += counts[0];
+            extracted += counts[1];
+        }
+        executor.shutdown();
+
+        Assert.assertNull(failure.get(), failure.get());
+        long stored = inserted - extracted;
+        Assert.assertEquals(stored, inv.getAmount(ConstantItemFilter.ANYTHING));
+        long sum = 0;
+        for (int i = 0; i < ITEM_TYPES; i++) {
+            int amount = inv.getAmount(new ItemStack(ITEMS[i]));
+            Assert.assertEquals(amount, inv.getAvailableAmount(new ItemStack(ITEMS[i])));
+            Assert.assertEquals(amount, (int) lastAmounts.getOrDefault(ITEMS[i], 0));
+            sum += amount;
+        }
+        Assert.assertEquals(stored, sum);
+        Assert.assertTrue(stored <= inv.maxItems);
+    }
+
+    /** @return The number of items inserted, and the number extracted. */
+    private static long[] runOperations(ConcurrentGroupedItemInv inv, Random rand) {
+        long inserted = 0;
+        long extracted = 0;
+        for (int i = 0; i < OPERATIONS; i++) {
+            Item item = ITEMS[rand.nextInt(ITEM_TYPES)];
+            int count = 1 + rand.nextInt(5);
+            switch (rand.nextInt(4)) {
+                case 0:
+                case 1: {
+                    ItemStack excess = inv.insert(new ItemStack(item, count));
+                    inserted += count - excess.getCount();
+                    break;
+                }
+                case 2: {
+                    extracted += inv.extract(new ExactItemFilter(item), count).getCount();
+                    break;
+                }
+                default: {
+                    ConcurrentGroupedItemInv.Reservation reservation = inv.reserve(ConstantItemFilter.ANYTHING, count);
+                    if (reservation != null) {
+                        if (rand.nextBoolean()) {
+                            extracted += reservation.commit().getCount();
+                        } else {
+                            reservation.cancel();
+                        }
+                    }
+                    break;
+                }
+            }
+            if (inv.getAmount(ConstantItemFilter.ANYTHING) > inv.maxItems) {
+                throw new IllegalStateException("Stored more than the maximum!");
+            }
+            // Simulations must never change anything
+            inv.attemptInsertion(new ItemStack(item), Simulation.SIMULATE);
+        }
+        return new long[] { inserted, extracted };
+    }
+}
@@ -7,7 +7,14 @@
  */
 package alexiil.mc.lib.attributes.item.impl;
 
-public class DirectFixedItemInvTester {
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+
+public class DirectFixedItemInvTester extends ItemInvTester {
 
     public static void runTests() {
         testBasics();
@@ -17,4 +24,65 @@ public class DirectFixedItemInvTester {
         DirectFixedItemInv inv = new DirectFixedItemInv(10);
         // TODO: Think of and write tests!
     }
+
+    @Test
+    public void testSparseTags() {
+        DirectFixedItemInv inv = new DirectFixedItemInv(100);
+        inv.insert(3, new ItemStack(ITEMS[0], 2));
+        inv.insert(70, new ItemStack(ITEMS[1]));
+
+        CompoundTag tag = inv.toTag();
+        ListTag items = tag.getList("items", new CompoundTag().getType());
+        Assert.assertEquals(2, items.size());
+
+        DirectFixedItemInv read = new DirectFixedItemInv(100);
+        read.insert(5, new ItemStack(ITEMS[2]));
+        read.fromTag(tag);
+        assertEquals(new ItemStack(ITEMS[0], 2), read.getInvStack(3));
+        assertEquals(new ItemStack(ITEMS[1]), read.getInvStack(70));
+        assertEmpty(read.getInvStack(5));
+
+        // Changes made directly to a stack are written, even if markDirty() isn't called
+        inv.getInvStack(3).increment(1);
+        read.fromTag(inv.toTag());
+        assertEquals(new ItemStack(ITEMS[0], 3), read.getInvStack(3));
+
+        inv.extract(70, 1);
+        Assert.assertEquals(1, inv.toTag().getList("items", new CompoundTag().getType()).size());
+    }
+
+    @Test
+    public void testInPlaceTagChanges() {
+        DirectFixedItemInv inv = new DirectFixedItemInv(2);
+        inv.insert(0, new ItemStack(ITEMS[0]));
+        inv.toTag();
+
+        // Tag (and damage) changes made directly to the stack are written, even if markDirty() isn't called
+        CompoundTag itemTag = new CompoundTag();
+        itemTag.putInt("value", 1);
+        inv.getInvStack(0).setTag(itemTag);
+        DirectFixedItemInv read = new DirectFixedItemInv(2);
+        read.fromTag(inv.toTag());
+        Assert.assertEquals(1, read.getInvStack(0).getTag().getInt("value"));
+
+        itemTag.putInt("value", 2);
+        read.fromTag(inv.toTag());
+        Assert.assertEquals(2, read.getInvStack(0).getTag().getInt("value"));
+    }
+
+    @Test
+    public void testLegacyTags() {
+        DirectFixedItemInv inv = new DirectFixedItemInv(3);
+        ListTag slots = new ListTag();
+        slots.add(new CompoundTag());
+        slots.add(new ItemStack(ITEMS[4]).toTag(new CompoundTag()));
+        CompoundTag tag = new CompoundTag();
+        tag.put("slots", slots);
+
+        inv.insert(2, new ItemStack(ITEMS[5]));
+        inv.fromTag(tag);
+        assertEmpty(inv.getInvStack(0));
+        assertEquals(new ItemStack(ITEMS[4]), inv.getInvStack(1));
+        assertEmpty(inv.getInvStack(2));
+    }
 }
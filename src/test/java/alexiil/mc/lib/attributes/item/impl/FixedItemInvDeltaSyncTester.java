@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.item.impl;
+
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.minecraft.item.ItemStack;
+import net.minecraft.network.PacketByteBuf;
+
+import alexiil.mc.lib.attributes.Simulation;
+import alexiil.mc.lib.attributes.item.FixedItemInv;
+
+import io.netty.buffer.Unpooled;
+
+public class FixedItemInvDeltaSyncTester extends ItemInvTester {
+
+    @Test
+    public void testListeningSync() throws IOException {
+        testSync(new FullFixedItemInv(40));
+    }
+
+    @Test
+    public void testPollingSync() throws IOException {
+        testSync(new DirectFixedItemInv(40));
+    }
+
+    private static void testSync(FixedItemInv server) throws IOException {
+        FixedItemInvDeltaSender sender = new FixedItemInvDeltaSender(server);
+        DirectFixedItemInv client = new DirectFixedItemInv(40);
+        FixedItemInvDeltaReceiver receiver = new FixedItemInvDeltaReceiver(client);
+
+        Assert.assertFalse(sender.writeChanges(new PacketByteBuf(Unpooled.buffer())));
+
+        server.setInvStack(3, new ItemStack(ITEMS[0], 5), Simulation.ACTION);
+        server.setInvStack(30, new ItemStack(ITEMS[1]), Simulation.ACTION);
+        Assert.assertEquals(2, send(sender, receiver));
+        assertSame(server, client);
+
+        // Nothing changed, so nothing needs sending
+        Assert.assertFalse(sender.writeChanges(new PacketByteBuf(Unpooled.buffer())));
+
+        // Unacknowledged changes are sent again
+        server.setInvStack(3, new ItemStack(ITEMS[0], 6), Simulation.ACTION);
+        PacketByteBuf lost = new PacketByteBuf(Unpooled.buffer());
+        Assert.assertTrue(sender.writeChanges(lost));
+        server.setInvStack(10, new ItemStack(ITEMS[2]), Simulation.ACTION);
+        Assert.assertEquals(2, send(sender, receiver));
+        assertSame(server, client);
+
+        // Stale packets are ignored
+        receiver.readChanges(lost);
+        assertSame(server, client);
+
+        sender.resync();
+        Assert.assertEquals(40, send(sender, receiver));
+        assertSame(server, client);
+        sender.close();
+    }
+
+    /** @return The number of slots in the packet. */
+    private static int send(FixedItemInvDeltaSender sender, FixedItemInvDeltaReceiver receiver) throws IOException {
+        PacketByteBuf buffer = new PacketByteBuf(Unpooled.buffer());
+        Assert.assertTrue(sender.writeChanges(buffer));
+        PacketByteBuf copy = new PacketByteBuf(buffer.copy());
+        copy.readVarInt();
+        copy.readVarInt();
+        int count = copy.readVarInt();
+        sender.acknowledge(receiver.readChanges(buffer));
+        Assert.assertEquals(sender.getVersion(), receiver.getVersion());
+        return count;
+    }
+
+    private static void assertSame(FixedItemInv expected, FixedItemInv actual) {
+        for (int i = 0; i < expected.getSlotCount(); i++) {
+            assertEquals(expected.getInvStack(i), actual.getInvStack(i));
+        }
+    }
+}
@@ -7,15 +7,30 @@
  */
 package alexiil.mc.lib.attributes.item.impl;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.junit.Assert;
 import org.junit.Test;
 
+import net.minecraft.entity.player.PlayerEntity;
 import net.minecraft.inventory.SimpleInventory;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import concern.Direction;
 
+import alexiil.mc.lib.attributes.Simulation;
 import alexiil.mc.lib.attributes.item.FixedItemInv;
+import alexiil.mc.lib.attributes.item.FixedItemInv.CopyingFixedItemInv;
+import alexiil.mc.lib.attributes.item.ItemExtractionRequest;
+import alexiil.mc.lib.attributes.item.ItemStackHandle;
 import alexiil.mc.lib.attributes.item.compat.FixedInventoryVanillaWrapper;
+import alexiil.mc.lib.attributes.item.compat.FixedSidedInventoryVanillaWrapper;
+import alexiil.mc.lib.attributes.item.compat.SidedInventoryFixedWrapper;
+import alexiil.mc.lib.attributes.item.filter.ExactItemFilter;
 
 public class FixedItemInvTester extends ItemInvTester {
 
@@ -114,6 +129,257 @@ public class FixedItemInvTester extends ItemInvTester {
         assertIdentityEquals(inv2, combined123.getSubInv(3, 27).getSubInv(7, 17));
     }
 
+    @Test
+    public void testNestedCombinedInventories() {
+
+        FixedItemInv[] invs = createInventories();
+        FixedItemInv inv1 = invs[0];
+        FixedItemInv inv2 = invs[1];
+        FixedItemInv inv3 = invs[2];
+
+        FixedItemInv combined12 = CombinedFixedItemInv.create(Arrays.asList(inv1, inv2));
+        FixedItemInv combined = CombinedFixedItemInv.create(
+            Arrays.asList(combined12, EmptyFixedItemInv.INSTANCE, inv3)
+        );
+        Assert.assertEquals(30, combined.getSlotCount());
+
+        for (int i = 0; i < 30; i++) {
+            assertItem(ITEMS[i], combined.getInvStack(i));
+        }
+
+        Assert.assertTrue(combined.setInvStack(25, ItemStack.EMPTY, Simulation.ACTION));
+        assertEmpty(inv3.getInvStack(5));
+        Assert.assertTrue(combined.setInvStack(12, ItemStack.EMPTY, Simulation.ACTION));
+        assertEmpty(inv2.getInvStack(2));
+    }
+
+    @Test
+    public void testFlattenedViews() {
+
+        FixedItemInv[] invs = createInventories();
+        FixedItemInv inv1 = invs[0];
+        FixedItemInv inv2 = invs[1];
+
+        FixedItemInv combined = CombinedFixedItemInv.create(Arrays.asList(invs));
+
+        // Slots 5, 15, and 10 of the combined inventory
+        FixedItemInv nested = combined.getSubInv(5, 25).getMappedInv(19, 0, 10, 5).getSubInv(1, 4);
+        Assert.assertEquals(3, nested.getSlotCount());
+        assertItem(ITEMS[5], nested.getInvStack(0));
+        assertItem(ITEMS[15], nested.getInvStack(1));
+        assertItem(ITEMS[10], nested.getInvStack(2));
+
+        // Every layer should have been resolved straight down to the base inventories
+        Assert.assertTrue(nested instanceof FlatFixedItemInv);
+        FlatFixedItemInv flat = (FlatFixedItemInv) nested;
+        Assert.assertEquals(2, flat.invs.length);
+        assertIdentityEquals(inv1, flat.invs[0]);
+        assertIdentityEquals(inv2, flat.invs[1]);
+
+        Assert.assertTrue(nested.setInvStack(1, ItemStack.EMPTY, Simulation.ACTION));
+        assertEmpty(inv2.getInvStack(5));
+
+        // Views that only cover a single base inventory don't need a flat view at all
+        FixedItemInv single = combined.getSubInv(5, 25).getMappedInv(12, 9, 10);
+        Assert.assertTrue(single instanceof MappedFixedItemInv);
+        assertIdentityEquals(inv2, ((MappedFixedItemInv) single).inv);
+        assertItem(ITEMS[17], single.getInvStack(0));
+        assertItem(ITEMS[14], single.getInvStack(1));
+    }
+
+    @Test
+    public void testVanillaWrapperSlotTransfers() {
+        SimpleInventory vanilla = new SimpleInventory(2);
+        FixedItemInv inv = new FixedInventoryVanillaWrapper(vanilla);
+        int max = Math.min(vanilla.getMaxCountPerStack(), new ItemStack(ITEMS[0]).getMaxCount());
+
+        ItemStack stack = new ItemStack(ITEMS[0], 1);
+        assertEmpty(inv.insertStack(0, stack, Simulation.SIMULATE));
+        assertEmpty(inv.getInvStack(0));
+        assertEmpty(inv.insertStack(0, stack, Simulation.ACTION));
+        Assert.assertEquals(1, stack.getCount());
+        Assert.assertEquals(1, vanilla.getStack(0).getCount());
+
+        ItemStack excess = inv.insertStack(0, new ItemStack(ITEMS[0], max), Simulation.ACTION);
+        Assert.assertEquals(1, excess.getCount());
+        Assert.assertEquals(max, vanilla.getStack(0).getCount());
+
+        // Different items can't be merged
+        ItemStack other = new ItemStack(ITEMS[1]);
+        assertIdentityEquals(other, inv.insertStack(0, other, Simulation.ACTION));
+
+        ItemStack simulated = inv.extractStack(0, null, ItemStack.EMPTY, 1, Simulation.SIMULATE);
+        assertEquals(new ItemStack(ITEMS[0], 1), simulated);
+        Assert.assertEquals(max, vanilla.getStack(0).getCount());
+
+        ItemStack extracted = inv.extractStack(0, null, ItemStack.EMPTY, 1, Simulation.ACTION);
+        assertEquals(new ItemStack(ITEMS[0], 1), extracted);
+        Assert.assertEquals(max - 1, vanilla.getStack(0).getCount());
+
+        ItemStack merged = inv.extractStack(0, null, extracted, max, Simulation.ACTION);
+        assertIdentityEquals(extracted, merged);
+        Assert.assertEquals(max, merged.getCount());
+        assertEmpty(vanilla.getStack(0));
+
+        assertIdentityEquals(other, inv.extractStack(1, null, other, 1, Simulation.ACTION));
+    }
+
+    @Test
+    public void testSidedSlotMaps() {
+        SimpleFixedItemInv inv = new SimpleFixedItemInv(4);
+        inv.setInvStack(0, new ItemStack(ITEMS[0]), Simulation.ACTION);
+        inv.setInvStack(2, new ItemStack(ITEMS[2]), Simulation.ACTION);
+        int[] up = { 2, 0 };
+        int[][] slotMap = { { 1 }, up, { 3 }, { 3 }, { 3 }, { 3 } };
+        SidedInventoryFixedWrapper sided = new SidedInventoryFixedWrapper(inv, slotMap) {
+            @Override
+            public boolean canPlayerUse(PlayerEntity player) {
+                return true;
+            }
+        };
+
+        Assert.assertArrayEquals(up, sided.getAvailableSlots(Direction.UP));
+        assertIdentityEquals(sided.getAvailableSlots(Direction.UP), sided.getAvailableSlots(Direction.UP));
+        Assert.assertTrue(sided.canExtract(2, ItemStack.EMPTY, Direction.UP));
+        Assert.assertFalse(sided.canExtract(2, ItemStack.EMPTY, Direction.DOWN));
+        Assert.assertTrue(sided.canInsert(3, new ItemStack(ITEMS[3]), Direction.NORTH));
+        Assert.assertFalse(sided.canInsert(1, new ItemStack(ITEMS[3]), Direction.NORTH));
+
+        // The slot map is copied, so changing it afterwards doesn't affect the wrapper
+        up[0] = 1;
+        Assert.assertArrayEquals(new int[] { 2, 0 }, sided.getAvailableSlots(Direction.UP));
+        Assert.assertTrue(sided.canExtract(2, ItemStack.EMPTY, Direction.UP));
+
+        FixedItemInv sideInv = FixedSidedInventoryVanillaWrapper.create(sided, Direction.UP);
+        Assert.assertEquals(2, sideInv.getSlotCount());
+        assertItem(ITEMS[2], sideInv.getInvStack(0));
+        assertItem(ITEMS[0], sideInv.getInvStack(1));
+
+        ItemStack extracted = sideInv.getExtractable().extract(2);
+        assertItem(ITEMS[2], extracted);
+        assertEmpty(inv.getInvStack(2));
+    }
+
+    @Test
+    public void testForEachStack() {
+        FullFixedItemInv full = new FullFixedItemInv(5);
+        FixedItemInv[] invs = { full, new DirectFixedItemInv(5), //
+            new FixedInventoryVanillaWrapper(new SimpleInventory(5)), new SimpleFixedItemInv(7).getSubInv(1, 6) };
+        for (FixedItemInv inv : invs) {
+            inv.forceSetInvStack(1, new ItemStack(ITEMS[0], 3));
+            inv.forceSetInvStack(3, new ItemStack(ITEMS[1], 5));
+            List<Integer> slots = new ArrayList<>();
+            inv.forEachStack((slot, stack) -> {
+                slots.add(slot);
+                assertEquals(inv.getInvStack(slot), stack);
+            });
+            Assert.assertEquals(Arrays.asList(1, 3), slots);
+        }
+
+        // Copying inventories pass their own stacks rather than copies
+        full.forEachStack((slot, stack) -> assertIdentityEquals(full.getUnmodifiableInvStack(slot), stack));
+
+        SimpleGroupedItemInv grouped = new SimpleGroupedItemInv(4, 100);
+        assertEmpty(grouped.insert(new ItemStack(ITEMS[0], 10)));
+        assertEmpty(grouped.insert(new ItemStack(ITEMS[1], 20)));
+        Map<Item, Integer> amounts = new HashMap<>();
+        grouped.forEachAmount((stack, amount) -> amounts.put(stack.getItem(), amount));
+        Assert.assertEquals(2, amounts.size());
+        Assert.assertEquals(10, (int) amounts.get(ITEMS[0]));
+        Assert.assertEquals(20, (int) amounts.get(ITEMS[1]));
+    }
+
+    @Test
+    public void testStackHandles() {
+        FullFixedItemInv full = new FullFixedItemInv(4);
+        full.forceSetInvStack(0, new ItemStack(ITEMS[0], 3));
+
+        // Copying inventories hand out the same handle until the slot changes
+        ItemStackHandle handle = full.getInvStackHandle(0);
+        assertIdentityEquals(handle, full.getInvStackHandle(0));
+        assertIdentityEquals(handle, full.getSubInv(0, 2).getInvStackHandle(0));
+        Assert.assertEquals(3, handle.getCount());
+        Assert.assertTrue(full.getInvStackHandle(1).isEmpty());
+
+        // Mutable copies are independent of the inventory
+        ItemStack mutable = handle.toMutableStack();
+        mutable.increment(10);
+        Assert.assertEquals(3, full.getInvStack(0).getCount());
+
+        // Old handles are snapshots
+        full.forceSetInvStack(0, new ItemStack(ITEMS[1], 5));
+        Assert.assertEquals(3, handle.getCount());
+        assertItem(ITEMS[0], handle.toMutableStack());
+        Assert.assertEquals(5, full.getInvStackHandle(0).getCount());
+
+        // Modifiable inventories can change their stacks in-place, so their handles are copies
+        DirectFixedItemInv direct = new DirectFixedItemInv(4);
+        direct.forceSetInvStack(0, new ItemStack(ITEMS[0], 3));
+        ItemStackHandle directHandle = direct.getInvStackHandle(0);
+        direct.getInvStack(0).increment(2);
+        direct.markDirty();
+        Assert.assertEquals(3, directHandle.getCount());
+
+        // Copying inventories that don't override getInvStackHandle might still change their stacks in-place
+        ItemStack[] stacks = { new ItemStack(ITEMS[0], 3) };
+        CopyingFixedItemInv inPlace = new CopyingFixedItemInv() {
+            @Override
+            public int getSlotCount() {
+                return 1;
+            }
+
+            @Override
+            public ItemStack getUnmodifiableInvStack(int slot) {
+                return stacks[slot];
+            }
+
+            @Override
+            public boolean isItemValidForSlot(int slot, ItemStack stack) {
+                return true;
+            }
+
+            @Override
+            public boolean setInvStack(int slot, ItemStack to, Simulation simulation) {
+                if (simulation.isAction()) {
+                    stacks[slot].setCount(to.getCount());
+                }
+                return true;
+            }
+        };
+        ItemStackHandle inPlaceHandle = inPlace.getInvStackHandle(0);
+        ItemStackHandle subHandle = inPlace.getSubInv(0, 1).getInvStackHandle(0);
+        Assert.assertTrue(inPlace.setInvStack(0, new ItemStack(ITEMS[0], 7), Simulation.ACTION));
+        Assert.assertEquals(7, inPlace.getInvStack(0).getCount());
+        Assert.assertEquals(3, inPlaceHandle.getCount());
+        Assert.assertEquals(3, subHandle.getCount());
+    }
+
+    @Test
+    public void testExtractionRequestFromSlots() {
+        FullFixedItemInv inv = new FullFixedItemInv(4);
+        inv.forceSetInvStack(0, new ItemStack(ITEMS[0], 10));
+        inv.forceSetInvStack(1, new ItemStack(ITEMS[1], 5));
+        inv.forceSetInvStack(2, new ItemStack(ITEMS[0], 10));
+
+        ItemExtractionRequest request = new ItemExtractionRequest()//
+            .add(new ExactItemFilter(ITEMS[0]), 15)//
+            .add(new ExactItemFilter(ITEMS[1]), 5);
+
+        Assert.assertTrue(request.canExtractFromSlots(inv));
+        List<ItemStack> extracted = request.extractFromSlots(inv, Simulation.ACTION);
+        Assert.assertNotNull(extracted);
+        // Stacks from different slots are merged
+        Assert.assertEquals(2, extracted.size());
+        assertEquals(new ItemStack(ITEMS[0], 15), extracted.get(0));
+        assertEquals(new ItemStack(ITEMS[1], 5), extracted.get(1));
+        assertEmpty(inv.getInvStack(0));
+        assertEmpty(inv.getInvStack(1));
+        assertEquals(new ItemStack(ITEMS[0], 5), inv.getInvStack(2));
+
+        Assert.assertNull(request.extractFromSlots(inv, Simulation.ACTION));
+        assertEquals(new ItemStack(ITEMS[0], 5), inv.getInvStack(2));
+    }
+
     public static FixedItemInv[] createInventories() {
         return createInventories(i -> new FixedInventoryVanillaWrapper(new SimpleInventory(i)));
     }
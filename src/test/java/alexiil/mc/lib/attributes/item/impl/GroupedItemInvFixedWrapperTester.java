@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.item.impl;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.minecraft.inventory.SimpleInventory;
+import net.minecraft.item.ItemStack;
+
+import alexiil.mc.lib.attributes.item.FixedItemInv;
+import alexiil.mc.lib.attributes.item.compat.FixedInventoryVanillaWrapper;
+import alexiil.mc.lib.attributes.item.filter.ExactItemFilter;
+import alexiil.mc.lib.attributes.item.filter.ItemFilter;
+
+public class GroupedItemInvFixedWrapperTester extends ItemInvTester {
+
+    @Test
+    public void testFilterReuse() {
+        assertFilterReused(new DirectFixedItemInv(4));
+        assertFilterReused(new FullFixedItemInv(4));
+        assertFilterReused(new FixedInventoryVanillaWrapper(new SimpleInventory(4)));
+
+        SimpleLimitedFixedItemInv limited = SimpleLimitedFixedItemInv.createLimited(new DirectFixedItemInv(4));
+        limited.getRule(1).filterInserts(new ExactItemFilter(ITEMS[0]));
+        assertFilterReused(limited);
+    }
+
+    @Test
+    public void testLimitedFilterChange() {
+        SimpleLimitedFixedItemInv limited = SimpleLimitedFixedItemInv.createLimited(new DirectFixedItemInv(2));
+        limited.getAllRule().filterInserts(new ExactItemFilter(ITEMS[0]));
+        GroupedItemInvFixedWrapper wrapper = new GroupedItemInvFixedWrapper(limited);
+
+        ItemFilter filter = wrapper.getInsertionFilter();
+        assertIdentityEquals(filter, wrapper.getInsertionFilter());
+        Assert.assertTrue(filter.matches(new ItemStack(ITEMS[0])));
+        Assert.assertFalse(filter.matches(new ItemStack(ITEMS[1])));
+
+        limited.getRule(1).filterInserts(new ExactItemFilter(ITEMS[1]));
+        ItemFilter changed = wrapper.getInsertionFilter();
+        Assert.assertNotSame(filter, changed);
+        Assert.assertTrue(changed.matches(new ItemStack(ITEMS[1])));
+        assertIdentityEquals(changed, wrapper.getInsertionFilter());
+    }
+
+    private static void assertFilterReused(FixedItemInv inv) {
+        for (int slot = 0; slot < inv.getSlotCount(); slot++) {
+            assertIdentityEquals(inv.getFilterForSlot(slot), inv.getFilterForSlot(slot));
+        }
+        GroupedItemInvFixedWrapper wrapper = new GroupedItemInvFixedWrapper(inv);
+        ItemFilter filter = wrapper.getInsertionFilter();
+        assertIdentityEquals(filter, wrapper.getInsertionFilter());
+        Assert.assertTrue(filter.matches(new ItemStack(ITEMS[0])));
+    }
+}
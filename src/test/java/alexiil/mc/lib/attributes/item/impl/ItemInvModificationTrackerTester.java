@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.item.impl;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.minecraft.item.ItemStack;
+
+import alexiil.mc.lib.attributes.item.impl.ItemInvModificationTracker.TrackingMode;
+
+public class ItemInvModificationTrackerTester extends ItemInvTester {
+
+    private TrackingMode previousMode;
+    private int previousSampleRate;
+
+    @Before
+    public void saveMode() {
+        previousMode = ItemInvModificationTracker.getMode();
+        previousSampleRate = ItemInvModificationTracker.getSampleRate();
+        ItemInvModificationTracker.resetStatistics();
+    }
+
+    @After
+    public void restoreMode() {
+        ItemInvModificationTracker.setMode(previousMode);
+        ItemInvModificationTracker.setSampleRate(previousSampleRate);
+        ItemInvModificationTracker.resetStatistics();
+    }
+
+    @Test
+    public void testOff() {
+        ItemInvModificationTracker.setMode(TrackingMode.OFF);
+        ItemStack stack = new ItemStack(ITEMS[0], 4);
+        ItemInvModificationTracker.trackNeverChanging(stack);
+        stack.increment(1);
+        ItemInvModificationTracker.trackNeverChanging(stack);
+        Assert.assertEquals(0, ItemInvModificationTracker.getCheckedCount());
+        Assert.assertEquals(0, ItemInvModificationTracker.getViolationCount());
+    }
+
+    @Test
+    public void testFull() {
+        ItemInvModificationTracker.setMode(TrackingMode.FULL);
+        assertDetectsModification();
+    }
+
+    @Test
+    public void testSampled() {
+        ItemInvModificationTracker.setMode(TrackingMode.SAMPLED);
+        ItemInvModificationTracker.setSampleRate(1);
+        Assert.assertEquals(1, ItemInvModificationTracker.getSampleRate());
+        assertDetectsModification();
+    }
+
+    @Test
+    public void testSampleRate() {
+        ItemInvModificationTracker.setSampleRate(100);
+        Assert.assertEquals(128, ItemInvModificationTracker.getSampleRate());
+        ItemInvModificationTracker.setSampleRate(64);
+        Assert.assertEquals(64, ItemInvModificationTracker.getSampleRate());
+        ItemInvModificationTracker.setSampleRate(0);
+        Assert.assertEquals(1, ItemInvModificationTracker.getSampleRate());
+    }
+
+    @Test
+    public void testModeSwitchClearsTrackedStacks() {
+        ItemInvModificationTracker.setMode(TrackingMode.FULL);
+        ItemStack stack = new ItemStack(ITEMS[0], 4);
+        ItemInvModificationTracker.trackNeverChanging(stack);
+        stack.increment(1);
+
+        // Switching forgets the original copy, so the modified stack is tracked as if it was new
+        ItemInvModificationTracker.setMode(TrackingMode.FULL);
+        ItemInvModificationTracker.trackNeverChanging(stack);
+        Assert.assertEquals(0, ItemInvModificationTracker.getCheckedCount());
+        ItemInvModificationTracker.trackNeverChanging(stack);
+        Assert.assertEquals(1, ItemInvModificationTracker.getCheckedCount());
+        Assert.assertEquals(0, ItemInvModificationTracker.getViolationCount());
+    }
+
+    private static void assertDetectsModification() {
+        ItemStack stack = new ItemStack(ITEMS[0], 4);
+        ItemInvModificationTracker.trackNeverChanging(stack);
+        Assert.assertEquals(0, ItemInvModificationTracker.getCheckedCount());
+
+        // Unchanged stacks pass the check
+        ItemInvModificationTracker.trackNeverChanging(stack);
+        Assert.assertEquals(1, ItemInvModificationTracker.getCheckedCount());
+        Assert.assertEquals(0, ItemInvModificationTracker.getViolationCount());
+
+        stack.increment(1);
+        try {
+            ItemInvModificationTracker.trackNeverChanging(stack);
+            Assert.fail("Expected the modification to be detected!");
+        } catch (IllegalStateException expected) {
+            // Expected
+        }
+        Assert.assertEquals(2, ItemInvModificationTracker.getCheckedCount());
+        Assert.assertEquals(1, ItemInvModificationTracker.getViolationCount());
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.item.impl;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.CompoundTag;
+
+import alexiil.mc.lib.attributes.Simulation;
+import alexiil.mc.lib.attributes.item.GroupedItemInvView.ItemInvStatistic;
+import alexiil.mc.lib.attributes.item.ItemKey;
+import alexiil.mc.lib.attributes.item.filter.ConstantItemFilter;
+import alexiil.mc.lib.attributes.item.filter.ExactItemFilter;
+
+public class LargeGroupedItemInvTester extends ItemInvTester {
+
+    @Test
+    public void testBasics() {
+        LargeGroupedItemInv inv = new LargeGroupedItemInv(2, 100);
+        assertEmpty(inv.insert(new ItemStack(ITEMS[0], 10)));
+        assertEmpty(inv.insert(new ItemStack(ITEMS[1], 20)));
+        // Too many item types
+        assertEquals(new ItemStack(ITEMS[2], 5), inv.insert(new ItemStack(ITEMS[2], 5)));
+
+        Assert.assertEquals(10, inv.getAmount(new ItemStack(ITEMS[0])));
+        Assert.assertEquals(30, inv.getAmount(ConstantItemFilter.ANYTHING));
+        Assert.assertEquals(20, inv.getAmount(new ExactItemFilter(ITEMS[0]).negate()));
+
+        assertEquals(new ItemStack(ITEMS[0], 10), inv.extract(new ExactItemFilter(ITEMS[0]), 64));
+        Assert.assertEquals(1, inv.getStoredStacks().size());
+
+        // The freed index can be reused
+        assertEmpty(inv.insert(new ItemStack(ITEMS[2], 5)));
+        Assert.assertEquals(25, inv.getTotalAmountLong());
+    }
+
+    @Test
+    public void testLargeCounts() {
+        long huge = 5_000_000_000L;
+        LargeGroupedItemInv inv = new LargeGroupedItemInv(10, Long.MAX_VALUE);
+        LargeGroupedItemInv source = new LargeGroupedItemInv(10, Long.MAX_VALUE);
+        assertEmpty(source.insert(new ItemStack(ITEMS[0])));
+        CompoundTag tag = source.toTag();
+        tag.getList("items", new CompoundTag().getType()).getCompound(0).putLong("Count", huge);
+        inv.fromTag(tag);
+
+        ItemKey key = ItemKey.of(new ItemStack(ITEMS[0]));
+        Assert.assertEquals(huge, inv.getAmountLong(key));
+        Assert.assertEquals(Integer.MAX_VALUE, inv.getAmount(new ItemStack(ITEMS[0])));
+        Assert.assertEquals(Integer.MAX_VALUE, inv.getTotalCapacity());
+
+        ItemInvStatistic stats = inv.getStatistics(new ExactItemFilter(ITEMS[0]));
+        Assert.assertEquals(Integer.MAX_VALUE, stats.amount);
+        Assert.assertEquals(huge, inv.getStatisticsLong(new ExactItemFilter(ITEMS[0])).amount);
+
+        int[] last = { -1 };
+        inv.addListener((i, stack, previous, current) -> last[0] = current, () -> {});
+        assertEquals(
+            new ItemStack(ITEMS[0], 64), inv.attemptExtraction(ConstantItemFilter.ANYTHING, 64, Simulation.ACTION)
+        );
+        Assert.assertEquals(huge - 64, inv.getAmountLong(key));
+        Assert.assertEquals(Integer.MAX_VALUE, last[0]);
+
+        LargeGroupedItemInv read = new LargeGroupedItemInv(10, Long.MAX_VALUE);
+        read.fromTag(inv.toTag());
+        Assert.assertEquals(huge - 64, read.getAmountLong(key));
+    }
+
+    @Test
+    public void testReadSimpleGroupedTag() {
+        // SimpleGroupedItemInv writes "Count" as an int, rather than a long
+        SimpleGroupedItemInv simple = new SimpleGroupedItemInv(4, 1000);
+        ItemStack tagged = new ItemStack(ITEMS[1], 7);
+        CompoundTag itemTag = new CompoundTag();
+        itemTag.putInt("value", 3);
+        tagged.setTag(itemTag);
+        assertEmpty(simple.insert(new ItemStack(ITEMS[0], 300)));
+        assertEmpty(simple.insert(tagged.copy()));
+
+        LargeGroupedItemInv inv = new LargeGroupedItemInv(4, 1000);
+        inv.fromTag(simple.toTag());
+        Assert.assertEquals(300, inv.getAmountLong(ItemKey.of(new ItemStack(ITEMS[0]))));
+        Assert.assertEquals(7, inv.getAmountLong(ItemKey.of(tagged)));
+        Assert.assertEquals(0, inv.getAmount(new ItemStack(ITEMS[1])));
+        Assert.assertEquals(307, inv.getTotalAmountLong());
+
+        // And the other way around, as long as the counts fit in an int
+        SimpleGroupedItemInv read = new SimpleGroupedItemInv(4, 1000);
+        read.fromTag(inv.toTag());
+        Assert.assertEquals(300, read.getAmount(new ItemStack(ITEMS[0])));
+        Assert.assertEquals(7, read.getAmount(tagged));
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2019 AlexIIL
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package alexiil.mc.lib.attributes.item.impl;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.minecraft.item.ItemStack;
+
+import alexiil.mc.lib.attributes.Simulation;
+import alexiil.mc.lib.attributes.item.GroupedItemInv;
+import alexiil.mc.lib.attributes.item.GroupedItemInvView.ItemInvStatistic;
+import alexiil.mc.lib.attributes.item.ItemExtractionRequest;
+import alexiil.mc.lib.attributes.item.filter.ConstantItemFilter;
+import alexiil.mc.lib.attributes.item.filter.ExactItemFilter;
+import alexiil.mc.lib.attributes.item.filter.ExactItemSetFilter;
+import alexiil.mc.lib.attributes.item.filter.ExactItemStackFilter;
+import alexiil.mc.lib.attributes.item.filter.ItemFilter;
+
+public class SimpleGroupedItemInvTester extends ItemInvTester {
+
+    @Test
+    public void testStatistics() {
+        SimpleGroupedItemInv inv = new SimpleGroupedItemInv(10, 100);
+        assertEmpty(inv.insert(new ItemStack(ITEMS[0], 10)));
+        assertEmpty(inv.insert(new ItemStack(ITEMS[1], 20)));
+        assertEmpty(inv.insert(new ItemStack(ITEMS[2], 30)));
+
+        Assert.assertEquals(10, inv.getAmount(new ItemStack(ITEMS[0])));
+        Assert.assertEquals(60, inv.getAmount(ConstantItemFilter.ANYTHING));
+        Assert.assertEquals(20, inv.getAmount(new ExactItemFilter(ITEMS[1])));
+        Assert.assertEquals(40, inv.getAmount(new ExactItemFilter(ITEMS[1]).negate()));
+        Assert.assertEquals(
+            40, inv.getAmount(new ExactItemSetFilter(new HashSet<>(Arrays.asList(ITEMS[0], ITEMS[2], ITEMS[3]))))
+        );
+        // An opaque filter has to fall back to a full scan, but must agree with the indexed version
+        Assert.assertEquals(30, inv.getAmount(stack -> stack.getItem() == ITEMS[2]));
+
+        ItemInvStatistic stats = inv.getStatistics(new ExactItemStackFilter(new ItemStack(ITEMS[2])));
+        Assert.assertEquals(30, stats.amount);
+        Assert.assertEquals(70, stats.spaceTotal);
+    }
+
+    @Test
+    public void testExtraction() {
+        SimpleGroupedItemInv inv = new SimpleGroupedItemInv(10, 100);
+        assertEmpty(inv.insert(new ItemStack(ITEMS[0], 10)));
+        assertEmpty(inv.insert(new ItemStack(ITEMS[1], 20)));
+
+        assertEquals(
+            new ItemStack(ITEMS[1], 5), inv.attemptExtraction(new ExactItemFilter(ITEMS[1]), 5, Simulation.SIMULATE)
+        );
+        Assert.assertEquals(20, inv.getAmount(new ItemStack(ITEMS[1])));
+
+        assertEquals(new ItemStack(ITEMS[1], 20), inv.extract(new ExactItemFilter(ITEMS[1]), 64));
+        Assert.assertEquals(0, inv.getAmount(new ItemStack(ITEMS[1])));
+        Assert.assertEquals(1, inv.getStoredStacks().size());
+        Assert.assertEquals(10, inv.getAmount(ConstantItemFilter.ANYTHING));
+
+        assertEmpty(inv.extract(new ExactItemFilter(ITEMS[1]), 64));
+    }
+
+    @Test
+    public void testSetFilterExtractionOrder() {
+        SimpleGroupedItemInv inv = new SimpleGroupedItemInv(10, 100);
+        assertEmpty(inv.insert(new ItemStack(ITEMS[0], 10)));
+        assertEmpty(inv.insert(new ItemStack(ITEMS[1], 10)));
+        assertEmpty(inv.insert(new ItemStack(ITEMS[2], 10)));
+
+        // The inventory's insertion order wins, regardless of the set's iteration order
+        ExactItemSetFilter filter = new ExactItemSetFilter(new LinkedHashSet<>(Arrays.asList(ITEMS[2], ITEMS[1])));
+        assertEquals(new ItemStack(ITEMS[1], 10), inv.extract(filter, 64));
+        assertEquals(new ItemStack(ITEMS[2], 10), inv.extract(filter, 64));
+        assertEmpty(inv.extract(filter, 64));
+    }
+
+    @Test
+    public void testExtractionRequest() {
+        SimpleGroupedItemInv inv = new SimpleGroupedItemInv(10, 100);
+        assertEmpty(inv.insert(new ItemStack(ITEMS[0], 10)));
+        assertEmpty(inv.insert(new ItemStack(ITEMS[1], 20)));
+
+        ItemExtractionRequest request = new ItemExtractionRequest()//
+            .add(new ExactItemFilter(ITEMS[0]), 4)//
+            .add(new ExactItemFilter(ITEMS[1]), 15);
+
+        List<ItemStack> simulated = request.extract(inv, Simulation.SIMULATE);
+        Assert.assertNotNull(simulated);
+        Assert.assertEquals(2, simulated.size());
+        assertEquals(new ItemStack(ITEMS[0], 4), simulated.get(0));
+        assertEquals(new ItemStack(ITEMS[1], 15), simulated.get(1));
+        Assert.assertEquals(30, inv.getAmount(ConstantItemFilter.ANYTHING));
+
+        List<ItemStack> extracted = request.extract(inv, Simulation.ACTION);
+        Assert.assertNotNull(extracted);
+        Assert.assertEquals(2, extracted.size());
+        assertEquals(new ItemStack(ITEMS[0], 4), extracted.get(0));
+        assertEquals(new ItemStack(ITEMS[1], 15), extracted.get(1));
+        Assert.assertEquals(6, inv.getAmount(new ItemStack(ITEMS[0])));
+        Assert.assertEquals(5, inv.getAmount(new ItemStack(ITEMS[1])));
+
+        // Only one requirement can't be met, so nothing is extracted
+        Assert.assertFalse(request.canExtract(inv));
+        Assert.assertNull(request.extract(inv, Simulation.ACTION));
+        Assert.assertEquals(6, inv.getAmount(new ItemStack(ITEMS[0])));
+        Assert.assertEquals(5, inv.getAmount(new ItemStack(ITEMS[1])));
+
+        // Items are assigned to the first matching requirement, and any leftovers are available to later ones
+        ItemExtractionRequest overlapping = new ItemExtractionRequest()//
+            .add(new ExactItemFilter(ITEMS[0]), 5)//
+            .add(ConstantItemFilter.ANYTHING, 6);
+        List<ItemStack> all = overlapping.extract(inv, Simulation.ACTION);
+        Assert.assertNotNull(all);
+        Assert.assertEquals(3, all.size());
+        assertEquals(new ItemStack(ITEMS[0], 5), all.get(0));
+        Assert.assertEquals(6, all.get(1).getCount() + all.get(2).getCount());
+        Assert.assertEquals(0, inv.getAmount(ConstantItemFilter.ANYTHING));
+    }
+
+    @Test
+    public void testExtractionRequestRollback() {
+        SimpleGroupedItemInv inv = new SimpleGroupedItemInv(10, 1000);
+        assertEmpty(inv.insert(new ItemStack(ITEMS[0], 200)));
+        assertEmpty(inv.insert(new ItemStack(ITEMS[1], 10)));
+
+        // Stores 200 of the first item, but only gives out 100 items in total (so simulations of a
+        // single stack still succeed, but the planned 150 can't all be extracted)
+        int[] extractable = { 100 };
+        GroupedItemInv limited = new DelegatingGroupedItemInv(inv) {
+            @Override
+            public ItemStack attemptExtraction(ItemFilter filter, int maxAmount, Simulation simulation) {
+                ItemStack stack = super.attemptExtraction(filter, Math.min(maxAmount, extractable[0]), simulation);
+                if (simulation.isAction()) {
+                    extractable[0] -= stack.getCount();
+                }
+                return stack;
+            }
+        };
+
+        ItemExtractionRequest request = new ItemExtractionRequest()//
+            .add(new ExactItemFilter(ITEMS[1]), 5)//
+            .add(new ExactItemFilter(ITEMS[0]), 150);
+        Assert.assertTrue(request.canExtract(limited));
+        Assert.assertNull(request.extract(limited, Simulation.ACTION));
+
+        // Everything that was extracted before the inventory ran out has been put back
+        Assert.assertEquals(0, extractable[0]);
+        Assert.assertEquals(200, inv.getAmount(new ItemStack(ITEMS[0])));
+        Assert.assertEquals(10, inv.getAmount(new ItemStack(ITEMS[1])));
+    }
+}
@@ -8,6 +8,7 @@
 package alexiil.mc.lib.attributes.item.impl;
 
 import alexiil.mc.lib.attributes.Simulation;
+import alexiil.mc.lib.attributes.item.GroupedItemInv;
 import alexiil.mc.lib.attributes.item.LimitedFixedItemInv;
 import net.minecraft.item.ItemStack;
 import net.minecraft.item.Items;
@@ -15,6 +16,7 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class SimpleLimitedFixedItemInvTester extends ItemInvTester {
 
@@ -182,4 +184,36 @@ public class SimpleLimitedFixedItemInvTester extends ItemInvTester {
 
         limitedInv.extractStack(0, null, ItemStack.EMPTY, 1, Simulation.ACTION);
     }
+
+    @Test
+    public void testCompiledRules() {
+        FullFixedItemInv inv = new FullFixedItemInv(10);
+        AtomicInteger filterCalls = new AtomicInteger();
+        SimpleLimitedFixedItemInv limitedInv = SimpleLimitedFixedItemInv.createLimited(inv);
+        limitedInv.getSubRule(0, 5)
+                .filterInserts(stack -> {
+                    filterCalls.incrementAndGet();
+                    return stack.getItem() == Items.APPLE;
+                });
+        limitedInv.getSubRule(5, 10).filterExtracts(stack -> false);
+        Assert.assertEquals(-1, limitedInv.getRuleGroupCount());
+        limitedInv.markFinal();
+        Assert.assertEquals(2, limitedInv.getRuleGroupCount());
+
+        // The filter is only tested once for the whole group of 5 slots
+        GroupedItemInv grouped = limitedInv.getGroupedInv();
+        assertEmpty(grouped.insert(new ItemStack(ITEMS[1], 3)));
+        Assert.assertEquals(1, filterCalls.get());
+        assertEmpty(inv.getInvStack(0));
+        assertEquals(new ItemStack(ITEMS[1], 3), inv.getInvStack(5));
+
+        // Slot order is still respected
+        assertEmpty(grouped.insert(apples(4)));
+        assertEquals(apples(4), inv.getInvStack(0));
+
+        // Copies keep all of the rules
+        LimitedFixedItemInv copy = limitedInv.copy();
+        assertEmpty(copy.extractStack(5, null, ItemStack.EMPTY, 1, Simulation.SIMULATE));
+        Assert.assertEquals(2, ((SimpleLimitedFixedItemInv) copy).getRuleGroupCount());
+    }
 }